@@ -0,0 +1,190 @@
+package xyz.chromabeam.benchmark;
+
+import xyz.chromabeam.beam.Direction;
+import xyz.chromabeam.component.Component;
+import xyz.chromabeam.demo.components.basic.Block;
+import xyz.chromabeam.demo.components.basic.Delayer;
+import xyz.chromabeam.demo.components.basic.Emitter;
+import xyz.chromabeam.demo.components.basic.Mirror;
+import xyz.chromabeam.demo.components.basic.Splitter;
+import xyz.chromabeam.world.World2D;
+
+/**
+ * Deterministic circuit layouts used by the benchmarks. Every shape places roughly the requested amount of components,
+ * and remembers where it put them, so that they can be removed or re-placed later in the same order.
+ *
+ * Layouts are kept compact (squares of loops/cells), because the storage cost of the world grows with the coordinate
+ * extent, not only with the amount of placed components.
+ */
+public class Circuit {
+    public enum Shape {
+        /**
+         * A square grid of emitters. Static: every emitter fires exactly once.
+         */
+        EMITTER_GRID,
+        /**
+         * Closed loops of a delayer followed by a long zig-zag chain of mirrors and a long return beam. Every loop
+         * re-fires each tick, so the instant propagation path dominates.
+         */
+        MIRROR_CHAIN,
+        /**
+         * A square grid of splitters fed by a single emitter in the corner, flooding the whole grid with beams.
+         */
+        SPLITTER_FAN,
+        /**
+         * Closed loops of delayers connected by 4 mirrors. Every delayer is hit, ticked, and re-emits each tick.
+         */
+        DELAYER_CLOCK,
+        /**
+         * The same loops as DELAYER_CLOCK, but every loop is walled off with blocks, so that the loops are independent
+         * islands for parallel ticking. Roughly half of the components are blocks.
+         */
+        DELAYER_ISLANDS
+    }
+
+    private static final int CHAIN_WAVES = 64;
+    private static final int CLOCK_LENGTH = 60;
+
+    private final int[] xs;
+    private final int[] ys;
+    private final Direction[] directions;
+    private final boolean[] flips;
+    private final Component[] components;
+    private int count = 0;
+
+    private Circuit(int capacity) {
+        xs = new int[capacity];
+        ys = new int[capacity];
+        directions = new Direction[capacity];
+        flips = new boolean[capacity];
+        components = new Component[capacity];
+    }
+
+    /**
+     * Builds the specified shape into an empty world.
+     * @param components The approximate amount of components to place. The actual amount is rounded to whole loops/rows.
+     */
+    public static Circuit build(World2D world, Shape shape, int components) {
+        var circuit = new Circuit(components + 2 * side(components) + 4 * CHAIN_WAVES + 2 * CLOCK_LENGTH + 16);
+        switch (shape) {
+            case EMITTER_GRID -> circuit.emitterGrid(world, side(components));
+            case MIRROR_CHAIN -> circuit.mirrorChains(world, Math.max(1, components / (CHAIN_WAVES * 4 + 5)));
+            case SPLITTER_FAN -> circuit.splitterFan(world, side(components));
+            case DELAYER_CLOCK -> circuit.delayerClocks(world, Math.max(1, components / (CLOCK_LENGTH + 4)));
+            case DELAYER_ISLANDS -> circuit.delayerIslands(world, Math.max(1, components / (2 * CLOCK_LENGTH + 8)));
+        }
+        return circuit;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Removes every placed component from the world, in placement order.
+     */
+    public void removeAll(World2D world) {
+        for (int i = 0; i < count; i++) {
+            world.remove(xs[i], ys[i]);
+        }
+    }
+
+    /**
+     * Removes the i-th placed component, and puts it back into the same cell.
+     */
+    public void toggle(World2D world, int i) {
+        world.remove(xs[i], ys[i]);
+        world.set(xs[i], ys[i], directions[i], flips[i], components[i]);
+    }
+
+    private static int side(int components) {
+        return Math.max(1, (int) Math.round(Math.sqrt(components)));
+    }
+
+    private void place(World2D world, int x, int y, Direction direction, boolean flipped, Component component) {
+        xs[count] = x;
+        ys[count] = y;
+        directions[count] = direction;
+        flips[count] = flipped;
+        components[count] = component;
+        count++;
+        world.set(x, y, direction, flipped, component);
+    }
+
+    private void emitterGrid(World2D world, int side) {
+        var dirs = Direction.values();
+        for (int y = 0; y < side; y++) {
+            for (int x = 0; x < side; x++) {
+                place(world, x, y, dirs[(x + y) & 3], false, new Emitter());
+            }
+        }
+    }
+
+    private void splitterFan(World2D world, int side) {
+        place(world, -1, 0, Direction.RIGHT, false, new Emitter());
+        for (int y = 0; y < side; y++) {
+            for (int x = 0; x < side; x++) {
+                place(world, x, y, Direction.RIGHT, true, new Splitter());
+            }
+        }
+    }
+
+    private void mirrorChains(World2D world, int loops) {
+        int width = 2 * CHAIN_WAVES + 4;
+        int perRow = side(loops);
+        for (int i = 0; i < loops; i++) {
+            mirrorChain(world, (i % perRow) * width, (i / perRow) * 3);
+        }
+    }
+
+    //D: delayer, then a 2-row wave of mirrors to the right, then back on the third row, and up into the delayer.
+    private void mirrorChain(World2D world, int ox, int oy) {
+        place(world, ox, oy, Direction.RIGHT, false, new Delayer());
+        for (int i = 0; i < CHAIN_WAVES; i++) {
+            int c = ox + 1 + 2 * i;
+            place(world, c, oy, Direction.RIGHT, false, new Mirror());
+            place(world, c, oy + 1, Direction.LEFT, false, new Mirror());
+            place(world, c + 1, oy + 1, Direction.RIGHT, true, new Mirror());
+            place(world, c + 1, oy, Direction.LEFT, true, new Mirror());
+        }
+        int end = ox + 2 * CHAIN_WAVES + 1;
+        place(world, end, oy, Direction.RIGHT, false, new Mirror());
+        place(world, end, oy + 2, Direction.DOWN, false, new Mirror());
+        place(world, ox - 1, oy + 2, Direction.LEFT, false, new Mirror());
+        place(world, ox - 1, oy, Direction.UP, false, new Mirror());
+    }
+
+    private void delayerClocks(World2D world, int loops) {
+        int width = CLOCK_LENGTH + 3;
+        int perRow = side(loops);
+        for (int i = 0; i < loops; i++) {
+            delayerClock(world, (i % perRow) * width, (i / perRow) * 2);
+        }
+    }
+
+    private void delayerClock(World2D world, int ox, int oy) {
+        for (int i = 0; i < CLOCK_LENGTH; i++) {
+            place(world, ox + i, oy, Direction.RIGHT, false, new Delayer());
+        }
+        place(world, ox + CLOCK_LENGTH, oy, Direction.RIGHT, false, new Mirror());
+        place(world, ox + CLOCK_LENGTH, oy + 1, Direction.DOWN, false, new Mirror());
+        place(world, ox - 1, oy + 1, Direction.LEFT, false, new Mirror());
+        place(world, ox - 1, oy, Direction.UP, false, new Mirror());
+    }
+
+    private void delayerIslands(World2D world, int loops) {
+        int width = CLOCK_LENGTH + 3;
+        int perRow = side(loops);
+        for (int i = 0; i < loops; i++) {
+            int ox = (i % perRow) * width;
+            int oy = (i / perRow) * 3;
+            delayerClock(world, ox, oy);
+            //A wall below the loop, and one to the right of it
+            for (int x = ox - 1; x <= ox + CLOCK_LENGTH + 1; x++) {
+                place(world, x, oy + 2, Direction.RIGHT, false, new Block());
+            }
+            place(world, ox + CLOCK_LENGTH + 1, oy, Direction.RIGHT, false, new Block());
+            place(world, ox + CLOCK_LENGTH + 1, oy + 1, Direction.RIGHT, false, new Block());
+        }
+    }
+}
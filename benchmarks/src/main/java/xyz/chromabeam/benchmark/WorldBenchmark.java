@@ -0,0 +1,134 @@
+package xyz.chromabeam.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import xyz.chromabeam.util.storage.Container2DFactory;
+import xyz.chromabeam.world.FlatWorld2D;
+import xyz.chromabeam.world.World2D;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless benchmarks of the simulation hot paths. The world is created without a world or beam renderer, so only
+ * the storage, beam map and tick scheduler are measured. Every benchmark runs with both container implementations, and
+ * with both sequential and parallel ticking.
+ *
+ * - populate: places every component of a circuit into an empty world, then runs the first tick, which fires every producer.
+ * - removeAll: removes every component of a fully populated and settled circuit.
+ * - toggle: removes a single component from the middle of a settled circuit, and places it back.
+ * - update: a single steady-state tick. Emitter grids and splitter fans only fire once, so for those this is the
+ *   idle cost of a tick.
+ */
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class WorldBenchmark {
+    @Param({"EMITTER_GRID", "MIRROR_CHAIN", "SPLITTER_FAN", "DELAYER_CLOCK", "DELAYER_ISLANDS"})
+    public Circuit.Shape shape;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int components;
+
+    @Param({"NATIVE", "TILED"})
+    public String storage;
+
+    /**
+     * SEQUENTIAL ticks on the benchmark thread, PARALLEL ticks the islands of the world on the common pool.
+     */
+    @Param({"SEQUENTIAL", "PARALLEL"})
+    public String ticking;
+
+    private Container2DFactory containerFactory() {
+        return storage.equals("TILED") ? Container2DFactory.TILED : Container2DFactory.NATIVE;
+    }
+
+    private FlatWorld2D createWorld() {
+        var world = new FlatWorld2D(null, null, containerFactory());
+        if (ticking.equals("PARALLEL")) world.setTickPool(ForkJoinPool.commonPool());
+        return world;
+    }
+
+    /**
+     * A circuit that has been built, and ticked until all of its producers fired at least once.
+     */
+    public static class Populated {
+        World2D world;
+        Circuit circuit;
+
+        void populate(WorldBenchmark parameters) {
+            world = parameters.createWorld();
+            circuit = Circuit.build(world, parameters.shape, parameters.components);
+            world.update();
+            world.update();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Settled extends Populated {
+        @Setup(Level.Trial)
+        public void setup(WorldBenchmark parameters) {
+            populate(parameters);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Fresh extends Populated {
+        @Setup(Level.Invocation)
+        public void setup(WorldBenchmark parameters) {
+            populate(parameters);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 5)
+    public World2D populate() {
+        var world = createWorld();
+        Circuit.build(world, shape, components);
+        world.update();
+        return world;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 5)
+    public World2D removeAll(Fresh fresh) {
+        fresh.circuit.removeAll(fresh.world);
+        return fresh.world;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public World2D toggle(Settled settled) {
+        settled.circuit.toggle(settled.world, settled.circuit.size() / 2);
+        settled.world.update();
+        return settled.world;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public World2D update(Settled settled) {
+        settled.world.update();
+        return settled.world;
+    }
+}
@@ -5,6 +5,14 @@ public enum Direction {
 
 
     private static final Direction[] values = Direction.values();
+
+    /**
+     * Same as values()[ordinal], without cloning the array of values on every call.
+     */
+    public static Direction fromOrdinal(int ordinal) {
+        return values[ordinal];
+    }
+
     public Direction add(Direction other) {
         return values[(ordinal() + other.ordinal()) % 4];
     }
@@ -0,0 +1,59 @@
+package xyz.chromabeam.beam;
+
+/**
+ * Beam colors packed into a single int, with 10 bits per channel. Red sits in bits 0-9, green in bits 11-20 and blue in
+ * bits 22-31. The empty bits between the channels let {@link #max(int, int)} compare all three channels with one
+ * subtraction. Channels are clamped into [0, 1], and {@link #pack(float, float, float)} of an unpacked color gives back
+ * the exact same int, so colors survive any amount of round trips.
+ */
+public final class PackedColor {
+    public static final int BLACK = 0;
+    public static final int WHITE = pack(1, 1, 1);
+
+    private static final int CHANNEL_MAX = 1023;
+    private static final int GREEN_SHIFT = 11;
+    private static final int BLUE_SHIFT = 22;
+    private static final long GUARDS = (1L << 10) | (1L << 21) | (1L << 32);
+    private static final int HIGH_BITS = (1 << 9) | (1 << 20) | (1 << 31);
+
+    private PackedColor() {}
+
+    private static int channel(float value) {
+        return value <= 0 ? 0 : value >= 1 ? CHANNEL_MAX : Math.round(value * CHANNEL_MAX);
+    }
+
+    public static int pack(float red, float green, float blue) {
+        return channel(red) | channel(green) << GREEN_SHIFT | channel(blue) << BLUE_SHIFT;
+    }
+
+    public static float red(int color) {
+        return (color & CHANNEL_MAX) / (float) CHANNEL_MAX;
+    }
+
+    public static float green(int color) {
+        return ((color >>> GREEN_SHIFT) & CHANNEL_MAX) / (float) CHANNEL_MAX;
+    }
+
+    public static float blue(int color) {
+        return ((color >>> BLUE_SHIFT) & CHANNEL_MAX) / (float) CHANNEL_MAX;
+    }
+
+    /**
+     * @return The channel-wise maximum of the two colors.
+     */
+    public static int max(int a, int b) {
+        long la = a & 0xFFFFFFFFL;
+        long lb = b & 0xFFFFFFFFL;
+        //The guard bit above a channel survives the subtraction only where a's channel is at least b's.
+        long greater = (((la | GUARDS) - lb) & GUARDS) >>> 10;
+        long mask = greater * CHANNEL_MAX;
+        return (int) ((la & mask) | (lb & ~mask));
+    }
+
+    /**
+     * @return True if any of the channels is at least half as bright as it can be.
+     */
+    public static boolean isBright(int color) {
+        return (color & HIGH_BITS) != 0;
+    }
+}
@@ -1,6 +1,7 @@
 package xyz.chromabeam.component;
 
 import xyz.chromabeam.beam.Direction;
+import xyz.chromabeam.beam.PackedColor;
 
 /**
  * Beam consumers can detect incoming beams, however, they cannot emit beams by themselves.
@@ -13,5 +14,13 @@ public interface BeamConsumer extends Tickable {
      */
     void incomingBeam(Direction direction, float red, float green, float blue);
 
+    /**
+     * Same as {@link #incomingBeam(Direction, float, float, float)}, with a {@link PackedColor packed} color. Worlds
+     * storing packed colors call this one, override it to skip unpacking the color.
+     */
+    default void incomingBeam(Direction direction, int color) {
+        incomingBeam(direction, PackedColor.red(color), PackedColor.green(color), PackedColor.blue(color));
+    }
+
 
 }
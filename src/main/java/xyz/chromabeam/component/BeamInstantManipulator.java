@@ -1,6 +1,7 @@
 package xyz.chromabeam.component;
 
 import xyz.chromabeam.beam.Direction;
+import xyz.chromabeam.beam.PackedColor;
 import xyz.chromabeam.world.BeamEmitter;
 
 /**
@@ -17,4 +18,12 @@ public interface BeamInstantManipulator extends ComponentI {
      */
     void incomingBeam(Direction direction, float red, float green, float blue, BeamEmitter instantOutput);
 
+    /**
+     * Same as {@link #incomingBeam(Direction, float, float, float, BeamEmitter)}, with a {@link PackedColor packed}
+     * color. Worlds storing packed colors call this one, override it to skip unpacking the color.
+     */
+    default void incomingBeam(Direction direction, int color, BeamEmitter instantOutput) {
+        incomingBeam(direction, PackedColor.red(color), PackedColor.green(color), PackedColor.blue(color), instantOutput);
+    }
+
 }
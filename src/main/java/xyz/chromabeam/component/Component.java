@@ -6,6 +6,7 @@ import xyz.chromabeam.engine.render.texture.TextureAtlas;
 import xyz.chromabeam.engine.render.texture.TextureRegionI;
 
 import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
 
 /**
  * The basic interface for ChromaBeam's components. Note that components MUST be position and rotation-blind, as all computations
@@ -92,6 +93,26 @@ public abstract class Component implements ComponentI{
         other.colorMasks = colorMasks;
     }
 
+    /**
+     * @return The amount of bytes {@link #writeState(ByteBuffer)} writes. Components without state of their own, like
+     * mirrors, keep the default of 0 and aren't asked to write anything when the world is saved.
+     */
+    public int stateSize() {
+        return 0;
+    }
+
+    /**
+     * Writes the component's own state, for saving worlds. Must write exactly {@link #stateSize()} bytes.
+     */
+    public void writeState(ByteBuffer buffer) {
+    }
+
+    /**
+     * Reads back the state written by {@link #writeState(ByteBuffer)}, into a component copied from the prototype.
+     */
+    public void readState(ByteBuffer buffer) {
+    }
+
     /**
      * Creates an uninitialized component of the exact same type
      */
@@ -0,0 +1,70 @@
+package xyz.chromabeam.component;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The set of component types a world can be built from, keyed by their {@link Component#getID() ID}. Every type gets a
+ * numeric type ID in the order of registration, which is what saved worlds store instead of the ID strings.
+ * New components are created from the registered prototypes, so they share the prototype's textures.
+ */
+public class ComponentRegistry {
+    private final List<Component> prototypes = new ArrayList<>();
+    private final List<MethodHandle> constructors = new ArrayList<>();
+    private final Map<String, Integer> typeIDs = new HashMap<>();
+
+    /**
+     * Registers a component type. The prototype should already be initialized, if the components are going to be drawn.
+     * @return The type ID of the component
+     */
+    public int register(Component prototype) {
+        if (typeIDs.containsKey(prototype.getID())) throw new IllegalArgumentException("Component " + prototype.getID() + " is already registered!");
+        try {
+            //A method handle doesn't box an argument array for every call like Constructor.newInstance does
+            constructors.add(MethodHandles.publicLookup().findConstructor(prototype.getClass(), MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Component.class)));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalArgumentException("Component " + prototype.getID() + " has no public no-arg constructor!", e);
+        }
+        prototypes.add(prototype);
+        typeIDs.put(prototype.getID(), prototypes.size() - 1);
+        return prototypes.size() - 1;
+    }
+
+    /**
+     * @return The type ID of the component ID, or -1 if it isn't registered
+     */
+    public int getTypeID(String id) {
+        return typeIDs.getOrDefault(id, -1);
+    }
+
+    public Component getPrototype(int typeID) {
+        return prototypes.get(typeID);
+    }
+
+    public int getTypeCount() {
+        return prototypes.size();
+    }
+
+    /**
+     * Creates a new component of the type, with the data of the prototype copied into it.
+     */
+    public Component create(int typeID) {
+        var prototype = prototypes.get(typeID);
+        Component component;
+        try {
+            component = (Component) constructors.get(typeID).invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+        prototype.copy(component);
+        return component;
+    }
+}
@@ -1,11 +1,20 @@
-package xyz.chromabeam.component;
-
-/**
- * Tickables are components that do specific operations non-instantly, such as gates and delayers.
- */
-public interface Tickable extends ComponentI {
-    /**
-     * Executes 1 time unit of simulation in the component.
-     */
-    void tick();
-}
+package xyz.chromabeam.component;
+
+/**
+ * Tickables are components that do specific operations non-instantly, such as gates and delayers.
+ */
+public interface Tickable extends ComponentI {
+    /**
+     * Executes 1 time unit of simulation in the component.
+     */
+    void tick();
+
+    /**
+     * Called after every tick, and when the component is placed.
+     * @return The amount of ticks after which the component wants to be ticked again even if it receives no beams, or 0
+     * if it only needs to be ticked when one of its inputs changes.
+     */
+    default int wakeUpDelay() {
+        return 0;
+    }
+}
@@ -8,8 +8,15 @@ import xyz.chromabeam.engine.render.chunk.RenderChunk;
 import xyz.chromabeam.ui.Button;
 import xyz.chromabeam.ui.UIManager;
 import xyz.chromabeam.ui.font.Font;
+import xyz.chromabeam.component.ComponentRegistry;
+import xyz.chromabeam.world.Clipboard;
+import xyz.chromabeam.world.EditJournal;
+import xyz.chromabeam.world.EditQueue;
 import xyz.chromabeam.world.FlatWorld2D;
 import xyz.chromabeam.world.InteractionManager;
+import xyz.chromabeam.world.RenderSnapshotBuffer;
+import xyz.chromabeam.world.SimulationRunner;
+import xyz.chromabeam.world.TickMetrics;
 import xyz.chromabeam.component.Component;
 import xyz.chromabeam.demo.components.basic.*;
 import xyz.chromabeam.engine.render.Camera;
@@ -17,6 +24,9 @@ import xyz.chromabeam.engine.render.Shader;
 import xyz.chromabeam.engine.render.beam.BeamRenderer;
 import xyz.chromabeam.engine.render.beam.DeferredRenderer;
 import xyz.chromabeam.engine.render.chunk.ChunkRenderer;
+import xyz.chromabeam.engine.render.chunk.InstancedChunkRenderer;
+import xyz.chromabeam.engine.render.chunk.RenderChunkI;
+import xyz.chromabeam.engine.render.texture.RegionTable;
 import xyz.chromabeam.engine.render.texture.TextureAtlas;
 import xyz.chromabeam.engine.render.texture.TextureTile;
 import xyz.chromabeam.engine.render.world.Renderer;
@@ -30,19 +40,54 @@ import javax.xml.parsers.ParserConfigurationException;
 import java.awt.Color;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Random;
+import java.util.function.BiFunction;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class Demo {
+    private static final int AUTOSAVE_INTERVAL = 60;
+    private static final long COMPACTION_THRESHOLD = 16 << 20;
+    /**
+     * Ticks per second, 0 ticks as fast as possible.
+     */
+    private static final double TICK_RATE = 0;
+    private static final int EDIT_QUEUE_CAPACITY = 4096;
+    /**
+     * Draws components as one instance per occupied cell instead of a quad per cell.
+     */
+    private static final boolean INSTANCED_RENDERING = true;
+
     public static void main(String[] args) throws IOException {
         //Thread.sleep(10000 );
         final var closed = new AtomicBoolean(false);
         final var window = new Window(800, 600, "ChromaBeam Dev demo 0.0.1", () -> closed.set(true));
         final var atlas = new TextureAtlas(getTextures());
 
-        final var componentRenderer = new ChunkRenderer(RenderChunk.CHUNK_SIDE_LENGTH);
+        final xyz.chromabeam.engine.render.world.WorldRenderer componentRenderer;
+        final BiFunction<Integer, Integer, RenderChunkI> chunkSupplier;
+        if (INSTANCED_RENDERING) {
+            var instancedRenderer = new InstancedChunkRenderer(RenderChunk.CHUNK_SIDE_LENGTH, new RegionTable(atlas));
+            chunkSupplier = (x, y) -> {
+                var c = instancedRenderer.allocateChunk();
+                c.x = x;
+                c.y = y;
+                return c;
+            };
+            componentRenderer = instancedRenderer;
+        } else {
+            var chunkRenderer = new ChunkRenderer(RenderChunk.CHUNK_SIDE_LENGTH);
+            chunkSupplier = (x, y) -> {
+                var c = chunkRenderer.allocateChunk();
+                c.x = x;
+                c.y = y;
+                return c;
+            };
+            componentRenderer = chunkRenderer;
+        }
         final var beamRenderer = new BeamRenderer();
         final var blurRenderer = new DeferredRenderer(window.getWidth(), window.getHeight(), beamRenderer, "pos2uv", "beamQuad");
         final var flatShader = Shader.fromShaderResource("ui", "color4");
@@ -62,18 +107,30 @@ public class Demo {
         });
         camera.setZoom(32f);
 
-        final World2D world = new FlatWorld2D(new WorldRenderer((x, y) -> {
-            var c = componentRenderer.allocateChunk();
-            c.x = x;
-            c.y = y;
-            return c;
-        }), beamRenderer);
+        final var worldRenderer = new WorldRenderer(chunkSupplier);
+        final var snapshots = new RenderSnapshotBuffer();
+        final var flatWorld = new FlatWorld2D(snapshots, snapshots);
+        final var metrics = new TickMetrics();
+        flatWorld.setMetrics(metrics);
+        //The simulation runs unbounded, only the last state before each frame is worth drawing
+        flatWorld.setFastForward(true);
+        final World2D world = flatWorld;
         try (window; atlas; flatShader; fontShader; font; uiRenderer; componentRenderer; beamRenderer; blurRenderer) {
-            final var components = new Component[]{new Block(), new Emitter(), new Gate(), new Mirror(), new Splitter(), new Delayer()};
+            final var components = new Component[]{new Block(), new Emitter(), new Gate(), new Mirror(), new Splitter(), new Delayer(), new Clock()};
+            final var registry = new ComponentRegistry();
             for (var component : components) {
                 component.initialize(atlas);
+                registry.register(component);
             }
+            final var journal = EditJournal.open(world, registry, Path.of("world.cbw"), Path.of("world.cbj"));
+            final var edits = new EditQueue(world, journal, EDIT_QUEUE_CAPACITY);
+            final var runner = new SimulationRunner(world, snapshots);
+            runner.setTickRate(TICK_RATE);
+            runner.setEditQueue(edits);
             final var intMan = new InteractionManager( world, camera, components, 0);
+            intMan.setEditQueue(edits);
+            intMan.setJournal(journal);
+            intMan.setClipboard(new Clipboard(registry));
             final var uiMan = new UIManager(window.getWidth(), window.getHeight(), 1);
 
             var box = new Button(100, 100, 100, 100, Color.RED, Color.GREEN, Color.BLUE);
@@ -89,8 +146,7 @@ public class Demo {
             window.addResizeCallback(uiMan);
             window.vSync(0);
             window.show();
-            int ticks = 0;
-            double average = 0;
+            int frames = 0;
             var r = new Random(1);
 
             //for (int y = -256; y < 255; y++) {
@@ -102,34 +158,46 @@ public class Demo {
             //        }
             //    }
             //}
-            while (!closed.get()) {
-                Window.pollEvents();
-                var start = System.nanoTime();
-                world.update();
-                var end = System.nanoTime();
-                average += (end - start) / 100000d;
-                ticks++;
-                inputDispatcher.processInput();
-                Renderer.clear(0, 0, 0, 1);
-                blurRenderer.render();
-                atlas.bind();
-                componentRenderer.render();
-                atlas.unbind();
-                //uiMan.draw(uiRenderer);
-                //uiRenderer.drawText(200, 200, "It's text!");
-                //uiRenderer.render();
-                window.swap();
-                if (ticks % 100 == 0) {
-                    System.out.printf("Average tick duration in last 100 ticks: %.3f us\n", average);
-                    average = 0;
-                    ticks = 0;
+            runner.start();
+            try (runner) {
+                while (!closed.get() && runner.isRunning()) {
+                    Window.pollEvents();
+                    inputDispatcher.processInput();
+                    snapshots.apply(worldRenderer, beamRenderer);
+                    Renderer.clear(0, 0, 0, 1);
+                    blurRenderer.render();
+                    atlas.bind();
+                    componentRenderer.render();
+                    atlas.unbind();
+                    //uiMan.draw(uiRenderer);
+                    //uiRenderer.drawText(200, 200, "It's text!");
+                    //uiRenderer.render();
+                    window.swap();
+                    if (++frames % AUTOSAVE_INTERVAL == 0) {
+                        //The journal and the metrics belong to the simulation thread
+                        runner.execute(() -> {
+                            try {
+                                journal.flush();
+                                if (journal.size() > COMPACTION_THRESHOLD) journal.compact();
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                            var updates = metrics.getUpdates();
+                            System.out.printf("Tick duration in last %d ticks: mean %.3f us, p50 %.3f us, p99 %.3f us, max %.3f us, mostly %s\n",
+                                    metrics.getTicks(), updates.getMean() / 1000, updates.getPercentile(50) / 1000d,
+                                    updates.getPercentile(99) / 1000d, updates.getMax() / 1000d, metrics.getDominantPhase());
+                            metrics.reset();
+                        });
+                    }
                 }
             }
+            journal.compact();
+            journal.close();
         }
     }
 
     private static final String textureRoot = "/xyz/chromabeam/textures/demo/";
-    private static final String[] textures = new String[]{"block", "delayer", "emitter", "gate", "mirror", "splitter"};
+    private static final String[] textures = new String[]{"block", "clock", "delayer", "emitter", "gate", "mirror", "splitter"};
     private static ArrayList<TextureTile> getTextures() {
         return new ArrayList<>(Arrays
                 .stream(textures)
@@ -0,0 +1,105 @@
+package xyz.chromabeam.demo.components.basic;
+
+import org.joml.Vector4f;
+import xyz.chromabeam.beam.Direction;
+import xyz.chromabeam.component.BeamProducer;
+import xyz.chromabeam.component.Component;
+import xyz.chromabeam.component.Tickable;
+import xyz.chromabeam.component.UserInteractive;
+import xyz.chromabeam.world.BeamEmitter;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Switches its white output on and off every {@link #getPeriod()} ticks, without any inputs. Clicking it cycles
+ * through the periods. It only runs on scheduled wake ups, so an idle clock costs nothing between two flips.
+ */
+public class Clock extends Component implements BeamProducer, Tickable, UserInteractive {
+    private static final int[] PERIODS = {1, 2, 4, 8, 16, 32, 64};
+    private static final int DEFAULT_PERIOD = 3;
+
+    private int period = DEFAULT_PERIOD;
+    private boolean on = false;
+    private boolean emit = false;
+    private boolean restart = false;
+
+    public Clock() {
+        super("Clock", "clock", 1);
+    }
+
+    /**
+     * @return The amount of ticks between two flips of the output.
+     */
+    public int getPeriod() {
+        return PERIODS[period];
+    }
+
+    public boolean isOn() {
+        return on;
+    }
+
+    @Override
+    public void emitBeams(BeamEmitter beamEmitter) {
+        float value = on ? 1 : 0;
+        beamEmitter.emit(Direction.RIGHT, value, value, value);
+        emit = false;
+    }
+
+    @Override
+    public boolean wantEmit() {
+        return emit;
+    }
+
+    @Override
+    public void tick() {
+        //A click ticks the clock right away, which only restarts the count with the new period
+        if (restart) {
+            restart = false;
+            return;
+        }
+        on = !on;
+        emit = true;
+    }
+
+    @Override
+    public int wakeUpDelay() {
+        return getPeriod();
+    }
+
+    @Override
+    public void mouseInteraction() {
+        period = (period + 1) % PERIODS.length;
+        restart = true;
+    }
+
+    @Override
+    public Vector4f getColorMaskColor(int mask, Vector4f buffer) {
+        return on ? buffer.set(1) : buffer.set(0, 0, 0, 1);
+    }
+
+    @Override
+    public void copy(Component other) {
+        super.copy(other);
+        var o = (Clock) other;
+        o.period = period;
+    }
+
+    @Override
+    public int stateSize() {
+        return 2;
+    }
+
+    @Override
+    public void writeState(ByteBuffer buffer) {
+        buffer.put((byte) period).put((byte) ((on ? 1 : 0) | (emit ? 2 : 0) | (restart ? 4 : 0)));
+    }
+
+    @Override
+    public void readState(ByteBuffer buffer) {
+        period = buffer.get();
+        byte flags = buffer.get();
+        on = (flags & 1) != 0;
+        emit = (flags & 2) != 0;
+        restart = (flags & 4) != 0;
+    }
+}
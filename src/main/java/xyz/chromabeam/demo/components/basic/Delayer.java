@@ -10,6 +10,8 @@ import xyz.chromabeam.component.Tickable;
 import xyz.chromabeam.engine.render.texture.TextureAtlas;
 import xyz.chromabeam.world.BeamEmitter;
 
+import java.nio.ByteBuffer;
+
 public class Delayer extends Component implements BeamConsumer, BeamProducer, Tickable {
     private final Vector3f value = new Vector3f();
     private boolean updated = false;
@@ -52,4 +54,20 @@ public class Delayer extends Component implements BeamConsumer, BeamProducer, Ti
         var o = (Delayer) other;
         o.value.set(value);
     }
+
+    @Override
+    public int stateSize() {
+        return 13;
+    }
+
+    @Override
+    public void writeState(ByteBuffer buffer) {
+        buffer.putFloat(value.x).putFloat(value.y).putFloat(value.z).put((byte) (updated ? 1 : 0));
+    }
+
+    @Override
+    public void readState(ByteBuffer buffer) {
+        value.set(buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+        updated = buffer.get() != 0;
+    }
 }
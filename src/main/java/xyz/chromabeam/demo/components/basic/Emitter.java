@@ -3,6 +3,7 @@ package xyz.chromabeam.demo.components.basic;
 import org.joml.Vector3f;
 import org.joml.Vector4f;
 import xyz.chromabeam.beam.Direction;
+import xyz.chromabeam.beam.PackedColor;
 import xyz.chromabeam.component.BeamProducer;
 import xyz.chromabeam.component.Component;
 import xyz.chromabeam.engine.render.texture.TextureAtlas;
@@ -16,7 +17,7 @@ public class Emitter extends Component implements BeamProducer {
 
     @Override
     public void emitBeams(BeamEmitter beamEmitter) {
-        beamEmitter.emit(Direction.RIGHT, 1, 1, 1);
+        beamEmitter.emit(Direction.RIGHT, PackedColor.WHITE);
     }
 
     @Override
@@ -3,10 +3,13 @@ package xyz.chromabeam.demo.components.basic;
 import org.joml.Vector3f;
 import org.joml.Vector4f;
 import xyz.chromabeam.beam.Direction;
+import xyz.chromabeam.beam.PackedColor;
 import xyz.chromabeam.component.*;
 import xyz.chromabeam.engine.render.texture.TextureAtlas;
 import xyz.chromabeam.world.BeamEmitter;
 
+import java.nio.ByteBuffer;
+
 public class Gate extends Component implements BeamConsumer, BeamProducer, UserInteractive {
     private final Vector3f input = new Vector3f();
     private final Vector3f output = new Vector3f();
@@ -39,6 +42,16 @@ public class Gate extends Component implements BeamConsumer, BeamProducer, UserI
         }
     }
 
+    @Override
+    public void incomingBeam(Direction direction, int color) {
+        if (direction == Direction.DOWN) {
+            changed = true;
+            sw = PackedColor.isBright(color);
+        } else {
+            BeamConsumer.super.incomingBeam(direction, color);
+        }
+    }
+
     @Override
     public void emitBeams(BeamEmitter beamEmitter) {
         beamEmitter.emit(Direction.RIGHT, output.x, output.y, output.z);
@@ -72,4 +85,28 @@ public class Gate extends Component implements BeamConsumer, BeamProducer, UserI
         inverted = !inverted;
         changed = true;
     }
+
+    @Override
+    public int stateSize() {
+        return 25;
+    }
+
+    @Override
+    public void writeState(ByteBuffer buffer) {
+        buffer.putFloat(input.x).putFloat(input.y).putFloat(input.z);
+        buffer.putFloat(output.x).putFloat(output.y).putFloat(output.z);
+        buffer.put((byte) ((sw ? 1 : 0) | (inverted ? 2 : 0) | (changed ? 4 : 0) | (emit ? 8 : 0)));
+    }
+
+    @Override
+    public void readState(ByteBuffer buffer) {
+        input.set(buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+        output.set(buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+        byte flags = buffer.get();
+        sw = (flags & 1) != 0;
+        inverted = (flags & 2) != 0;
+        changed = (flags & 4) != 0;
+        emit = (flags & 8) != 0;
+        setActiveTexture((inverted ? 2 : 0) + (sw ? 1 : 0));
+    }
 }
@@ -19,4 +19,12 @@ public class Mirror extends Component implements BeamInstantManipulator {
             case UP -> instantOutput.emit(Direction.LEFT, red, green, blue);
         }
     }
+
+    @Override
+    public void incomingBeam(Direction direction, int color, BeamEmitter instantOutput) {
+        switch (direction) {
+            case RIGHT -> instantOutput.emit(Direction.DOWN, color);
+            case UP -> instantOutput.emit(Direction.LEFT, color);
+        }
+    }
 }
@@ -2,6 +2,7 @@ package xyz.chromabeam.demo.components.basic;
 
 import org.joml.Vector3f;
 import xyz.chromabeam.beam.Direction;
+import xyz.chromabeam.beam.PackedColor;
 import xyz.chromabeam.component.Component;
 import xyz.chromabeam.component.BeamInstantManipulator;
 import xyz.chromabeam.component.Tickable;
@@ -10,6 +11,7 @@ import xyz.chromabeam.world.BeamEmitter;
 
 public class Splitter extends Component implements BeamInstantManipulator, Tickable {
     private final Vector3f[] cache = new Vector3f[] {new Vector3f(), new Vector3f(), new Vector3f(), new Vector3f()};
+    private final int[] packedCache = new int[4];
     private static final Direction[] reflectionMap = new Direction[4];
     static {
         reflectionMap[Direction.RIGHT.ordinal()] = Direction.UP;
@@ -30,6 +32,7 @@ public class Splitter extends Component implements BeamInstantManipulator, Ticka
         var o = (Splitter) other;
         for (int i = 0; i < 4; i++) {
             o.cache[i].set(cache[i]);
+            o.packedCache[i] = packedCache[i];
         }
     }
 
@@ -43,10 +46,22 @@ public class Splitter extends Component implements BeamInstantManipulator, Ticka
         }
     }
 
+    @Override
+    public void incomingBeam(Direction direction, int color, BeamEmitter instantOutput) {
+        int c = packedCache[direction.ordinal()];
+        int max = PackedColor.max(color, c);
+        if (max != c) {
+            packedCache[direction.ordinal()] = max;
+            instantOutput.emit(direction, max);
+            instantOutput.emit(reflectionMap[direction.ordinal()], max);
+        }
+    }
+
     @Override
     public void tick() {
         for (int i = 0; i < 4; i++) {
             cache[i].set(0);
+            packedCache[i] = PackedColor.BLACK;
         }
     }
 }
@@ -0,0 +1,320 @@
+package xyz.chromabeam.engine.beam;
+
+import xyz.chromabeam.beam.Direction;
+import xyz.chromabeam.beam.PackedColor;
+
+import java.util.Arrays;
+
+/**
+ * Structure-of-arrays storage of the beams leaving every cell of a {@link xyz.chromabeam.util.storage.BeamMap}.
+ * Instead of a Beam[4] and 4 {@link Beam} objects per cell, every cell gets a slot index, and its 4 outgoing beams are
+ * rows in a handful of primitive arrays. A beam is referenced by its id, which is (cell slot << 2) | direction ordinal,
+ * and the accessors below act as a flyweight over that id.
+ *
+ * The source of a beam is always its cell, and a beam only ever moves along its own axis, so only the target
+ * coordinate along the axis is stored, along with the slot of the target cell. The latter makes the beam graph walkable
+ * without any position lookups. This brings a cell down to ~90 bytes of arrays, without any per-beam objects.
+ *
+ * Colors are either stored as 3 floats, or {@link PackedColor packed} into a single int, which saves another 32 bytes
+ * per cell at the cost of 10 bits of precision per channel.
+ */
+public class BeamStore {
+    public static final int NONE = -1;
+
+    private static final int INITIAL_CELLS = 256;
+
+    private static final byte FLAG_INFINITE = 1;
+    private static final byte FLAG_MARKED = 2;
+
+    private int[] cellX = new int[INITIAL_CELLS];
+    private int[] cellY = new int[INITIAL_CELLS];
+    private Integer[] boxes = new Integer[INITIAL_CELLS];
+
+    private int[] target = new int[INITIAL_CELLS * 4];
+    private int[] targetCell = new int[INITIAL_CELLS * 4];
+    private final boolean packed;
+    private float[] red;
+    private float[] green;
+    private float[] blue;
+    private int[] colors;
+    private byte[] flags = new byte[INITIAL_CELLS * 4];
+    private int[] visits = new int[INITIAL_CELLS * 4];
+
+    private int[] freeCells = new int[INITIAL_CELLS];
+    private int freeCount = 0;
+    private int cellCount = 0;
+
+    public BeamStore() {
+        this(false);
+    }
+
+    /**
+     * @param packed True to store the colors packed into ints
+     */
+    public BeamStore(boolean packed) {
+        this.packed = packed;
+        if (packed) {
+            colors = new int[INITIAL_CELLS * 4];
+        } else {
+            red = new float[INITIAL_CELLS * 4];
+            green = new float[INITIAL_CELLS * 4];
+            blue = new float[INITIAL_CELLS * 4];
+        }
+    }
+
+    public boolean isPacked() {
+        return packed;
+    }
+
+    public static int beam(int cell, int direction) {
+        return (cell << 2) | direction;
+    }
+
+    public static int beam(int cell, Direction direction) {
+        return (cell << 2) | direction.ordinal();
+    }
+
+    public static int cellOf(int beam) {
+        return beam >>> 2;
+    }
+
+    public static Direction direction(int beam) {
+        return Direction.fromOrdinal(beam & 3);
+    }
+
+    private static boolean horizontal(int beam) {
+        return (beam & 1) == 0;
+    }
+
+    /**
+     * Allocates a cell slot at the specified position. Its beams start out infinite and black.
+     */
+    public int allocate(int x, int y) {
+        int cell;
+        if (freeCount > 0) {
+            cell = freeCells[--freeCount];
+        } else {
+            cell = cellCount++;
+            if (cell == cellX.length) grow(cell + 1);
+        }
+        cellX[cell] = x;
+        cellY[cell] = y;
+        for (int i = 0; i < 4; i++) {
+            int beam = beam(cell, i);
+            setInfinite(beam);
+            setColor(beam, PackedColor.BLACK);
+            flags[beam] = FLAG_INFINITE;
+        }
+        return cell;
+    }
+
+    /**
+     * Returns the cell slot to the store. Beam ids of the cell must not be used after this.
+     */
+    public void free(int cell) {
+        if (freeCount == freeCells.length) freeCells = Arrays.copyOf(freeCells, freeCount + (freeCount >>> 1));
+        freeCells[freeCount++] = cell;
+    }
+
+    /**
+     * Frees every cell slot at once.
+     */
+    public void clear() {
+        cellCount = 0;
+        freeCount = 0;
+    }
+
+    /**
+     * @return A cached boxed version of the cell slot, for storing in object containers without allocating.
+     */
+    public Integer box(int cell) {
+        var box = boxes[cell];
+        return box == null ? boxes[cell] = cell : box;
+    }
+
+    /**
+     * @return The amount of cells currently allocated.
+     */
+    public int size() {
+        return cellCount - freeCount;
+    }
+
+    /**
+     * Makes room for allocating the specified amount of cells, so a bulk allocation grows the arrays once instead of in steps.
+     */
+    public void reserve(int cells) {
+        int needed = cellCount + Math.max(0, cells - freeCount);
+        if (needed > cellX.length) grow(needed);
+    }
+
+    /**
+     * @return The amount of cell slots that fit without growing.
+     */
+    public int capacity() {
+        return cellX.length;
+    }
+
+    private void grow(int needed) {
+        int cells = Math.max(needed, cellX.length + (cellX.length >>> 1));
+        cellX = Arrays.copyOf(cellX, cells);
+        cellY = Arrays.copyOf(cellY, cells);
+        boxes = Arrays.copyOf(boxes, cells);
+        target = Arrays.copyOf(target, cells * 4);
+        targetCell = Arrays.copyOf(targetCell, cells * 4);
+        if (packed) {
+            colors = Arrays.copyOf(colors, cells * 4);
+        } else {
+            red = Arrays.copyOf(red, cells * 4);
+            green = Arrays.copyOf(green, cells * 4);
+            blue = Arrays.copyOf(blue, cells * 4);
+        }
+        flags = Arrays.copyOf(flags, cells * 4);
+        visits = Arrays.copyOf(visits, cells * 4);
+    }
+
+    public int cellX(int cell) {
+        return cellX[cell];
+    }
+
+    public int cellY(int cell) {
+        return cellY[cell];
+    }
+
+    public int sourceX(int beam) {
+        return cellX[beam >>> 2];
+    }
+
+    public int sourceY(int beam) {
+        return cellY[beam >>> 2];
+    }
+
+    /**
+     * @return The horizontal coordinate of the cell hit by the beam. For infinite beams, {@link Integer#MAX_VALUE} when
+     * pointing right, {@link Integer#MIN_VALUE} when pointing left.
+     */
+    public int x(int beam) {
+        return horizontal(beam) ? target[beam] : cellX[beam >>> 2];
+    }
+
+    /**
+     * @return The vertical coordinate of the cell hit by the beam. For infinite beams, {@link Integer#MAX_VALUE} when
+     * pointing down, {@link Integer#MIN_VALUE} when pointing up.
+     */
+    public int y(int beam) {
+        return horizontal(beam) ? cellY[beam >>> 2] : target[beam];
+    }
+
+    /**
+     * @return The slot of the cell hit by the beam, or {@link #NONE} for infinite beams.
+     */
+    public int targetCell(int beam) {
+        return targetCell[beam];
+    }
+
+    public boolean infinite(int beam) {
+        return (flags[beam] & FLAG_INFINITE) != 0;
+    }
+
+    public float red(int beam) {
+        return packed ? PackedColor.red(colors[beam]) : red[beam];
+    }
+
+    public float green(int beam) {
+        return packed ? PackedColor.green(colors[beam]) : green[beam];
+    }
+
+    public float blue(int beam) {
+        return packed ? PackedColor.blue(colors[beam]) : blue[beam];
+    }
+
+    /**
+     * @return The {@link PackedColor packed} color of the beam, packed on the fly if the store uses floats.
+     */
+    public int color(int beam) {
+        return packed ? colors[beam] : PackedColor.pack(red[beam], green[beam], blue[beam]);
+    }
+
+    public void setColor(int beam, float red, float green, float blue) {
+        if (packed) {
+            colors[beam] = PackedColor.pack(red, green, blue);
+        } else {
+            this.red[beam] = red;
+            this.green[beam] = green;
+            this.blue[beam] = blue;
+        }
+    }
+
+    public void setColor(int beam, int color) {
+        if (packed) {
+            colors[beam] = color;
+        } else {
+            red[beam] = PackedColor.red(color);
+            green[beam] = PackedColor.green(color);
+            blue[beam] = PackedColor.blue(color);
+        }
+    }
+
+    /**
+     * Points the beam at the specified cell. The cell must lie on the axis of the beam.
+     */
+    public void setTarget(int beam, int cell) {
+        target[beam] = horizontal(beam) ? cellX[cell] : cellY[cell];
+        targetCell[beam] = cell;
+        flags[beam] &= ~FLAG_INFINITE;
+    }
+
+    /**
+     * Points the beam to infinity in its direction.
+     */
+    public void setInfinite(int beam) {
+        target[beam] = switch (beam & 3) {
+            case 0, 1 -> Integer.MAX_VALUE;
+            default -> Integer.MIN_VALUE;
+        };
+        targetCell[beam] = NONE;
+        flags[beam] |= FLAG_INFINITE;
+    }
+
+    /**
+     * A general purpose marker bit for the users of the store, for example to avoid queueing a beam twice.
+     * @return True if the beam wasn't marked before.
+     */
+    public boolean mark(int beam) {
+        var old = flags[beam];
+        flags[beam] = (byte) (old | FLAG_MARKED);
+        return (old & FLAG_MARKED) == 0;
+    }
+
+    public void unmark(int beam) {
+        flags[beam] &= ~FLAG_MARKED;
+    }
+
+    /**
+     * A general purpose visit counter for the users of the store, for example to find beams that go around in circles.
+     * @return The amount of visits including this one since the last {@link #clearVisits(int)}.
+     */
+    public int visit(int beam) {
+        return ++visits[beam];
+    }
+
+    public void clearVisits(int beam) {
+        visits[beam] = 0;
+    }
+
+    /**
+     * Copies the beam into a detached {@link Beam} object.
+     * @return The passed in buffer for chaining.
+     */
+    public Beam copyTo(int beam, Beam buffer) {
+        buffer.sourceX = sourceX(beam);
+        buffer.sourceY = sourceY(beam);
+        buffer.x = x(beam);
+        buffer.y = y(beam);
+        buffer.direction = direction(beam);
+        buffer.red = red(beam);
+        buffer.green = green(beam);
+        buffer.blue = blue(beam);
+        buffer.infinite = infinite(beam);
+        return buffer;
+    }
+}
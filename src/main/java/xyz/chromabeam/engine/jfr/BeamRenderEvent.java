@@ -0,0 +1,31 @@
+package xyz.chromabeam.engine.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Drawing the beams of a frame.
+ */
+@Name("xyz.chromabeam.BeamRender")
+@Label("Beam Render")
+@Category({"ChromaBeam", "Rendering"})
+@Description("The beams of a frame drawn")
+@Enabled(false)
+@StackTrace(false)
+public class BeamRenderEvent extends Event {
+    @Label("Beam Cells")
+    @Description("The amount of cells with beams known to the renderer")
+    public long cells;
+
+    @Label("Drawn Beams")
+    @Description("The amount of beams inside the view, and not black")
+    public int drawn;
+
+    @Label("Draw Calls")
+    public int drawCalls;
+}
@@ -0,0 +1,37 @@
+package xyz.chromabeam.engine.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Placing, removing or clearing many components at once.
+ */
+@Name("xyz.chromabeam.BulkEdit")
+@Label("Bulk Edit")
+@Category({"ChromaBeam", "Simulation"})
+@Description("Many components placed or removed at once")
+@Enabled(false)
+public class BulkEditEvent extends Event {
+    @Label("Operation")
+    public String operation;
+
+    @Label("X")
+    public int x;
+
+    @Label("Y")
+    public int y;
+
+    @Label("Width")
+    public int width;
+
+    @Label("Height")
+    public int height;
+
+    @Label("Components")
+    @Description("The amount of components placed or removed")
+    public long components;
+}
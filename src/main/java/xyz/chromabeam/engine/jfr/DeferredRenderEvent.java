@@ -0,0 +1,26 @@
+package xyz.chromabeam.engine.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Rendering into the back buffer and blurring it onto the screen, including the wrapped renderer.
+ */
+@Name("xyz.chromabeam.DeferredRender")
+@Label("Deferred Render")
+@Category({"ChromaBeam", "Rendering"})
+@Description("Rendering and blurring a frame")
+@Enabled(false)
+@StackTrace(false)
+public class DeferredRenderEvent extends Event {
+    @Label("Width")
+    public int width;
+
+    @Label("Height")
+    public int height;
+}
@@ -0,0 +1,29 @@
+package xyz.chromabeam.engine.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A whole world update.
+ */
+@Name("xyz.chromabeam.Tick")
+@Label("Tick")
+@Category({"ChromaBeam", "Simulation"})
+@Description("A world update")
+@Enabled(false)
+@StackTrace(false)
+public class TickEvent extends Event {
+    @Label("Tick")
+    public long tick;
+
+    @Label("Parallel")
+    public boolean parallel;
+
+    @Label("Components")
+    public long components;
+}
@@ -0,0 +1,31 @@
+package xyz.chromabeam.engine.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One phase of a world update, on one lane. When ticking in parallel, every island commits its own phases, on the
+ * thread that ran it.
+ */
+@Name("xyz.chromabeam.TickPhase")
+@Label("Tick Phase")
+@Category({"ChromaBeam", "Simulation"})
+@Description("A phase of a world update")
+@Enabled(false)
+@StackTrace(false)
+public class TickPhaseEvent extends Event {
+    @Label("Tick")
+    public long tick;
+
+    @Label("Phase")
+    public String phase;
+
+    @Label("Count")
+    @Description("The amount of producers, beams, consumers or tickables handled in the phase")
+    public int count;
+}
@@ -0,0 +1,28 @@
+package xyz.chromabeam.engine.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Copying the vertex data of a vertex array to the GPU.
+ */
+@Name("xyz.chromabeam.VertexUpload")
+@Label("Vertex Upload")
+@Category({"ChromaBeam", "Rendering"})
+@Description("Vertex data copied to the GPU")
+@Enabled(false)
+@StackTrace(false)
+public class VertexUploadEvent extends Event {
+    @Label("Vertices")
+    public int vertices;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+}
@@ -33,6 +33,7 @@ public class Camera {
 
     public void setPosition(Vector2fc position) {
         pos.set(position);
+        dirty = true;
     }
 
     public Vector2fc getPosition() {
@@ -41,6 +42,7 @@ public class Camera {
 
     public void setZoom(float zoom) {
         this.zoom = zoom;
+        dirty = true;
     }
 
     public float getZoom() {
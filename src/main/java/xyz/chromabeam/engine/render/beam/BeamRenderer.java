@@ -2,15 +2,17 @@ package xyz.chromabeam.engine.render.beam;
 
 import xyz.chromabeam.beam.Direction;
 import xyz.chromabeam.engine.beam.Beam;
+import xyz.chromabeam.engine.jfr.BeamRenderEvent;
 import xyz.chromabeam.engine.render.world.WorldRenderer;
 import xyz.chromabeam.engine.render.buffer.VertexArray;
 import org.lwjgl.opengl.GL33C;
 import org.lwjgl.system.MemoryUtil;
 import xyz.chromabeam.util.Cache;
 import xyz.chromabeam.util.storage.Container2D;
-import xyz.chromabeam.util.storage.NativeContainer2D;
+import xyz.chromabeam.util.storage.Container2DFactory;
 
 import java.nio.FloatBuffer;
+import java.util.function.Supplier;
 
 
 public class BeamRenderer extends WorldRenderer implements BeamDrawer{
@@ -22,9 +24,11 @@ public class BeamRenderer extends WorldRenderer implements BeamDrawer{
     private final int beamsPerDraw;
     private int capacity;
     private int beams = 0;
-    private final Container2D<Beam[]> scheduledBeams = new NativeContainer2D<>(Beam[][]::new, Beam[][][]::new, Beam[][][][]::new);
+    private final Container2D<Beam[]> scheduledBeams;
     private final Cache<Beam> scheduledBeamCache = new Cache<>(Beam::new, Beam[]::new);
     private final Cache<Beam[]> groupCache = new Cache<>(() -> new Beam[4], Beam[][]::new);
+    //Bound method references allocate on every evaluation, so this one is only created once.
+    private final Supplier<Beam[]> groupSupplier = groupCache::getOrCreate;
 
     private FloatBuffer growableBuffer;
     public BeamRenderer() {
@@ -32,7 +36,12 @@ public class BeamRenderer extends WorldRenderer implements BeamDrawer{
     }
 
     public BeamRenderer(int beamsPerDrawCall) {
+        this(beamsPerDrawCall, Container2DFactory.NATIVE);
+    }
+
+    public BeamRenderer(int beamsPerDrawCall, Container2DFactory containerFactory) {
         super("beam", "color4");
+        scheduledBeams = containerFactory.create(Beam[][]::new, Beam[][][]::new, Beam[][][][]::new);
         this.capacity = this.beamsPerDraw = beamsPerDrawCall;
         vb = new VertexArray(VertexArray.DrawMethod.LINES, beamsPerDrawCall * VERTICES_PER_BEAM, 2, 3);
         growableBuffer = MemoryUtil.memCallocFloat(beamsPerDrawCall * FLOATS_PER_BEAM);
@@ -45,7 +54,7 @@ public class BeamRenderer extends WorldRenderer implements BeamDrawer{
     }
 
     public void drawBeam(Beam beam) {
-        var cell = scheduledBeams.getOrCompute(beam.sourceX, beam.sourceY, groupCache::getOrCreate);
+        var cell = scheduledBeams.getOrCompute(beam.sourceX, beam.sourceY, groupSupplier);
         int i = beam.direction.ordinal();
         if (cell[i] == null) {
             cell[i] = beam.copyTo(scheduledBeamCache.getOrCreate());
@@ -77,8 +86,8 @@ public class BeamRenderer extends WorldRenderer implements BeamDrawer{
                 }
                 cell[i] = null;
             }
+            groupCache.put(cell);
         }
-        groupCache.put(cell);
     }
 
 
@@ -89,6 +98,8 @@ public class BeamRenderer extends WorldRenderer implements BeamDrawer{
     private int camLastUpdated = -1;
     @Override
     protected void renderContent() {
+        var event = new BeamRenderEvent();
+        event.begin();
         if (camera.lastUpdated() != camLastUpdated) {
             camTop = camera.top() - 0.5f;
             camBottom = camera.bottom() - 0.5f;
@@ -125,6 +136,7 @@ public class BeamRenderer extends WorldRenderer implements BeamDrawer{
         growableBuffer.flip();
         GL33C.glLineWidth(2);
         int beamsDrawn = 0;
+        int drawCalls = 0;
         vb.bind();
         while (beams > 0) {
             var buf = vb.getVertexBuffer();
@@ -146,9 +158,17 @@ public class BeamRenderer extends WorldRenderer implements BeamDrawer{
             vb.draw();
             beams -= inCurrentDraw;
             beamsDrawn += inCurrentDraw;
+            drawCalls++;
         }
         vb.unbind();
         clear();
+        event.end();
+        if (event.shouldCommit()) {
+            event.cells = scheduledBeams.getElementCount();
+            event.drawn = beamsDrawn;
+            event.drawCalls = drawCalls;
+            event.commit();
+        }
     }
 
     @Override
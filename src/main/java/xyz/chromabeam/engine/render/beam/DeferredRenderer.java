@@ -1,6 +1,7 @@
 package xyz.chromabeam.engine.render.beam;
 
 import org.joml.Vector4f;
+import xyz.chromabeam.engine.jfr.DeferredRenderEvent;
 import xyz.chromabeam.engine.render.Camera;
 import xyz.chromabeam.engine.render.buffer.FrameBuffer;
 import xyz.chromabeam.engine.render.Shader;
@@ -22,6 +23,8 @@ public class DeferredRenderer extends Renderer implements Destroyable, WindowRes
     private final FrameBuffer tempBuffer;
     private final WorldRenderer subRenderer;
     private final int horizontalBlurUniform;
+    private int width;
+    private int height;
 
     private final Vector4f clearColor = new Vector4f(0,0,0,1);
     public DeferredRenderer(int width, int height, WorldRenderer subRenderer, String deferredVertexShader, String deferredFragmentShader) {
@@ -43,6 +46,8 @@ public class DeferredRenderer extends Renderer implements Destroyable, WindowRes
         screenQuad.unbind();
         backBuffer = new FrameBuffer(width, height);
         tempBuffer = new FrameBuffer(width, height);
+        this.width = width;
+        this.height = height;
     }
 
     @Override
@@ -55,6 +60,8 @@ public class DeferredRenderer extends Renderer implements Destroyable, WindowRes
     }
 
     public void render() {
+        var event = new DeferredRenderEvent();
+        event.begin();
         backBuffer.bind();
         Renderer.clear(clearColor.x, clearColor.y, clearColor.z, clearColor.w);
         subRenderer.render();
@@ -76,6 +83,12 @@ public class DeferredRenderer extends Renderer implements Destroyable, WindowRes
         tempBuffer.getTexture().unbind();
         screenQuad.unbind();
         shader.unbind();
+        event.end();
+        if (event.shouldCommit()) {
+            event.width = width;
+            event.height = height;
+            event.commit();
+        }
     }
 
     @Override
@@ -90,5 +103,7 @@ public class DeferredRenderer extends Renderer implements Destroyable, WindowRes
     public void windowResize(int width, int height) {
         backBuffer.windowResize(width, height);
         tempBuffer.windowResize(width, height);
+        this.width = width;
+        this.height = height;
     }
 }
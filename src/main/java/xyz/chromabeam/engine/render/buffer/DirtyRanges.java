@@ -0,0 +1,117 @@
+package xyz.chromabeam.engine.render.buffer;
+
+/**
+ * The modified parts of a buffer, as a sorted list of disjoint, half-open byte ranges. Ranges that touch, or are closer
+ * to each other than the merge gap, are merged, because a separate upload call costs more than re-sending a few
+ * unchanged bytes. Once there are more ranges than the limit, the two closest ones are merged, so the amount of upload
+ * calls per sync is bounded no matter how scattered the writes are.
+ *
+ * Doesn't allocate after construction, and doesn't touch OpenGL.
+ */
+public class DirtyRanges {
+    public static final int DEFAULT_MERGE_GAP = 1024;
+    public static final int DEFAULT_MAX_RANGES = 32;
+
+    private final int mergeGap;
+    private final int maxRanges;
+    private final int[] starts;
+    private final int[] ends;
+    private int count = 0;
+
+    public DirtyRanges() {
+        this(DEFAULT_MERGE_GAP, DEFAULT_MAX_RANGES);
+    }
+
+    /**
+     * @param mergeGap Ranges at most this many bytes apart are merged into one
+     * @param maxRanges The most ranges kept at once
+     */
+    public DirtyRanges(int mergeGap, int maxRanges) {
+        if (mergeGap < 0 || maxRanges < 1) throw new IllegalArgumentException("Invalid dirty range limits!");
+        this.mergeGap = mergeGap;
+        this.maxRanges = maxRanges;
+        //One extra slot for the range that gets merged away right after inserting it
+        starts = new int[maxRanges + 1];
+        ends = new int[maxRanges + 1];
+    }
+
+    /**
+     * Marks the bytes from start (inclusive) to end (exclusive) as modified.
+     */
+    public void mark(int start, int end) {
+        if (start < 0 || end < start) throw new IllegalArgumentException("Invalid range: " + start + " - " + end);
+        if (start == end) return;
+        //The first range that the new one could merge with, and the first one after it that it can't
+        int first = 0;
+        while (first < count && ends[first] + mergeGap < start) first++;
+        int last = first;
+        while (last < count && starts[last] <= end + mergeGap) last++;
+        if (first == last) {
+            System.arraycopy(starts, first, starts, first + 1, count - first);
+            System.arraycopy(ends, first, ends, first + 1, count - first);
+            starts[first] = start;
+            ends[first] = end;
+            count++;
+            if (count > maxRanges) mergeClosest();
+        } else {
+            starts[first] = Math.min(start, starts[first]);
+            ends[first] = Math.max(end, ends[last - 1]);
+            remove(first + 1, last - first - 1);
+        }
+    }
+
+    /**
+     * Marks the first size bytes as modified, replacing every other range.
+     */
+    public void markAll(int size) {
+        count = 0;
+        mark(0, size);
+    }
+
+    private void mergeClosest() {
+        int closest = 0;
+        for (int i = 1; i < count - 1; i++) {
+            if (starts[i + 1] - ends[i] < starts[closest + 1] - ends[closest]) closest = i;
+        }
+        ends[closest] = ends[closest + 1];
+        remove(closest + 1, 1);
+    }
+
+    private void remove(int index, int amount) {
+        if (amount == 0) return;
+        System.arraycopy(starts, index + amount, starts, index, count - index - amount);
+        System.arraycopy(ends, index + amount, ends, index, count - index - amount);
+        count -= amount;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int start(int i) {
+        return starts[i];
+    }
+
+    public int end(int i) {
+        return ends[i];
+    }
+
+    /**
+     * @return The amount of bytes an upload of every range would send.
+     */
+    public long bytes() {
+        long bytes = 0;
+        for (int i = 0; i < count; i++) {
+            bytes += ends[i] - starts[i];
+        }
+        return bytes;
+    }
+
+    public void clear() {
+        count = 0;
+    }
+}
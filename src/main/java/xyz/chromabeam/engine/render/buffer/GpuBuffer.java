@@ -16,12 +16,15 @@ public class GpuBuffer implements Bindable, Destroyable {
 
     private final ByteBuffer buffer;
     private final long pBuffer;
+    private final int size;
+    private final DirtyRanges dirty = new DirtyRanges();
 
     public GpuBuffer(int size, int target) {
         this.target = target;
         pointer = BindManager.genBuffers(target);
         bind();
         glBufferData(target, size, GL_DYNAMIC_DRAW);
+        this.size = size;
         buffer = MemoryUtil.memAlloc(size);
         pBuffer = MemoryUtil.memAddress(buffer);
     }
@@ -34,12 +37,44 @@ public class GpuBuffer implements Bindable, Destroyable {
         return pBuffer;
     }
 
+    /**
+     * Marks a part of the write buffer as modified, so that the next {@link #sync()} uploads it.
+     */
+    public void markDirty(int offset, int length) {
+        dirty.mark(offset, offset + length);
+    }
+
+    /**
+     * Marks the whole write buffer as modified.
+     */
+    public void markAllDirty() {
+        dirty.markAll(size);
+    }
+
+    public boolean isDirty() {
+        return !dirty.isEmpty();
+    }
+
+    /**
+     * @return The amount of bytes the next {@link #sync()} uploads.
+     */
+    public long getDirtyBytes() {
+        return dirty.bytes();
+    }
+
+    /**
+     * Uploads the modified parts of the write buffer, one call per merged dirty range.
+     */
     public void sync() {
         if (Global.DEBUG) {
             int bound = BindManager.DEBUG_boundBuffer(target);
             if (bound != pointer) throw new IllegalStateException("Tried to sync buffer while it wasn't bound!");
         }
-        glBufferSubData(target, 0, buffer);
+        for (int i = 0; i < dirty.size(); i++) {
+            int start = dirty.start(i);
+            nglBufferSubData(target, start, dirty.end(i) - start, pBuffer + start);
+        }
+        dirty.clear();
     }
 
     @Override
@@ -9,29 +9,53 @@ import static org.lwjgl.opengl.GL15C.GL_ELEMENT_ARRAY_BUFFER;
 
 public class IndexedVertexArray extends VertexArray {
     private final GpuBuffer ebo;
-    private boolean eboChanged = false;
+    /**
+     * The amount of quads of the shared index buffer, or 0 if the index buffer is owned by this vertex array.
+     */
+    private final int sharedQuads;
     public final int elements;
 
     public IndexedVertexArray(DrawMethod drawMethod, int vertices, int elements, int... attributes) {
         super(drawMethod, vertices, attributes);
         this.elements = elements;
         ebo = new GpuBuffer(elements * 4, GL_ELEMENT_ARRAY_BUFFER);
+        sharedQuads = 0;
+    }
+
+    private IndexedVertexArray(int quads, int... attributes) {
+        super(DrawMethod.TRIANGLES, quads * QuadIndexBufferPool.VERTICES_PER_QUAD, attributes);
+        this.elements = quads * QuadIndexBufferPool.INDICES_PER_QUAD;
+        ebo = QuadIndexBufferPool.acquire(quads);
+        sharedQuads = quads;
+    }
+
+    /**
+     * Creates a vertex array of consecutive quads, with the index buffer shared with every other quad array of the same
+     * size, see {@link QuadIndexBufferPool}. The index buffer is ready to use and can't be written to.
+     */
+    public static IndexedVertexArray quads(int quads, int... attributes) {
+        return new IndexedVertexArray(quads, attributes);
     }
 
     public IntBuffer getElementArrayBuffer() {
-        eboChanged = true;
+        checkOwnIndices();
+        ebo.markAllDirty();
         return ebo.getWriteBuffer().asIntBuffer();
     }
 
     public long getElementArrayBufferPointer() {
-        eboChanged = true;
+        checkOwnIndices();
+        ebo.markAllDirty();
         return ebo.getWriteBufferPointer();
     }
 
+    private void checkOwnIndices() {
+        if (sharedQuads != 0) throw new IllegalStateException("Tried to modify a shared quad index buffer!");
+    }
+
     private void syncEBO() {
-        if (eboChanged) {
+        if (ebo.isDirty()) {
             ebo.sync();
-            eboChanged = false;
         }
     }
 
@@ -41,6 +65,14 @@ public class IndexedVertexArray extends VertexArray {
         syncEBO();
     }
 
+    /**
+     * Draws only the first elements of the element array.
+     */
+    public void draw(int elements) {
+        verifyDrawable();
+        GL11C.glDrawElements(drawMethod, elements, GL_UNSIGNED_INT, 0);
+    }
+
     @Override
     protected void drawImpl() {
         GL11C.glDrawElements(drawMethod, elements, GL_UNSIGNED_INT, 0);
@@ -49,6 +81,10 @@ public class IndexedVertexArray extends VertexArray {
     @Override
     public void destroy() {
         super.destroy();
-        ebo.destroy();
+        if (sharedQuads != 0) {
+            QuadIndexBufferPool.release(sharedQuads);
+        } else {
+            ebo.destroy();
+        }
     }
 }
@@ -0,0 +1,84 @@
+package xyz.chromabeam.engine.render.buffer;
+
+import java.nio.IntBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL15C.GL_ELEMENT_ARRAY_BUFFER;
+
+/**
+ * Element buffers that draw consecutive quads of 4 vertices as 2 triangles each, shared by every vertex array with the
+ * same amount of quads. The indices never change, so there's no reason for every chunk layer to build and upload its
+ * own copy. Buffers are reference counted, and deleted when the last vertex array using them is destroyed.
+ *
+ * Must only be used on the thread that owns the GL context.
+ */
+public final class QuadIndexBufferPool {
+    public static final int VERTICES_PER_QUAD = 4;
+    public static final int INDICES_PER_QUAD = 6;
+
+    private static final class Entry {
+        final GpuBuffer buffer;
+        int references = 0;
+
+        Entry(GpuBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+
+    private static final Map<Integer, Entry> buffers = new HashMap<>();
+
+    private QuadIndexBufferPool() {
+    }
+
+    /**
+     * Writes the indices of the quads, starting at the current position of the buffer.
+     */
+    public static void putQuadIndices(IntBuffer buffer, int quads) {
+        for (int i = 0; i < quads; i++) {
+            int vertex = i * VERTICES_PER_QUAD;
+            buffer.put(vertex).put(vertex + 1).put(vertex + 2).put(vertex).put(vertex + 2).put(vertex + 3);
+        }
+    }
+
+    /**
+     * Binds the shared index buffer for the amount of quads to the currently bound vertex array, creating and uploading
+     * it if nothing uses it yet. Every acquire must be paired with a {@link #release(int)}.
+     */
+    public static GpuBuffer acquire(int quads) {
+        var entry = buffers.get(quads);
+        if (entry == null) {
+            var buffer = new GpuBuffer(quads * INDICES_PER_QUAD * 4, GL_ELEMENT_ARRAY_BUFFER);
+            putQuadIndices(buffer.getWriteBuffer().asIntBuffer(), quads);
+            buffer.markAllDirty();
+            buffer.sync();
+            entry = new Entry(buffer);
+            buffers.put(quads, entry);
+        } else {
+            entry.buffer.bind();
+        }
+        entry.references++;
+        return entry.buffer;
+    }
+
+    /**
+     * Deletes the index buffer for the amount of quads if this was its last user. The vertex arrays it was bound to must
+     * already be deleted.
+     */
+    public static void release(int quads) {
+        var entry = buffers.get(quads);
+        if (entry == null) throw new IllegalStateException("Released a quad index buffer that wasn't acquired!");
+        if (--entry.references == 0) {
+            buffers.remove(quads);
+            entry.buffer.destroy();
+        }
+    }
+
+    /**
+     * @return The amount of vertex arrays using the index buffer for the amount of quads.
+     */
+    public static int getReferences(int quads) {
+        var entry = buffers.get(quads);
+        return entry == null ? 0 : entry.references;
+    }
+}
@@ -4,6 +4,7 @@ import org.lwjgl.opengl.GL11C;
 import xyz.chromabeam.Global;
 import xyz.chromabeam.engine.bind.BindManager;
 import xyz.chromabeam.engine.Bindable;
+import xyz.chromabeam.engine.jfr.VertexUploadEvent;
 import xyz.chromabeam.util.Destroyable;
 
 import java.nio.FloatBuffer;
@@ -15,7 +16,6 @@ public class VertexArray implements Bindable, Destroyable {
 
     private final int pointer;
     private final GpuBuffer vbo;
-    private boolean vboChanged = false;
 
     public final int drawMethod;
     public final int floatsPerVertex;
@@ -59,22 +59,44 @@ public class VertexArray implements Bindable, Destroyable {
         vbo.unbind();
     }
 
+    /**
+     * Marks the whole buffer as modified, use {@link #getVertexBuffer(int, int)} when only a part of it changes.
+     */
     public FloatBuffer getVertexBuffer() {
-        vboChanged = true;
+        vbo.markAllDirty();
+        return vbo.getWriteBuffer().asFloatBuffer();
+    }
+
+    /**
+     * Only the specified floats are uploaded on the next sync, unless other parts are marked too. Writing outside of
+     * them leaves the GPU copy stale until they are marked.
+     * @param offset The first float that will be modified
+     * @param length The amount of floats that will be modified
+     */
+    public FloatBuffer getVertexBuffer(int offset, int length) {
+        vbo.markDirty(offset * 4, length * 4);
         return vbo.getWriteBuffer().asFloatBuffer();
     }
 
     public long getVertexBufferPointer() {
-        vboChanged = true;
+        vbo.markAllDirty();
         return vbo.getWriteBufferPointer();
     }
 
     private void syncVBO() {
-        if (vboChanged) {
+        if (vbo.isDirty()) {
+            var event = new VertexUploadEvent();
+            event.begin();
+            long bytes = vbo.getDirtyBytes();
             vbo.bind();
             vbo.sync();
             vbo.unbind();
-            vboChanged = false;
+            event.end();
+            if (event.shouldCommit()) {
+                event.vertices = (int) (bytes / (floatsPerVertex * 4L));
+                event.bytes = bytes;
+                event.commit();
+            }
         }
     }
 
@@ -87,11 +109,15 @@ public class VertexArray implements Bindable, Destroyable {
     }
 
     public void draw() {
+        verifyDrawable();
+        drawImpl();
+    }
+
+    protected void verifyDrawable() {
         if (Global.DEBUG) {
             int bound = BindManager.DEBUG_boundVAO();
             if (bound != pointer) throw new IllegalStateException("Tried to draw vertex buffer while a different one was bound!");
         }
-        drawImpl();
     }
 
     protected void drawImpl() {
@@ -0,0 +1,67 @@
+package xyz.chromabeam.engine.render.chunk;
+
+import java.util.Arrays;
+
+/**
+ * Maps the occupied cells of a chunk layer to consecutive slots starting at 0, so that their draw data can be kept at
+ * the front of a buffer and a draw only has to cover the occupied cells. Removing a cell moves the last slot into the
+ * freed one, the owner has to move the data along.
+ */
+final class CellSlots {
+    /**
+     * The slot of each cell, or -1 if the cell is empty.
+     */
+    private final int[] slots;
+    /**
+     * The cell of each slot.
+     */
+    private final int[] cells;
+    private int size = 0;
+
+    CellSlots(int cellCount) {
+        slots = new int[cellCount];
+        Arrays.fill(slots, -1);
+        cells = new int[cellCount];
+    }
+
+    /**
+     * @return The slot of the cell, or -1 if it's empty.
+     */
+    int get(int cell) {
+        return slots[cell];
+    }
+
+    /**
+     * @return The slot of the cell, the next free one if it was empty.
+     */
+    int getOrAdd(int cell) {
+        int slot = slots[cell];
+        if (slot < 0) {
+            slot = size++;
+            slots[cell] = slot;
+            cells[slot] = cell;
+        }
+        return slot;
+    }
+
+    /**
+     * @return The slot the cell had, or -1 if it was empty. Unless it was the last slot, the data of slot
+     * {@link #size()} has to be moved into it.
+     */
+    int remove(int cell) {
+        int slot = slots[cell];
+        if (slot < 0) return -1;
+        slots[cell] = -1;
+        int last = --size;
+        if (slot != last) {
+            int moved = cells[last];
+            cells[slot] = moved;
+            slots[moved] = slot;
+        }
+        return slot;
+    }
+
+    int size() {
+        return size;
+    }
+}
@@ -0,0 +1,223 @@
+package xyz.chromabeam.engine.render.chunk;
+
+import xyz.chromabeam.util.storage.LongObjectMap;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Decides which chunks a chunk renderer draws. Every frame, the active chunks are tested against the camera bounds, and
+ * only the visible ones are drawn. Chunks that stayed off-screen for a number of frames become inactive, and aren't
+ * looked at anymore until the camera gets to them again: inactive chunks are found by the chunk coordinates the
+ * camera covers, so the cost of a frame follows what is on screen instead of the size of the world.
+ *
+ * Doesn't touch OpenGL.
+ */
+final class ChunkCuller<C> {
+    /**
+     * How many frames a chunk has to stay off-screen before it becomes inactive, so that panning back and forth doesn't
+     * keep moving the same chunks between the lists.
+     */
+    static final int DEFAULT_DEACTIVATION_FRAMES = 120;
+
+    private static final class Entry<C> {
+        final C chunk;
+        long lastVisible;
+        /**
+         * The position in the active or inactive list, whichever the chunk is in.
+         */
+        int index;
+        int x;
+        int y;
+
+        Entry(C chunk) {
+            this.chunk = chunk;
+        }
+    }
+
+    private final int edgeSize;
+    private final int deactivationFrames;
+    private final ToIntFunction<C> chunkX;
+    private final ToIntFunction<C> chunkY;
+
+    private final List<Entry<C>> active = new ArrayList<>();
+    private final List<Entry<C>> inactive = new ArrayList<>();
+    private final Map<C, Entry<C>> entries = new IdentityHashMap<>();
+    /**
+     * The inactive chunks by their position when they were deactivated.
+     */
+    @SuppressWarnings("unchecked")
+    private final LongObjectMap<Entry<C>> inactiveIndex = new LongObjectMap<>(Entry[]::new);
+    private final List<C> visible = new ArrayList<>();
+    private long frame = 0;
+
+    /**
+     * @param chunkX The horizontal position of a chunk, in chunks
+     * @param chunkY The vertical position of a chunk, in chunks
+     */
+    ChunkCuller(int edgeSize, int deactivationFrames, ToIntFunction<C> chunkX, ToIntFunction<C> chunkY) {
+        this.edgeSize = edgeSize;
+        this.deactivationFrames = deactivationFrames;
+        this.chunkX = chunkX;
+        this.chunkY = chunkY;
+    }
+
+    private static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Adds an active chunk. It's visible until the first cull, as its position may not be set yet.
+     */
+    void add(C chunk) {
+        var entry = new Entry<>(chunk);
+        entry.lastVisible = frame;
+        entries.put(chunk, entry);
+        append(active, entry);
+    }
+
+    private static <C> void append(List<Entry<C>> list, Entry<C> entry) {
+        entry.index = list.size();
+        list.add(entry);
+    }
+
+    /**
+     * Swap remove, the order of the chunks in the lists doesn't matter.
+     */
+    private static <C> void detach(List<Entry<C>> list, Entry<C> entry) {
+        var last = list.remove(list.size() - 1);
+        if (last != entry) {
+            last.index = entry.index;
+            list.set(entry.index, last);
+        }
+    }
+
+    private boolean isActive(Entry<C> entry) {
+        return entry.index < active.size() && active.get(entry.index) == entry;
+    }
+
+    /**
+     * @return True if the chunk was added before.
+     */
+    boolean remove(C chunk) {
+        var entry = entries.remove(chunk);
+        if (entry == null) return false;
+        if (isActive(entry)) {
+            detach(active, entry);
+        } else {
+            detach(inactive, entry);
+            unindex(entry);
+        }
+        return true;
+    }
+
+    /**
+     * Makes an inactive chunk active again right away, instead of when it's next on screen.
+     */
+    void activate(C chunk) {
+        var entry = entries.get(chunk);
+        if (entry != null && !isActive(entry)) reactivate(entry);
+    }
+
+    /**
+     * Makes an active chunk inactive right away, instead of after it has been off-screen for a while. It still becomes
+     * active again once it's on screen.
+     */
+    void deactivate(C chunk) {
+        var entry = entries.get(chunk);
+        if (entry != null && isActive(entry)) deactivate(entry);
+    }
+
+    private void deactivate(Entry<C> entry) {
+        detach(active, entry);
+        entry.x = chunkX.applyAsInt(entry.chunk);
+        entry.y = chunkY.applyAsInt(entry.chunk);
+        append(inactive, entry);
+        inactiveIndex.put(key(entry.x, entry.y), entry);
+    }
+
+    private void reactivate(Entry<C> entry) {
+        detach(inactive, entry);
+        unindex(entry);
+        entry.lastVisible = frame;
+        append(active, entry);
+    }
+
+    private void unindex(Entry<C> entry) {
+        long key = key(entry.x, entry.y);
+        if (inactiveIndex.get(key) == entry) inactiveIndex.remove(key);
+    }
+
+    private boolean isVisible(int x, int y, float left, float right, float bottom, float top) {
+        return (long) x * edgeSize < right && (long) (x + 1) * edgeSize > left
+                && (long) y * edgeSize < top && (long) (y + 1) * edgeSize > bottom;
+    }
+
+    /**
+     * Starts a new frame with the camera covering the specified world rectangle, and finds the chunks to draw.
+     * @return The visible chunks, only valid until the next call.
+     */
+    List<C> cull(float left, float right, float bottom, float top) {
+        frame++;
+        visible.clear();
+        if (!(left <= right && bottom <= top)) {
+            //The camera has no viewport yet, there's nothing sensible to cull against.
+            for (int i = 0; i < active.size(); i++) {
+                active.get(i).lastVisible = frame;
+                visible.add(active.get(i).chunk);
+            }
+            return visible;
+        }
+        if (!inactive.isEmpty()) {
+            int minX = (int) Math.floor(left / edgeSize);
+            int maxX = (int) Math.floor(right / edgeSize);
+            int minY = (int) Math.floor(bottom / edgeSize);
+            int maxY = (int) Math.floor(top / edgeSize);
+            if (((long) maxX - minX + 1) * ((long) maxY - minY + 1) <= inactive.size()) {
+                for (int y = minY; y <= maxY; y++) {
+                    for (int x = minX; x <= maxX; x++) {
+                        var entry = inactiveIndex.get(key(x, y));
+                        if (entry != null && isVisible(x, y, left, right, bottom, top)) reactivate(entry);
+                    }
+                }
+            } else {
+                //Zoomed out further than there are inactive chunks
+                for (int i = inactive.size() - 1; i >= 0; i--) {
+                    var entry = inactive.get(i);
+                    if (isVisible(entry.x, entry.y, left, right, bottom, top)) reactivate(entry);
+                }
+            }
+        }
+        for (int i = active.size() - 1; i >= 0; i--) {
+            var entry = active.get(i);
+            if (isVisible(chunkX.applyAsInt(entry.chunk), chunkY.applyAsInt(entry.chunk), left, right, bottom, top)) {
+                entry.lastVisible = frame;
+                visible.add(entry.chunk);
+            } else if (frame - entry.lastVisible >= deactivationFrames) {
+                deactivate(entry);
+            }
+        }
+        return visible;
+    }
+
+    int getActiveCount() {
+        return active.size();
+    }
+
+    int getInactiveCount() {
+        return inactive.size();
+    }
+
+    /**
+     * @return Every chunk, active or not.
+     */
+    List<C> getAll() {
+        var all = new ArrayList<C>(active.size() + inactive.size());
+        for (var entry: active) all.add(entry.chunk);
+        for (var entry: inactive) all.add(entry.chunk);
+        return all;
+    }
+}
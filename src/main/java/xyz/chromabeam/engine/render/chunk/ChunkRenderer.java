@@ -1,32 +1,33 @@
-
 package xyz.chromabeam.engine.render.chunk;
 
 import xyz.chromabeam.engine.render.world.WorldRenderer;
 
 import static org.lwjgl.opengl.GL33C.*;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.function.Supplier;
 
 /**
- * Allocates, destroys, and draws the chunks.
+ * Allocates, destroys, and draws the chunks. Only the chunks inside the camera bounds are drawn, and chunks that have
+ * been off-screen for a while are deactivated until the camera gets back to them, see {@link ChunkCuller}.
  */
 public class ChunkRenderer extends WorldRenderer implements Supplier<RenderChunk> {
     private final int chunkUniform;
 
-    private final List<RenderChunk> renderChunks = new ArrayList<>();
-    private final List<RenderChunk> inactiveRenderChunks = new ArrayList<>();
+    private final ChunkCuller<RenderChunk> culler;
     private final int edgeSize;
     public ChunkRenderer(int edgeSize) {
         super("component", "component", "chunk");
         this.edgeSize = edgeSize;
         chunkUniform = childUniforms[0];
+        culler = new ChunkCuller<>(edgeSize, ChunkCuller.DEFAULT_DEACTIVATION_FRAMES, c -> c.x, c -> c.y);
     }
 
     @Override
     protected void renderContent() {
-        for (RenderChunk renderChunk : renderChunks) {
+        var visible = culler.cull(camera.left(), camera.right(),
+                Math.min(camera.bottom(), camera.top()), Math.max(camera.bottom(), camera.top()));
+        for (int i = 0; i < visible.size(); i++) {
+            var renderChunk = visible.get(i);
             glUniform2f(chunkUniform,
                     renderChunk.x * edgeSize,
                     renderChunk.y * edgeSize);
@@ -36,37 +37,33 @@ public class ChunkRenderer extends WorldRenderer implements Supplier<RenderChunk
 
     public RenderChunk allocateChunk() {
         var chunk = new RenderChunk(this, edgeSize);
-        renderChunks.add(chunk);
+        culler.add(chunk);
         return chunk;
     }
 
     public void activateChunk(RenderChunk renderChunk) {
-        if (inactiveRenderChunks.remove(renderChunk)) {
-            renderChunks.add(renderChunk);
-        }
+        culler.activate(renderChunk);
     }
 
+    /**
+     * Deactivates the chunk right away. It's activated again once it's on screen.
+     */
     public void deactivateChunk(RenderChunk renderChunk) {
-        if (renderChunks.remove(renderChunk)) {
-            inactiveRenderChunks.add(renderChunk);
-        }
+        culler.deactivate(renderChunk);
     }
 
     public void removeChunk(RenderChunk renderChunk) {
-        if (renderChunks.remove(renderChunk) || inactiveRenderChunks.remove(renderChunk)) {
+        if (culler.remove(renderChunk)) {
             renderChunk.destroyInternal();
         }
     }
 
     @Override
     public void destroy() {
-        for (var chunk: renderChunks) {
-            chunk.destroyInternal();
-        }
-        for (var chunk: inactiveRenderChunks) {
+        for (var chunk: culler.getAll()) {
+            culler.remove(chunk);
             chunk.destroyInternal();
         }
-        renderChunks.clear();
         super.destroy();
     }
 
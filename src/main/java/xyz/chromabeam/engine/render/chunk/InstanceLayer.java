@@ -0,0 +1,104 @@
+package xyz.chromabeam.engine.render.chunk;
+
+import org.joml.Vector4f;
+import xyz.chromabeam.beam.Direction;
+import xyz.chromabeam.engine.render.buffer.DirtyRanges;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The instance records of a single layer of an instanced chunk, one per occupied cell, packed to the front of the
+ * buffer so that a draw only covers the occupied cells. Every record is 8 bytes:
+ * <ul>
+ *     <li>An int with the cell index in the low 16 bits, then the direction in 2 bits, the flip in 1 bit, and the
+ *     {@link xyz.chromabeam.engine.render.texture.RegionTable region index} in the top 13 bits</li>
+ *     <li>The color as 4 unsigned bytes, in RGBA order, clamped to 0-1</li>
+ * </ul>
+ * Removing a cell moves the last record into its place, so the order of the records is arbitrary. Every write is
+ * recorded in the dirty ranges, so only the changed records need uploading.
+ *
+ * Works on any byte buffer, the renderer hands it the write buffer of the instance VBO.
+ */
+public class InstanceLayer {
+    public static final int BYTES_PER_INSTANCE = 8;
+    public static final int MAX_CELLS = 1 << 16;
+    public static final int MAX_REGION = (1 << 13) - 1;
+
+    private final ByteBuffer records;
+    private final CellSlots slots;
+    private final DirtyRanges dirty = new DirtyRanges();
+
+    /**
+     * @param records Holds at least cellCount * {@link #BYTES_PER_INSTANCE} bytes, in native byte order.
+     */
+    public InstanceLayer(int cellCount, ByteBuffer records) {
+        if (cellCount > MAX_CELLS) throw new IllegalArgumentException("Too many cells for an instance layer: " + cellCount);
+        if (records.capacity() < cellCount * BYTES_PER_INSTANCE) throw new IllegalArgumentException("Instance buffer is too small!");
+        this.records = records;
+        slots = new CellSlots(cellCount);
+    }
+
+    public static int packInstance(int cell, Direction direction, boolean flipped, int region) {
+        return cell | direction.ordinal() << 16 | (flipped ? 1 << 18 : 0) | region << 19;
+    }
+
+    private static byte channel(float value) {
+        return (byte) Math.round(Math.max(0, Math.min(1, value)) * 255);
+    }
+
+    public void set(int cell, Direction direction, boolean flipped, int region, Vector4f color) {
+        if (region < 0 || region > MAX_REGION) throw new IllegalArgumentException("Region index out of range: " + region);
+        int slot = slots.getOrAdd(cell);
+        records.putInt(slot * BYTES_PER_INSTANCE, packInstance(cell, direction, flipped, region));
+        writeColor(slot, color);
+        dirty.mark(slot * BYTES_PER_INSTANCE, (slot + 1) * BYTES_PER_INSTANCE);
+    }
+
+    /**
+     * Does nothing if the cell is empty.
+     */
+    public void setColor(int cell, Vector4f color) {
+        int slot = slots.get(cell);
+        if (slot < 0) return;
+        writeColor(slot, color);
+        dirty.mark(slot * BYTES_PER_INSTANCE + 4, (slot + 1) * BYTES_PER_INSTANCE);
+    }
+
+    private void writeColor(int slot, Vector4f color) {
+        int offset = slot * BYTES_PER_INSTANCE + 4;
+        records.put(offset, channel(color.x));
+        records.put(offset + 1, channel(color.y));
+        records.put(offset + 2, channel(color.z));
+        records.put(offset + 3, channel(color.w));
+    }
+
+    public void remove(int cell) {
+        int slot = slots.remove(cell);
+        if (slot >= 0 && slot != slots.size()) {
+            records.putLong(slot * BYTES_PER_INSTANCE, records.getLong(slots.size() * BYTES_PER_INSTANCE));
+            dirty.mark(slot * BYTES_PER_INSTANCE, (slot + 1) * BYTES_PER_INSTANCE);
+        }
+    }
+
+    public boolean contains(int cell) {
+        return slots.get(cell) >= 0;
+    }
+
+    /**
+     * @return The amount of records, the records are the first size * {@link #BYTES_PER_INSTANCE} bytes.
+     */
+    public int size() {
+        return slots.size();
+    }
+
+    public ByteBuffer getRecords() {
+        return records;
+    }
+
+    /**
+     * The byte ranges of the records written since the ranges were last cleared.
+     */
+    public DirtyRanges getDirtyRanges() {
+        return dirty;
+    }
+}
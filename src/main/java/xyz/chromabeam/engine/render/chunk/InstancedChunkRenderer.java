@@ -0,0 +1,97 @@
+package xyz.chromabeam.engine.render.chunk;
+
+import xyz.chromabeam.engine.render.buffer.GpuBuffer;
+import xyz.chromabeam.engine.render.texture.RegionTable;
+import xyz.chromabeam.engine.render.world.WorldRenderer;
+
+import java.util.function.Supplier;
+
+import static org.lwjgl.opengl.GL33C.*;
+
+/**
+ * Allocates, destroys, and draws instanced chunks. The instanced counterpart of {@link ChunkRenderer}: every occupied
+ * cell of a layer is a single 8 byte instance of a shared unit quad instead of 4 vertices of 32 bytes, and the UVs
+ * come from a region table uploaded once, so both the memory and the upload size shrink to an eighth or less, and the
+ * draw cost follows the amount of components instead of the chunk area. Chunks are culled against the camera the same
+ * way.
+ */
+public class InstancedChunkRenderer extends WorldRenderer implements Supplier<InstancedRenderChunk> {
+    private final int chunkUniform;
+    private final int edgeLengthUniform;
+    private final int regionsUniform;
+
+    private final ChunkCuller<InstancedRenderChunk> culler;
+    private final int edgeSize;
+    private final RegionTable regions;
+    private final GpuBuffer quad;
+
+    public InstancedChunkRenderer(int edgeSize, RegionTable regions) {
+        super("componentInstanced", "component", "chunk", "edgeLength", "regions");
+        this.edgeSize = edgeSize;
+        this.regions = regions;
+        chunkUniform = childUniforms[0];
+        edgeLengthUniform = childUniforms[1];
+        regionsUniform = childUniforms[2];
+        culler = new ChunkCuller<>(edgeSize, ChunkCuller.DEFAULT_DEACTIVATION_FRAMES, c -> c.x, c -> c.y);
+        quad = new GpuBuffer(4 * 2 * 4, GL_ARRAY_BUFFER);
+        quad.getWriteBuffer().asFloatBuffer().put(new float[]{0, 0, 0, 1, 1, 1, 1, 0});
+        quad.markAllDirty();
+        quad.sync();
+        quad.unbind();
+    }
+
+    RegionTable getRegions() {
+        return regions;
+    }
+
+    /**
+     * The unit quad every instance is drawn with, as 4 vertices of 2 floats for a triangle fan.
+     */
+    GpuBuffer getQuad() {
+        return quad;
+    }
+
+    @Override
+    protected void renderContent() {
+        if (regions.consumeChanged()) {
+            glUniform4fv(regionsUniform, regions.getUVs());
+        }
+        glUniform1i(edgeLengthUniform, edgeSize);
+        var visible = culler.cull(camera.left(), camera.right(),
+                Math.min(camera.bottom(), camera.top()), Math.max(camera.bottom(), camera.top()));
+        for (int i = 0; i < visible.size(); i++) {
+            var renderChunk = visible.get(i);
+            glUniform2f(chunkUniform,
+                    renderChunk.x * edgeSize,
+                    renderChunk.y * edgeSize);
+            renderChunk.draw();
+        }
+    }
+
+    public InstancedRenderChunk allocateChunk() {
+        var chunk = new InstancedRenderChunk(this, edgeSize);
+        culler.add(chunk);
+        return chunk;
+    }
+
+    public void removeChunk(InstancedRenderChunk renderChunk) {
+        if (culler.remove(renderChunk)) {
+            renderChunk.destroyInternal();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        for (var chunk: culler.getAll()) {
+            culler.remove(chunk);
+            chunk.destroyInternal();
+        }
+        quad.destroy();
+        super.destroy();
+    }
+
+    @Override
+    public InstancedRenderChunk get() {
+        return allocateChunk();
+    }
+}
@@ -0,0 +1,141 @@
+package xyz.chromabeam.engine.render.chunk;
+
+import org.joml.Vector4f;
+import xyz.chromabeam.beam.Direction;
+import xyz.chromabeam.engine.bind.BindManager;
+import xyz.chromabeam.engine.render.buffer.GpuBuffer;
+import xyz.chromabeam.engine.render.texture.TextureRegionI;
+import xyz.chromabeam.util.Destroyable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.lwjgl.opengl.GL33C.*;
+
+/**
+ * A chunk drawn with one instanced draw call per layer, see {@link InstancedChunkRenderer}. Each layer keeps its
+ * instance records in an {@link InstanceLayer}, written straight into the write buffer of its instance VBO, and only the
+ * records changed since the previous draw are uploaded.
+ */
+public class InstancedRenderChunk implements RenderChunkI, Destroyable {
+    public int x = 0;
+    public int y = 0;
+
+    private static final class Layer {
+        final int vao;
+        final GpuBuffer instances;
+        final InstanceLayer records;
+
+        Layer(int vao, GpuBuffer instances, InstanceLayer records) {
+            this.vao = vao;
+            this.instances = instances;
+            this.records = records;
+        }
+    }
+
+    private final List<Layer> layers = new ArrayList<>();
+
+    private final InstancedChunkRenderer parent;
+
+    private final int edgeLength;
+
+    InstancedRenderChunk(InstancedChunkRenderer parent, int edgeLength) {
+        this.parent = parent;
+        this.edgeLength = edgeLength;
+    }
+
+    private void checkBounds(int x, int y) {
+        if (x >= edgeLength || x < 0 || y >= edgeLength || y < 0) {
+            throw new IllegalArgumentException("Chunk position out of bounds: " + x + ", " + y);
+        }
+    }
+
+    @Override
+    public void set(int x, int y, Direction rotation, boolean flipped, int layer, TextureRegionI texture, Vector4f color) {
+        checkBounds(x, y);
+        while (layer >= layers.size()) createLayer();
+        var records = layers.get(layer).records;
+        if (texture == null) {
+            records.remove(y * edgeLength + x);
+        } else {
+            records.set(y * edgeLength + x, rotation, flipped, parent.getRegions().indexOf(texture), color);
+        }
+    }
+
+    @Override
+    public void setColor(int x, int y, int layer, Vector4f color) {
+        if (x >= edgeLength || x < 0 || y >= edgeLength || y < 0 || layer >= layers.size()) {
+            throw new IllegalArgumentException("Chunk position out of bounds: " + x + ", " + y + ", layer " + layer);
+        }
+        layers.get(layer).records.setColor(y * edgeLength + x, color);
+    }
+
+    @Override
+    public void unset(int x, int y) {
+        checkBounds(x, y);
+        for (var layer: layers) {
+            layer.records.remove(y * edgeLength + x);
+        }
+    }
+
+    @Override
+    public void unset(int x, int y, int layer) {
+        checkBounds(x, y);
+        if (layer >= layers.size()) return;
+        layers.get(layer).records.remove(y * edgeLength + x);
+    }
+
+    private void createLayer() {
+        int cells = edgeLength * edgeLength;
+        int vao = BindManager.genVertexArrays();
+        BindManager.bindVertexArray(vao);
+        var quad = parent.getQuad();
+        quad.bind();
+        glVertexAttribPointer(0, 2, GL_FLOAT, false, 2 * 4, 0);
+        glEnableVertexAttribArray(0);
+        quad.unbind();
+        var instances = new GpuBuffer(cells * InstanceLayer.BYTES_PER_INSTANCE, GL_ARRAY_BUFFER);
+        glVertexAttribIPointer(1, 1, GL_UNSIGNED_INT, InstanceLayer.BYTES_PER_INSTANCE, 0);
+        glEnableVertexAttribArray(1);
+        glVertexAttribDivisor(1, 1);
+        glVertexAttribPointer(2, 4, GL_UNSIGNED_BYTE, true, InstanceLayer.BYTES_PER_INSTANCE, 4);
+        glEnableVertexAttribArray(2);
+        glVertexAttribDivisor(2, 1);
+        instances.unbind();
+        BindManager.unbindVertexArray(vao);
+        layers.add(new Layer(vao, instances, new InstanceLayer(cells, instances.getWriteBuffer())));
+    }
+
+    void draw() {
+        for (var layer: layers) {
+            var records = layer.records;
+            var dirty = records.getDirtyRanges();
+            if (records.size() == 0 && dirty.isEmpty()) continue;
+            BindManager.bindVertexArray(layer.vao);
+            if (!dirty.isEmpty()) {
+                for (int i = 0; i < dirty.size(); i++) {
+                    layer.instances.markDirty(dirty.start(i), dirty.end(i) - dirty.start(i));
+                }
+                dirty.clear();
+                layer.instances.bind();
+                layer.instances.sync();
+                layer.instances.unbind();
+            }
+            glDrawArraysInstanced(GL_TRIANGLE_FAN, 0, 4, records.size());
+            BindManager.unbindVertexArray(layer.vao);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        parent.removeChunk(this);
+    }
+
+    void destroyInternal() {
+        for (var layer: layers) {
+            layer.instances.destroy();
+            BindManager.deleteVertexArrays(layer.vao);
+        }
+        layers.clear();
+    }
+}
@@ -4,7 +4,6 @@ import org.joml.Vector4f;
 import xyz.chromabeam.beam.Direction;
 import xyz.chromabeam.engine.render.RenderUtil;
 import xyz.chromabeam.engine.render.buffer.IndexedVertexArray;
-import xyz.chromabeam.engine.render.buffer.VertexArray;
 import xyz.chromabeam.engine.render.texture.TextureRegionI;
 import xyz.chromabeam.util.Destroyable;
 
@@ -20,12 +19,15 @@ import java.util.List;
  *
  * The smaller the chunk, the more draw calls are needed to draw large circuits, but it's changed less per tick because
  * of the lower amount of potential changed components per tick.
- * The larger the chunk, the more wasted data is stored on the GPU (empty components are just zero-sized rectangles).
+ * The larger the chunk, the more wasted data is stored on the GPU. Empty cells aren't drawn though: the quads of the
+ * occupied cells are kept packed at the front of every layer, so the draw calls cost as much as the placed components,
+ * however sparse a layer is.
  *
- * Also, components with animated textures need to re-send the entire chunk data to the gpu if the texture changes.
- * (i now know why modded minecraft was so laggy on older versions)
+ * Only the quads that were written to since the previous draw are re-sent, so a component with an animated texture
+ * costs a quad upload per change, not the entire layer. Changes far apart are still separate uploads, see
+ * {@link xyz.chromabeam.engine.render.buffer.DirtyRanges}.
  */
-public class RenderChunk implements Destroyable {
+public class RenderChunk implements RenderChunkI, Destroyable {
 
     public static final int FLOATS_PER_VERTEX = RenderUtil.POSITION_FLOATS + RenderUtil.UV_FLOATS + RenderUtil.COLOR_FLOATS;
     public static final int VERTICES_PER_QUAD = 4;
@@ -43,56 +45,64 @@ public class RenderChunk implements Destroyable {
     private int layerCount = 0;
 
     private final List<IndexedVertexArray> layers = new ArrayList<>();
+    /**
+     * The quad of every occupied cell, per layer. The quads of a layer are packed to the front of its vertex buffer, so
+     * a draw only covers the occupied cells.
+     */
+    private final List<CellSlots> slots = new ArrayList<>();
 
     private final ChunkRenderer parent;
 
     private final int edgeLength;
 
+    @Override
     public void set(int x, int y, Direction rotation, boolean flipped, int layer, TextureRegionI texture, Vector4f color) {
         if (x >= edgeLength || x < 0 || y >= edgeLength || y < 0) {
             throw new IllegalArgumentException("Chunk position out of bounds: " + x + ", " + y);
         } else {
             while (layer >= layerCount) createLayer();
-            var buf = layers.get(layer).getVertexBuffer();
-            buf.position((y * edgeLength + x) * FLOATS_PER_QUAD);
+            if (texture == null) {
+                removeQuad(layer, y * edgeLength + x);
+                return;
+            }
+            int base = slots.get(layer).getOrAdd(y * edgeLength + x) * FLOATS_PER_QUAD;
+            var buf = layers.get(layer).getVertexBuffer(base, FLOATS_PER_QUAD);
+            buf.position(base);
             var otherRotation = rotation == Direction.LEFT || rotation == Direction.UP;
             var horizontal = rotation == Direction.RIGHT || rotation == Direction.LEFT;
-            if (texture == null) {
-                for (int i = 0; i < FLOATS_PER_QUAD; i++) {
-                    buf.put(0);
-                }
+            float u0; float v0; float u1; float v1; float vA; float vB; float uA; float uB;
+            if (otherRotation) {
+                u0 = texture.u1(); u1 = texture.u0();
+            } else {
+                u0 = texture.u0(); u1 = texture.u1();
+            }
+            if (flipped ^ otherRotation) {
+                v0 = texture.v1(); v1 = texture.v0();
+            } else {
+                v0 = texture.v0(); v1 = texture.v1();
+            }
+            if (horizontal) {
+                vA = v0; vB = v1; uA = u0; uB = u1;
             } else {
-                float u0; float v0; float u1; float v1; float vA; float vB; float uA; float uB;
-                if (otherRotation) {
-                    u0 = texture.u1(); u1 = texture.u0();
-                } else {
-                    u0 = texture.u0(); u1 = texture.u1();
-                }
-                if (flipped ^ otherRotation) {
-                    v0 = texture.v1(); v1 = texture.v0();
-                } else {
-                    v0 = texture.v0(); v1 = texture.v1();
-                }
-                if (horizontal) {
-                    vA = v0; vB = v1; uA = u0; uB = u1;
-                } else {
-                    vA = v1; vB = v0; uA = u1; uB = u0;
-                }
-                buf
-                        .put(x)    .put(y)    .put(u0).put(vA).put(color.x).put(color.y).put(color.z).put(color.w)
-                        .put(x)    .put(y + 1).put(uA).put(v1).put(color.x).put(color.y).put(color.z).put(color.w)
-                        .put(x + 1).put(y + 1).put(u1).put(vB).put(color.x).put(color.y).put(color.z).put(color.w)
-                        .put(x + 1).put(y)    .put(uB).put(v0).put(color.x).put(color.y).put(color.z).put(color.w);
+                vA = v1; vB = v0; uA = u1; uB = u0;
             }
+            buf
+                    .put(x)    .put(y)    .put(u0).put(vA).put(color.x).put(color.y).put(color.z).put(color.w)
+                    .put(x)    .put(y + 1).put(uA).put(v1).put(color.x).put(color.y).put(color.z).put(color.w)
+                    .put(x + 1).put(y + 1).put(u1).put(vB).put(color.x).put(color.y).put(color.z).put(color.w)
+                    .put(x + 1).put(y)    .put(uB).put(v0).put(color.x).put(color.y).put(color.z).put(color.w);
         }
     }
 
+    @Override
     public void setColor(int x, int y, int layer, Vector4f color) {
         if (x >= edgeLength || x < 0 || y >= edgeLength || y < 0 || layer >= layerCount) {
             throw new IllegalArgumentException("Chunk position out of bounds: " + x + ", " + y + ", layer " + layer);
         } else {
-            var buf = layers.get(layer).getVertexBuffer();
-            int base = (y * edgeLength + x) * FLOATS_PER_QUAD;
+            int slot = slots.get(layer).get(y * edgeLength + x);
+            if (slot < 0) return;
+            int base = slot * FLOATS_PER_QUAD;
+            var buf = layers.get(layer).getVertexBuffer(base + COLOR_OFFSET, 3 * FLOATS_PER_VERTEX + RenderUtil.COLOR_FLOATS);
             buf
                     .position(base + COLOR_OFFSET).put(color.x).put(color.y).put(color.z).put(color.w)
                     .position(base + FLOATS_PER_VERTEX + COLOR_OFFSET).put(color.x).put(color.y).put(color.z).put(color.w)
@@ -101,51 +111,44 @@ public class RenderChunk implements Destroyable {
         }
     }
 
+    @Override
     public void unset(int x, int y) {
         if (x >= edgeLength || x < 0 || y >= edgeLength || y < 0) {
             throw new IllegalArgumentException("Chunk position out of bounds: " + x + ", " + y);
         }
-        int pos = (y * edgeLength + x) * FLOATS_PER_QUAD;
-        for (var layer: layers) {
-            var buf = layer.getVertexBuffer();
-            buf.position(pos);
-            for (int i = 0; i < FLOATS_PER_QUAD; i++) {
-                buf.put(0);
-            }
+        for (int layer = 0; layer < layerCount; layer++) {
+            removeQuad(layer, y * edgeLength + x);
         }
     }
 
+    @Override
     public void unset(int x, int y, int layer) {
         if (x >= edgeLength || x < 0 || y >= edgeLength || y < 0) {
             throw new IllegalArgumentException("Chunk position out of bounds: " + x + ", " + y);
         }
         if (layer >= layerCount) return;
-        var buf = layers.get(layer).getVertexBuffer();
-        buf.position((y * edgeLength + x) * FLOATS_PER_QUAD);
-        for (int i = 0; i < FLOATS_PER_QUAD; i++) {
-            buf.put(0);
-        }
+        removeQuad(layer, y * edgeLength + x);
+    }
+
+    /**
+     * Moves the last quad of the layer into the place of the removed one, so the quads stay packed.
+     */
+    private void removeQuad(int layer, int cell) {
+        var layerSlots = slots.get(layer);
+        int slot = layerSlots.remove(cell);
+        if (slot < 0 || slot == layerSlots.size()) return;
+        int base = slot * FLOATS_PER_QUAD;
+        var buf = layers.get(layer).getVertexBuffer(base, FLOATS_PER_QUAD);
+        buf.put(base, buf, layerSlots.size() * FLOATS_PER_QUAD, FLOATS_PER_QUAD);
     }
 
     private void createLayer() {
-        var vertexArray = new IndexedVertexArray(VertexArray.DrawMethod.TRIANGLES,
-                edgeLength * edgeLength * VERTICES_PER_QUAD,
-                edgeLength * edgeLength * INDICES_PER_QUAD,
+        //Every layer of every chunk draws the same quads, so they share a single index buffer
+        var vertexArray = IndexedVertexArray.quads(edgeLength * edgeLength,
                 RenderUtil.POSITION_FLOATS, RenderUtil.UV_FLOATS, RenderUtil.COLOR_FLOATS);
-        var indexBuf = vertexArray.getElementArrayBuffer();
-        indexBuf.clear();
-        for (int i = 0; i < edgeLength * edgeLength; i++) {
-            indexBuf.put(i * 4);
-            indexBuf.put(i * 4 + 1);
-            indexBuf.put(i * 4 + 2);
-            indexBuf.put(i * 4);
-            indexBuf.put(i * 4 + 2);
-            indexBuf.put(i * 4 + 3);
-        }
-        indexBuf.flip();
-        vertexArray.sync();
         vertexArray.unbind();
         layers.add(vertexArray);
+        slots.add(new CellSlots(edgeLength * edgeLength));
         layerCount++;
     }
 
@@ -155,10 +158,13 @@ public class RenderChunk implements Destroyable {
     }
 
     void draw() {
-        for (var layer: layers) {
+        for (int i = 0; i < layerCount; i++) {
+            int quads = slots.get(i).size();
+            if (quads == 0) continue;
+            var layer = layers.get(i);
             layer.bind();
             layer.sync();
-            layer.draw();
+            layer.draw(quads * INDICES_PER_QUAD);
             layer.unbind();
         }
     }
@@ -181,5 +187,7 @@ public class RenderChunk implements Destroyable {
             layer.destroy();
         }
         layers.clear();
+        slots.clear();
+        layerCount = 0;
     }
 }
@@ -0,0 +1,25 @@
+package xyz.chromabeam.engine.render.chunk;
+
+import org.joml.Vector4f;
+import xyz.chromabeam.beam.Direction;
+import xyz.chromabeam.engine.render.texture.TextureRegionI;
+
+/**
+ * A square of cells drawn together, with any amount of layers per cell. Positions are relative to the chunk, layer 0 is
+ * drawn first.
+ */
+public interface RenderChunkI {
+    /**
+     * @param texture The texture of the layer, or null to leave the layer empty
+     */
+    void set(int x, int y, Direction rotation, boolean flipped, int layer, TextureRegionI texture, Vector4f color);
+
+    void setColor(int x, int y, int layer, Vector4f color);
+
+    /**
+     * Empties every layer of the cell.
+     */
+    void unset(int x, int y);
+
+    void unset(int x, int y, int layer);
+}
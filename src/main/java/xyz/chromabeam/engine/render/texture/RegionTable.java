@@ -0,0 +1,69 @@
+package xyz.chromabeam.engine.render.texture;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Numbers texture regions, so that instanced draws can refer to a region with a small index instead of four UV floats
+ * per vertex. The UVs of every numbered region are kept in a flat array, ready to be uploaded as a uniform array.
+ *
+ * Regions unknown to the table are numbered on first use, so textures from outside the atlas still work, at the cost of
+ * another upload.
+ */
+public class RegionTable {
+    /**
+     * Bounded by the amount of vec4 uniforms a vertex shader is guaranteed to have.
+     */
+    public static final int MAX_REGIONS = 192;
+
+    private final Map<TextureRegionI, Integer> indices = new IdentityHashMap<>();
+    private final float[] uvs = new float[MAX_REGIONS * 4];
+    private int size = 0;
+    private boolean changed = false;
+
+    public RegionTable() {
+    }
+
+    public RegionTable(TextureAtlas atlas) {
+        for (var region: atlas.getRegions()) {
+            indexOf(region);
+        }
+    }
+
+    /**
+     * @return The index of the region, numbering it if it's new.
+     * @throws IllegalStateException If the table is full
+     */
+    public int indexOf(TextureRegionI region) {
+        var index = indices.get(region);
+        if (index != null) return index;
+        if (size == MAX_REGIONS) throw new IllegalStateException("Too many texture regions, the limit is " + MAX_REGIONS + "!");
+        uvs[size * 4] = region.u0();
+        uvs[size * 4 + 1] = region.v0();
+        uvs[size * 4 + 2] = region.u1();
+        uvs[size * 4 + 3] = region.v1();
+        indices.put(region, size);
+        changed = true;
+        return size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return u0, v0, u1, v1 of every region, in index order. Only the first {@link #size()} * 4 floats are used.
+     */
+    public float[] getUVs() {
+        return uvs;
+    }
+
+    /**
+     * @return True if regions were added since the previous call.
+     */
+    public boolean consumeChanged() {
+        boolean result = changed;
+        changed = false;
+        return result;
+    }
+}
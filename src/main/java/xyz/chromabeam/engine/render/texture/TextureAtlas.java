@@ -59,6 +59,19 @@ public class TextureAtlas extends Texture {
         return textures.getOrDefault(name, null);
     }
 
+    /**
+     * @return Every frame of every texture in the atlas, in no particular order.
+     */
+    public List<TextureRegion> getRegions() {
+        var regions = new ArrayList<TextureRegion>();
+        for (var frames: textures.values()) {
+            for (var frame: frames) {
+                if (frame != null) regions.add(frame);
+            }
+        }
+        return regions;
+    }
+
     //Helper function for putting packed tiles into a texture atlas image.
     private static BufferedImage generateAtlasImage(List<TextureTile> tiles) {
         tiles.sort(Comparator.reverseOrder());
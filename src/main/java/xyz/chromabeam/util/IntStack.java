@@ -0,0 +1,42 @@
+package xyz.chromabeam.util;
+
+import java.util.Arrays;
+
+/**
+ * A growable LIFO stack of primitive ints. The int counterpart of {@link Cache}, without the boxing.
+ */
+public class IntStack {
+    private static final int INITIAL_SIZE = 256;
+    private int[] buffer = new int[INITIAL_SIZE];
+    private int size = 0;
+
+    public void push(int value) {
+        if (size == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length + (buffer.length >>> 1));
+        }
+        buffer[size++] = value;
+    }
+
+    public int pop() {
+        return buffer[--size];
+    }
+
+    /**
+     * @return The i-th element, counted from the bottom of the stack.
+     */
+    public int get(int i) {
+        return buffer[i];
+    }
+
+    public boolean empty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
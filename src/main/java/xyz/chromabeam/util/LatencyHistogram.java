@@ -0,0 +1,84 @@
+package xyz.chromabeam.util;
+
+import java.util.Arrays;
+
+/**
+ * A histogram of durations with log-linear buckets, like HdrHistogram. Values below 64 get a bucket each, and every
+ * power of two above that is split into 32 buckets, so every value is kept with less than 1/32 relative error, in a
+ * fixed 15KB of memory. Recording is a couple of bit operations and never allocates. Not thread-safe.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+
+    private final long[] counts = new long[(64 - SUB_BITS) * SUB_COUNT];
+    private long count = 0;
+    private long sum = 0;
+    private long max = 0;
+
+    private static int index(long value) {
+        if (value < 2 * SUB_COUNT) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return shift * SUB_COUNT + (int) (value >>> shift);
+    }
+
+    /**
+     * @return The largest value that falls into the bucket.
+     */
+    private static long highestValue(int index) {
+        if (index < 2 * SUB_COUNT) return index;
+        int shift = index / SUB_COUNT - 1;
+        long mantissa = index - (long) shift * SUB_COUNT;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    /**
+     * Records a value, usually a duration in nanoseconds. Negative values are recorded as 0.
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        counts[index(value)]++;
+        count++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * @param percentile Between 0 and 100
+     * @return The value that the specified percentage of the recorded values are smaller than or equal to, rounded up to
+     * the end of its bucket, or 0 if nothing was recorded.
+     */
+    public long getPercentile(double percentile) {
+        if (count == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) return Math.min(highestValue(i), max);
+        }
+        return max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+}
@@ -0,0 +1,88 @@
+package xyz.chromabeam.util;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A hashed timing wheel of items keyed by tick number. Every tick maps to the slot tick % slots, and items further in
+ * the future than a whole revolution simply wait in their slot for a few more revolutions. Scheduling is O(1), and
+ * draining a tick only touches the items that share its slot.
+ */
+public class TimingWheel<T> {
+    private static final int INITIAL_SLOT_SIZE = 4;
+
+    private final Object[][] items;
+    private final long[][] ticks;
+    private final int[] sizes;
+    private final int mask;
+    private int size = 0;
+
+    /**
+     * @param slots The amount of slots, rounded up to a power of two. Should be larger than the usual scheduling
+     *              distance, so that most slots hold nothing but due items.
+     */
+    public TimingWheel(int slots) {
+        slots = Integer.highestOneBit(Math.max(1, slots - 1)) << 1;
+        items = new Object[slots][];
+        ticks = new long[slots][];
+        sizes = new int[slots];
+        mask = slots - 1;
+    }
+
+    public void schedule(T item, long tick) {
+        int slot = (int) (tick & mask);
+        int n = sizes[slot];
+        if (items[slot] == null) {
+            items[slot] = new Object[INITIAL_SLOT_SIZE];
+            ticks[slot] = new long[INITIAL_SLOT_SIZE];
+        } else if (n == items[slot].length) {
+            items[slot] = Arrays.copyOf(items[slot], n + (n >>> 1));
+            ticks[slot] = Arrays.copyOf(ticks[slot], n + (n >>> 1));
+        }
+        items[slot][n] = item;
+        ticks[slot][n] = tick;
+        sizes[slot] = n + 1;
+        size++;
+    }
+
+    /**
+     * Moves every item scheduled for the specified tick into the output list, in the order they were scheduled in.
+     * Items scheduled for earlier ticks that were never drained are dropped as well.
+     */
+    @SuppressWarnings("unchecked")
+    public void drain(long tick, List<? super T> output) {
+        int slot = (int) (tick & mask);
+        int n = sizes[slot];
+        if (n == 0) return;
+        var slotItems = items[slot];
+        var slotTicks = ticks[slot];
+        int kept = 0;
+        for (int i = 0; i < n; i++) {
+            if (slotTicks[i] > tick) {
+                slotItems[kept] = slotItems[i];
+                slotTicks[kept] = slotTicks[i];
+                kept++;
+            } else {
+                if (slotTicks[i] == tick) output.add((T) slotItems[i]);
+                size--;
+            }
+        }
+        Arrays.fill(slotItems, kept, n, null);
+        sizes[slot] = kept;
+    }
+
+    /**
+     * @return The amount of scheduled items.
+     */
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        for (int slot = 0; slot < sizes.length; slot++) {
+            if (items[slot] != null) Arrays.fill(items[slot], 0, sizes[slot], null);
+            sizes[slot] = 0;
+        }
+        size = 0;
+    }
+}
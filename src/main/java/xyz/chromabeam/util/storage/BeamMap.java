@@ -2,108 +2,250 @@ package xyz.chromabeam.util.storage;
 
 import org.joml.Vector2i;
 import xyz.chromabeam.beam.Direction;
-import xyz.chromabeam.engine.beam.Beam;
-import xyz.chromabeam.util.Cache;
+import xyz.chromabeam.engine.beam.BeamStore;
+import xyz.chromabeam.util.IntStack;
 
+/**
+ * Keeps track of the 4 beams leaving every occupied cell, and which cell each of them hits. The beams themselves live in
+ * a {@link BeamStore}, this class only maps positions to cell slots and keeps the links between neighbors up to date.
+ */
 public class BeamMap {
-    private final Container2D<Beam[]> neighborStorage = new NativeContainer2D<>(Beam[][]::new, Beam[][][]::new, Beam[][][][]::new);
-    private final Cache<Beam[]> neighborCache = new Cache<>(() -> new Beam[4], Beam[][]::new);
-    private final Cache<Beam> beamCache = new Cache<>(Beam::new, Beam[]::new);
+    private final Container2D<Integer> cells;
+    private final BeamStore beams;
+    private final IntStack removedCells = new IntStack();
 
     private final Vector2i neighborPosCache = new Vector2i();
 
-    public Beam get(int x, int y, Direction direction) {
-        return neighborStorage.get(x, y)[direction.ordinal()];
+    public BeamMap() {
+        this(Container2DFactory.NATIVE);
     }
 
-    public Beam[] get(int x, int y) {
-        return neighborStorage.get(x, y);
+    public BeamMap(Container2DFactory containerFactory) {
+        this(containerFactory, false);
     }
 
-    private void setupConnection(Beam[] a, Beam[] b, int aX, int aY, int bX, int bY, int aI, int bI) {
-        var aToB = a[aI];
-        var bToA = b[bI];
-        aToB.sourceX = bToA.x = aX;
-        aToB.sourceY = bToA.y = aY;
-        aToB.x = bToA.sourceX = bX;
-        aToB.y = bToA.sourceY = bY;
-        aToB.direction = Direction.values()[aI];
-        bToA.direction = Direction.values()[bI];
-        aToB.infinite = bToA.infinite = false;
+    /**
+     * @param packedColors True to store the beam colors packed into ints, see {@link BeamStore#BeamStore(boolean)}
+     */
+    public BeamMap(Container2DFactory containerFactory, boolean packedColors) {
+        cells = containerFactory.create(Integer[]::new, Integer[][]::new, Integer[][][]::new);
+        beams = new BeamStore(packedColors);
     }
 
-    private void setupNeighbor(Beam[] cell, int x, int y, int selfI, int neighborI) {
-        var neighbor = neighborStorage.get(neighborPosCache.x, neighborPosCache.y);
-        setupConnection(cell, neighbor, x, y, neighborPosCache.x, neighborPosCache.y, selfI, neighborI);
+    public BeamStore beams() {
+        return beams;
     }
 
-    private void setupInfiniteBeam(Beam[] cell, int x, int y, int selfI) {
-        var beam = cell[selfI] == null ? cell[selfI] = beamCache.getOrCreate() : cell[selfI];
-        beam.x = beam.sourceX = x;
-        beam.y = beam.sourceY = y;
-        switch (beam.direction = Direction.values()[selfI]) {
-            case RIGHT -> beam.x = Integer.MAX_VALUE;
-            case DOWN -> beam.y = Integer.MAX_VALUE;
-            case LEFT -> beam.x = Integer.MIN_VALUE;
-            case UP -> beam.y = Integer.MIN_VALUE;
-        }
-        beam.infinite = true;
+    /**
+     * @return The cell slot at the specified position, or {@link BeamStore#NONE} if the cell is empty.
+     */
+    public int getCell(int x, int y) {
+        var cell = cells.get(x, y);
+        return cell == null ? BeamStore.NONE : cell;
+    }
+
+    /**
+     * @return The id of the beam leaving the specified cell in the specified direction, or {@link BeamStore#NONE} if the cell is empty.
+     */
+    public int get(int x, int y, Direction direction) {
+        var cell = cells.get(x, y);
+        return cell == null ? BeamStore.NONE : BeamStore.beam(cell, direction);
+    }
+
+    private void setupConnection(int aToB, int bToA) {
+        beams.setTarget(aToB, BeamStore.cellOf(bToA));
+        beams.setTarget(bToA, BeamStore.cellOf(aToB));
     }
 
     public void setup(int x, int y) {
-        if (!neighborStorage.isEmpty(x, y)) throw new IllegalArgumentException();
-        var cell = neighborCache.getOrCreate();
-        for (int i = 0; i < 4; i++) cell[i] = beamCache.getOrCreate();
-        neighborStorage.set(x, y, cell);
-        if (neighborStorage.getRight(x, y, neighborPosCache)) {
-            setupNeighbor(cell, x, y, 0, 2);
-        } else {
-            setupInfiniteBeam(cell, x, y, 0);
+        if (!cells.isEmpty(x, y)) throw new IllegalArgumentException();
+        int cell = beams.allocate(x, y);
+        cells.set(x, y, beams.box(cell));
+        if (cells.getRight(x, y, neighborPosCache)) {
+            setupConnection(BeamStore.beam(cell, 0), BeamStore.beam(cells.get(neighborPosCache), 2));
+        }
+        if (cells.getDown(x, y, neighborPosCache)) {
+            setupConnection(BeamStore.beam(cell, 1), BeamStore.beam(cells.get(neighborPosCache), 3));
+        }
+        if (cells.getLeft(x, y, neighborPosCache)) {
+            setupConnection(BeamStore.beam(cell, 2), BeamStore.beam(cells.get(neighborPosCache), 0));
         }
-        if (neighborStorage.getDown(x, y, neighborPosCache)) {
-            setupNeighbor(cell, x, y, 1, 3);
-        } else {
-            setupInfiniteBeam(cell, x, y, 1);
+        if (cells.getUp(x, y, neighborPosCache)) {
+            setupConnection(BeamStore.beam(cell, 3), BeamStore.beam(cells.get(neighborPosCache), 1));
         }
-        if (neighborStorage.getLeft(x, y, neighborPosCache)) {
-            setupNeighbor(cell, x, y, 2, 0);
-        } else {
-            setupInfiniteBeam(cell, x, y, 2);
+    }
+
+    /**
+     * Sets up every masked cell of a rectangle at once. The cells are inserted first, then every affected row and column
+     * is linked in a single pass over the rows, instead of searching for the 4 neighbors of every new cell separately.
+     * @param mask Row-major, true for the cells to set up. They must be empty.
+     * @return Row-major, the slots of every occupied cell of the rectangle after the setup, or {@link BeamStore#NONE}.
+     */
+    public int[] setupAll(int x, int y, int width, int height, boolean[] mask) {
+        var slots = new int[width * height];
+        var rows = new boolean[height];
+        var columns = new boolean[width];
+        for (int j = 0; j < height; j++) {
+            for (int i = 0; i < width; i++) {
+                int index = j * width + i;
+                if (mask[index]) {
+                    if (!cells.isEmpty(x + i, y + j)) throw new IllegalArgumentException();
+                    int cell = beams.allocate(x + i, y + j);
+                    cells.set(x + i, y + j, beams.box(cell));
+                    slots[index] = cell;
+                    rows[j] = true;
+                    columns[i] = true;
+                } else {
+                    slots[index] = getCell(x + i, y + j);
+                }
+            }
         }
-        if (neighborStorage.getUp(x, y, neighborPosCache)) {
-            setupNeighbor(cell, x, y, 3, 1);
-        } else {
-            setupInfiniteBeam(cell, x, y, 3);
+        linkRegion(x, y, width, height, slots, rows, columns);
+        return slots;
+    }
+
+    /**
+     * Removes every masked cell of a rectangle at once, and re-links the surviving cells of every affected row and column
+     * in a single pass over the rows. Just like with {@link #removeAll(int, int)}, the beams of the removed cells are
+     * turned black, but stay readable until {@link #releaseRemoved()} is called.
+     * @param mask Row-major, true for the cells to remove, or null to remove the whole rectangle
+     * @return Row-major, the slots of the removed cells, or {@link BeamStore#NONE}.
+     */
+    public int[] removeAll(int x, int y, int width, int height, boolean[] mask) {
+        var removed = new Integer[width * height];
+        cells.removeAll(x, y, width, height, mask, removed);
+        var slots = new int[width * height];
+        var survivors = new int[width * height];
+        var rows = new boolean[height];
+        var columns = new boolean[width];
+        for (int j = 0; j < height; j++) {
+            for (int i = 0; i < width; i++) {
+                int index = j * width + i;
+                var cell = removed[index];
+                if (cell == null) {
+                    slots[index] = BeamStore.NONE;
+                    survivors[index] = getCell(x + i, y + j);
+                    continue;
+                }
+                slots[index] = cell;
+                survivors[index] = BeamStore.NONE;
+                rows[j] = true;
+                columns[i] = true;
+                for (int d = 0; d < 4; d++) {
+                    beams.setColor(BeamStore.beam(cell, d), 0, 0, 0);
+                }
+                removedCells.push(cell);
+            }
         }
+        linkRegion(x, y, width, height, survivors, rows, columns);
+        return slots;
     }
 
-    public void removeAll(int x, int y) {
-        var cell = neighborStorage.remove(x, y);
-        var right = cell[0].infinite ? null : neighborStorage.get(cell[0].x, cell[0].y);
-        var down = cell[1].infinite ? null : neighborStorage.get(cell[1].x, cell[1].y);
-        var left = cell[2].infinite ? null : neighborStorage.get(cell[2].x, cell[2].y);
-        var up = cell[3].infinite ? null : neighborStorage.get(cell[3].x, cell[3].y);
-        if (left != null && right != null) {
-            setupConnection(left, right, cell[2].x, cell[2].y, cell[0].x, cell[0].y, 0, 2);
-        } else if (left != null) {
-            setupInfiniteBeam(left, cell[2].x, cell[2].y, 0);
-        } else if (right != null) {
-            setupInfiniteBeam(right, cell[0].x, cell[0].y, 2);
+    /**
+     * Links the cells of the marked rows and columns of a rectangle with each other, and with their closest neighbors
+     * outside of the rectangle.
+     * @param slots Row-major, the slots of the occupied cells of the rectangle, or {@link BeamStore#NONE}.
+     */
+    private void linkRegion(int x, int y, int width, int height, int[] slots, boolean[] rows, boolean[] columns) {
+        for (int j = 0; j < height; j++) {
+            if (!rows[j]) continue;
+            int previous = cells.getLeft(x, y + j, neighborPosCache) ? cells.get(neighborPosCache) : BeamStore.NONE;
+            for (int i = 0; i < width; i++) {
+                int cell = slots[j * width + i];
+                if (cell == BeamStore.NONE) continue;
+                link(previous, cell, 0);
+                previous = cell;
+            }
+            link(previous, cells.getRight(x + width - 1, y + j, neighborPosCache) ? cells.get(neighborPosCache) : BeamStore.NONE, 0);
         }
-        if (up != null && down != null) {
-            setupConnection(up, down, cell[3].x, cell[3].y, cell[1].x, cell[1].y, 1, 3);
-        } else if (up != null) {
-            setupInfiniteBeam(up, cell[3].x, cell[3].y, 1);
-        } else if (down != null) {
-            setupInfiniteBeam(down, cell[1].x, cell[1].y, 3);
+        //The column pass walks the rows as well, keeping the last cell of every column, to stay cache friendly.
+        var previous = new int[width];
+        for (int i = 0; i < width; i++) {
+            previous[i] = columns[i] && cells.getUp(x + i, y, neighborPosCache) ? cells.get(neighborPosCache) : BeamStore.NONE;
+        }
+        for (int j = 0; j < height; j++) {
+            for (int i = 0; i < width; i++) {
+                int cell = slots[j * width + i];
+                if (cell == BeamStore.NONE || !columns[i]) continue;
+                link(previous[i], cell, 1);
+                previous[i] = cell;
+            }
+        }
+        for (int i = 0; i < width; i++) {
+            if (!columns[i]) continue;
+            link(previous[i], cells.getDown(x + i, y + height - 1, neighborPosCache) ? cells.get(neighborPosCache) : BeamStore.NONE, 1);
+        }
+    }
+
+    /**
+     * Links two consecutive cells of a row or a column, either of which might be missing.
+     * @param direction The direction pointing from the first cell to the second one, RIGHT or DOWN.
+     */
+    private void link(int first, int second, int direction) {
+        if (first != BeamStore.NONE && second != BeamStore.NONE) {
+            setupConnection(BeamStore.beam(first, direction), BeamStore.beam(second, direction + 2));
+        } else if (first != BeamStore.NONE) {
+            beams.setInfinite(BeamStore.beam(first, direction));
+        } else if (second != BeamStore.NONE) {
+            beams.setInfinite(BeamStore.beam(second, direction + 2));
+        }
+    }
+
+    /**
+     * Removes the cell, and re-links its neighbors with each other. The beams of the removed cell are turned black, but
+     * they stay readable until {@link #releaseRemoved()} is called, so that their last targets can still be notified.
+     * @return The slot of the removed cell
+     */
+    public int removeAll(int x, int y) {
+        int cell = cells.remove(x, y);
+        int right = beams.targetCell(BeamStore.beam(cell, 0));
+        int down = beams.targetCell(BeamStore.beam(cell, 1));
+        int left = beams.targetCell(BeamStore.beam(cell, 2));
+        int up = beams.targetCell(BeamStore.beam(cell, 3));
+        if (left != BeamStore.NONE && right != BeamStore.NONE) {
+            setupConnection(BeamStore.beam(left, 0), BeamStore.beam(right, 2));
+        } else if (left != BeamStore.NONE) {
+            beams.setInfinite(BeamStore.beam(left, 0));
+        } else if (right != BeamStore.NONE) {
+            beams.setInfinite(BeamStore.beam(right, 2));
+        }
+        if (up != BeamStore.NONE && down != BeamStore.NONE) {
+            setupConnection(BeamStore.beam(up, 1), BeamStore.beam(down, 3));
+        } else if (up != BeamStore.NONE) {
+            beams.setInfinite(BeamStore.beam(up, 1));
+        } else if (down != BeamStore.NONE) {
+            beams.setInfinite(BeamStore.beam(down, 3));
         }
         for (int i = 0; i < 4; i++) {
-            cell[i].red = 0;
-            cell[i].green = 0;
-            cell[i].blue = 0;
-            beamCache.put(cell[i]);
-            cell[i] = null;
+            beams.setColor(BeamStore.beam(cell, i), 0, 0, 0);
+        }
+        removedCells.push(cell);
+        return cell;
+    }
+
+    /**
+     * Removes every cell at once, without re-linking anything.
+     */
+    public void clear() {
+        cells.clear();
+        beams.clear();
+        removedCells.clear();
+    }
+
+    /**
+     * Makes room for the specified amount of new cells.
+     */
+    public void ensureCapacity(int cells) {
+        this.cells.ensureCapacity(cells);
+        beams.reserve(cells);
+    }
+
+    /**
+     * Frees the slots of every cell removed since the last call.
+     */
+    public void releaseRemoved() {
+        while (!removedCells.empty()) {
+            beams.free(removedCells.pop());
         }
-        neighborCache.put(cell);
     }
 }
@@ -61,11 +61,31 @@ public interface Container2D<T> extends Iterable<T> {
      */
     boolean isEmpty(int x, int y);
 
+    /**
+     * Removes every cell of a rectangle at once.
+     * @param mask Row-major, true for the cells to remove, or null to remove the whole rectangle
+     * @param removed Row-major, receives the old contents of the cells, null for the empty ones
+     */
+    default void removeAll(int x, int y, int width, int height, boolean[] mask, T[] removed) {
+        for (int j = 0; j < height; j++) {
+            for (int i = 0; i < width; i++) {
+                int index = j * width + i;
+                removed[index] = mask == null || mask[index] ? remove(x + i, y + j) : null;
+            }
+        }
+    }
+
     /**
      * Sets every cell to null.
      */
     void clear();
 
+    /**
+     * Makes room for the specified amount of new elements. Only a hint, containers without anything to grow ignore it.
+     */
+    default void ensureCapacity(int elements) {
+    }
+
     /**
      * @return All elements in this container, which are non-null
      */
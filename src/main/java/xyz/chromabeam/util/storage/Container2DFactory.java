@@ -0,0 +1,32 @@
+package xyz.chromabeam.util.storage;
+
+import java.util.function.Function;
+
+/**
+ * Creates empty {@link Container2D} instances, so that the owners of a container can be configured with a storage
+ * strategy without knowing the implementation. The array creators are the same as the ones of {@link NativeContainer2D},
+ * implementations only use the ones they need.
+ */
+public interface Container2DFactory {
+    /**
+     * Dense quadrant/row arrays. Fastest lookups, but memory grows with the coordinate extent.
+     */
+    Container2DFactory NATIVE = new Container2DFactory() {
+        @Override
+        public <T> Container2D<T> create(Function<Integer, T[]> rowCreator, Function<Integer, T[][]> quadrantCreator, Function<Integer, T[][][]> storageCreator) {
+            return new NativeContainer2D<>(rowCreator, quadrantCreator, storageCreator);
+        }
+    };
+
+    /**
+     * Sparse 64x64 tiles. Memory grows with the occupied area.
+     */
+    Container2DFactory TILED = new Container2DFactory() {
+        @Override
+        public <T> Container2D<T> create(Function<Integer, T[]> rowCreator, Function<Integer, T[][]> quadrantCreator, Function<Integer, T[][][]> storageCreator) {
+            return new TiledContainer2D<>(rowCreator);
+        }
+    };
+
+    <T> Container2D<T> create(Function<Integer, T[]> rowCreator, Function<Integer, T[][]> quadrantCreator, Function<Integer, T[][][]> storageCreator);
+}
@@ -0,0 +1,131 @@
+package xyz.chromabeam.util.storage;
+
+import java.util.Arrays;
+
+/**
+ * A growable bit set of non-negative indices with summary levels on top of it. Bit n of a summary word is set if and
+ * only if word n of the level below it is not zero, so nearest set bit searches can skip 64, 4096, 262144... empty bits
+ * with a single word check. The top level is always a single word.
+ *
+ * Searches are O(log64(capacity)) word scans, independent of the distance to the nearest set bit.
+ */
+public class HierarchicalBitSet {
+    /**
+     * levels[0] contains the actual bits, every level after that summarizes the previous one.
+     */
+    private long[][] levels = new long[][]{new long[1]};
+
+    /**
+     * @return The amount of bits that can be stored without growing.
+     */
+    public int capacity() {
+        return levels[0].length << 6;
+    }
+
+    private void ensureCapacity(int index) {
+        int words = (index >>> 6) + 1;
+        if (words <= levels[0].length) return;
+        words = Math.max(words, levels[0].length + (levels[0].length >>> 1));
+        int levelCount = 1;
+        for (int w = words; w > 1; w = (w + 63) >>> 6) levelCount++;
+        var grown = new long[levelCount][];
+        for (int level = 0, w = words; level < levelCount; level++, w = (w + 63) >>> 6) {
+            grown[level] = level < levels.length ? Arrays.copyOf(levels[level], w) : new long[w];
+        }
+        //The old top level was a single word, every new level above it has to summarize it.
+        for (int level = levels.length; level < levelCount; level++) {
+            if (grown[level - 1][0] != 0) grown[level][0] = 1;
+        }
+        levels = grown;
+    }
+
+    public boolean get(int index) {
+        int w = index >>> 6;
+        return w < levels[0].length && (levels[0][w] & (1L << index)) != 0;
+    }
+
+    public void set(int index) {
+        ensureCapacity(index);
+        for (var words: levels) {
+            int w = index >>> 6;
+            long old = words[w];
+            words[w] = old | (1L << index);
+            if (old != 0) return;
+            index = w;
+        }
+    }
+
+    public void clear(int index) {
+        if ((index >>> 6) >= levels[0].length) return;
+        for (var words: levels) {
+            int w = index >>> 6;
+            words[w] &= ~(1L << index);
+            if (words[w] != 0) return;
+            index = w;
+        }
+    }
+
+    public boolean isEmpty() {
+        return levels[levels.length - 1][0] == 0;
+    }
+
+    /**
+     * @return The index of the first set bit at or after the specified index, or -1 if there is none.
+     */
+    public int next(int from) {
+        if (from < 0) from = 0;
+        int level = 0;
+        int index = from;
+        while (true) {
+            if (level == levels.length) return -1;
+            var words = levels[level];
+            int w = index >>> 6;
+            if (w >= words.length) return -1;
+            long word = words[w] & (-1L << index);
+            if (word != 0) {
+                index = (w << 6) | Long.numberOfTrailingZeros(word);
+                break;
+            }
+            level++;
+            index = w + 1;
+        }
+        while (level > 0) {
+            level--;
+            index = (index << 6) | Long.numberOfTrailingZeros(levels[level][index]);
+        }
+        return index;
+    }
+
+    /**
+     * @return The index of the last set bit at or before the specified index, or -1 if there is none.
+     */
+    public int previous(int from) {
+        if (from < 0) return -1;
+        int level = 0;
+        int index = from;
+        while (true) {
+            if (level == levels.length) return -1;
+            var words = levels[level];
+            int w = index >>> 6;
+            long word;
+            if (w >= words.length) {
+                w = words.length - 1;
+                word = words[w];
+            } else {
+                word = words[w] & (-1L >>> (63 - (index & 63)));
+            }
+            if (word != 0) {
+                index = (w << 6) | (63 - Long.numberOfLeadingZeros(word));
+                break;
+            }
+            if (w == 0) return -1;
+            level++;
+            index = w - 1;
+        }
+        while (level > 0) {
+            level--;
+            index = (index << 6) | (63 - Long.numberOfLeadingZeros(levels[level][index]));
+        }
+        return index;
+    }
+}
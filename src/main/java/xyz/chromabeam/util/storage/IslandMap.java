@@ -0,0 +1,245 @@
+package xyz.chromabeam.util.storage;
+
+import xyz.chromabeam.engine.beam.BeamStore;
+import xyz.chromabeam.util.IntStack;
+
+import java.util.Arrays;
+
+/**
+ * Keeps track of the connected components ("islands") of the beam graph of a {@link BeamMap}. Two neighboring cells are
+ * connected if either of them can emit a beam, and the other one can receive it. Cells of different islands can never
+ * affect each other within a tick, so islands can be simulated independently.
+ *
+ * Merging is done eagerly with a union-find over cell slots. Splitting (removing a cell, or putting a cell between two
+ * linked neighbors) only marks the island dirty, and dirty islands are re-flooded from their member lists by
+ * {@link #rebuild()}. Every island keeps its members in a circular linked list, so that merges are O(1), and re-flooding
+ * an island is proportional to its own size, not to the size of the world. The slots of removed cells must not be
+ * reused before the next rebuild.
+ */
+public class IslandMap {
+    public static final byte EMITS = 1;
+    public static final byte RECEIVES = 2;
+
+    private static final int INITIAL_CELLS = 256;
+
+    private final BeamMap beamMap;
+    private final IntStack dirty = new IntStack();
+    private final IntStack members = new IntStack();
+    private final int[] neighbors = new int[4];
+
+    private int[] parent = new int[INITIAL_CELLS];
+    private int[] size = new int[INITIAL_CELLS];
+    private int[] next = new int[INITIAL_CELLS];
+    private int[] rebuilt = new int[INITIAL_CELLS];
+    private int[] labels = new int[INITIAL_CELLS];
+    private int[] labelStamps = new int[INITIAL_CELLS];
+    private byte[] capabilities = new byte[INITIAL_CELLS];
+    private boolean[] alive = new boolean[INITIAL_CELLS];
+
+    private int rebuildEpoch = 0;
+    private int labelEpoch = 0;
+    private int labelCount = 0;
+
+    public IslandMap(BeamMap beamMap) {
+        this.beamMap = beamMap;
+    }
+
+    private void ensureCapacity(int cell) {
+        if (cell < parent.length) return;
+        int cells = Math.max(cell + 1, parent.length + (parent.length >>> 1));
+        parent = Arrays.copyOf(parent, cells);
+        size = Arrays.copyOf(size, cells);
+        next = Arrays.copyOf(next, cells);
+        rebuilt = Arrays.copyOf(rebuilt, cells);
+        labels = Arrays.copyOf(labels, cells);
+        labelStamps = Arrays.copyOf(labelStamps, cells);
+        capabilities = Arrays.copyOf(capabilities, cells);
+        alive = Arrays.copyOf(alive, cells);
+    }
+
+    private void makeSingleton(int cell) {
+        parent[cell] = cell;
+        size[cell] = 1;
+        next[cell] = cell;
+    }
+
+    /**
+     * @return The root cell of the island containing the cell. Only valid until the next edit or {@link #rebuild()}.
+     */
+    public int find(int cell) {
+        int root = cell;
+        while (parent[root] != root) root = parent[root];
+        while (parent[cell] != root) {
+            int up = parent[cell];
+            parent[cell] = root;
+            cell = up;
+        }
+        return root;
+    }
+
+    private void union(int a, int b) {
+        a = find(a);
+        b = find(b);
+        if (a == b) return;
+        if (size[a] < size[b]) {
+            int t = a;
+            a = b;
+            b = t;
+        }
+        parent[b] = a;
+        size[a] += size[b];
+        //Splice the two circular member lists together
+        int an = next[a];
+        int bn = next[b];
+        next[a] = bn;
+        next[b] = an;
+    }
+
+    private boolean alive(int cell) {
+        return cell != BeamStore.NONE && cell < alive.length && alive[cell];
+    }
+
+    private boolean connected(int a, int b) {
+        return ((capabilities[a] & EMITS) != 0 && (capabilities[b] & RECEIVES) != 0)
+                || ((capabilities[b] & EMITS) != 0 && (capabilities[a] & RECEIVES) != 0);
+    }
+
+    /**
+     * Fills {@link #neighbors} with the cells hit by the 4 beams of the cell, or {@link BeamStore#NONE}.
+     */
+    private void findNeighbors(int cell) {
+        var beams = beamMap.beams();
+        for (int i = 0; i < 4; i++) {
+            neighbors[i] = beams.targetCell(BeamStore.beam(cell, i));
+        }
+    }
+
+    private void connectNeighbors(int cell) {
+        findNeighbors(cell);
+        for (int i = 0; i < 4; i++) {
+            int neighbor = neighbors[i];
+            if (alive(neighbor) && connected(cell, neighbor)) {
+                union(cell, neighbor);
+            }
+        }
+    }
+
+    /**
+     * Must be called after the cell was set up in the beam map.
+     * @param capabilities A combination of {@link #EMITS} and {@link #RECEIVES}
+     */
+    public void add(int cell, byte capabilities) {
+        ensureCapacity(cell);
+        makeSingleton(cell);
+        this.capabilities[cell] = capabilities;
+        alive[cell] = true;
+        findNeighbors(cell);
+        //The new cell cut the links between its opposite neighbors, which might split their island.
+        for (int i = 0; i < 2; i++) {
+            int a = neighbors[i];
+            int b = neighbors[i + 2];
+            if (alive(a) && alive(b) && connected(a, b) && !(connected(cell, a) && connected(cell, b))) {
+                dirty.push(a);
+            }
+        }
+        connectNeighbors(cell);
+    }
+
+    /**
+     * Must be called when the component of a cell is replaced, as the connections of the cell might change.
+     */
+    public void update(int cell, byte capabilities) {
+        if (this.capabilities[cell] == capabilities) return;
+        this.capabilities[cell] = capabilities;
+        dirty.push(cell);
+        connectNeighbors(cell);
+    }
+
+    /**
+     * Must be called before the cell is removed from the beam map.
+     */
+    public void remove(int cell) {
+        findNeighbors(cell);
+        alive[cell] = false;
+        //The cell stays in the member list and in the union-find tree until its island is rebuilt, other members might
+        //still point through it. Cell slots are only reused after the next rebuild.
+        dirty.push(cell);
+        //The opposite neighbors of the removed cell are about to be linked together.
+        for (int i = 0; i < 2; i++) {
+            int a = neighbors[i];
+            int b = neighbors[i + 2];
+            if (alive(a) && alive(b) && connected(a, b)) {
+                union(a, b);
+            }
+        }
+    }
+
+    /**
+     * Must be called when a cell got linked to new neighbors without being edited itself, for example when the cells
+     * between it and its new neighbors were removed in bulk. Call {@link #remove(int)} for those cells first.
+     */
+    public void relink(int cell) {
+        if (alive(cell)) connectNeighbors(cell);
+    }
+
+    /**
+     * Splits every island that was marked dirty by an edit since the last rebuild into its actual connected components.
+     */
+    public void rebuild() {
+        if (dirty.empty()) return;
+        rebuildEpoch++;
+        while (!dirty.empty()) {
+            int start = dirty.pop();
+            if (rebuilt[start] == rebuildEpoch) continue;
+            members.clear();
+            int cell = start;
+            do {
+                members.push(cell);
+                cell = next[cell];
+            } while (cell != start);
+            for (int i = 0; i < members.size(); i++) {
+                int member = members.get(i);
+                makeSingleton(member);
+                rebuilt[member] = rebuildEpoch;
+            }
+            //Removed cells are dropped from the island here for good.
+            for (int i = 0; i < members.size(); i++) {
+                int member = members.get(i);
+                if (alive[member]) connectNeighbors(member);
+            }
+        }
+    }
+
+    /**
+     * Starts a new labeling round, see {@link #label(int)}.
+     */
+    public void resetLabels() {
+        labelEpoch++;
+        labelCount = 0;
+    }
+
+    /**
+     * Assigns dense ids to the islands in the order they are first queried since the last {@link #resetLabels()}.
+     * {@link #rebuild()} must be called before labeling.
+     * @return The id of the island containing the cell, between 0 and {@link #labelCount()} - 1.
+     */
+    public int label(int cell) {
+        int root = find(cell);
+        if (labelStamps[root] != labelEpoch) {
+            labelStamps[root] = labelEpoch;
+            labels[root] = labelCount++;
+        }
+        return labels[root];
+    }
+
+    public int labelCount() {
+        return labelCount;
+    }
+
+    /**
+     * @return The amount of cells in the island containing the cell. Only exact right after {@link #rebuild()}.
+     */
+    public int islandSize(int cell) {
+        return size[find(cell)];
+    }
+}
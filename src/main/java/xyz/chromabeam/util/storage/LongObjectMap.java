@@ -0,0 +1,123 @@
+package xyz.chromabeam.util.storage;
+
+import java.util.function.Function;
+
+/**
+ * An open-addressing hash map with primitive long keys. Avoids boxing the keys, and the per-entry node objects of
+ * {@link java.util.HashMap}. Null values are not allowed, a null value marks an empty slot.
+ */
+public class LongObjectMap<V> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Function<Integer, V[]> arrayCreator;
+    private long[] keys;
+    private V[] values;
+    private int mask;
+    private int size = 0;
+
+    public LongObjectMap(Function<Integer, V[]> arrayCreator) {
+        this.arrayCreator = arrayCreator;
+        keys = new long[INITIAL_CAPACITY];
+        values = arrayCreator.apply(INITIAL_CAPACITY);
+        mask = INITIAL_CAPACITY - 1;
+    }
+
+    private static int hash(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ (key >>> 32));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public V get(long key) {
+        int i = hash(key) & mask;
+        V value;
+        while ((value = values[i]) != null) {
+            if (keys[i] == key) return value;
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * @return The previous value mapped to the key, or null if there was none
+     */
+    public V put(long key, V value) {
+        if (value == null) return remove(key);
+        int i = hash(key) & mask;
+        V old;
+        while ((old = values[i]) != null) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > (mask + 1) >>> 1) {
+            resize((mask + 1) << 1);
+        }
+        return null;
+    }
+
+    /**
+     * @return The value that was mapped to the key, or null if there was none
+     */
+    public V remove(long key) {
+        int i = hash(key) & mask;
+        V old;
+        while ((old = values[i]) != null) {
+            if (keys[i] == key) {
+                shiftBack(i);
+                size--;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    public void clear() {
+        keys = new long[INITIAL_CAPACITY];
+        values = arrayCreator.apply(INITIAL_CAPACITY);
+        mask = INITIAL_CAPACITY - 1;
+        size = 0;
+    }
+
+    //Backward shift deletion, keeps every probe chain intact without tombstones.
+    private void shiftBack(int hole) {
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            var value = values[i];
+            if (value == null) break;
+            int home = hash(keys[i]) & mask;
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                values[hole] = value;
+                hole = i;
+            }
+        }
+        values[hole] = null;
+    }
+
+    private void resize(int capacity) {
+        var oldKeys = keys;
+        var oldValues = values;
+        keys = new long[capacity];
+        values = arrayCreator.apply(capacity);
+        mask = capacity - 1;
+        for (int j = 0; j < oldValues.length; j++) {
+            var value = oldValues[j];
+            if (value != null) {
+                int i = hash(oldKeys[j]) & mask;
+                while (values[i] != null) i = (i + 1) & mask;
+                keys[i] = oldKeys[j];
+                values[i] = value;
+            }
+        }
+    }
+}
@@ -3,7 +3,9 @@ package xyz.chromabeam.util.storage;
 import org.joml.Vector2i;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.function.Function;
@@ -11,15 +13,25 @@ import java.util.function.Function;
 public class NativeContainer2D<T> implements Container2D<T>{
     private T[][][] quadrants;
     private int size;
-    private final List<T> contents = new ArrayList<>();
+    private final ArrayList<T> contents = new ArrayList<>();
     private final Function<Integer, T[]> rowCreator;
     private final Function<Integer, T[][]> quadrantCreator;
     private final Function<Integer, T[][][]> storageCreator;
 
+    /**
+     * Occupancy index for the directional queries, in folded coordinates. rowIndex[quadrant][y] has bit x set if the
+     * cell (x, y) of the quadrant is occupied, columnIndex[quadrant][x] has bit y set.
+     */
+    private final HierarchicalBitSet[][] rowIndex = new HierarchicalBitSet[4][];
+    private final HierarchicalBitSet[][] columnIndex = new HierarchicalBitSet[4][];
+    private final Vector2i queryBuffer = new Vector2i();
+
     public NativeContainer2D(Function<Integer, T[]> rowCreator, Function<Integer, T[][]> quadrantCreator, Function<Integer, T[][][]> storageCreator) {
         quadrants = storageCreator.apply(4);
         for (int i = 0; i < 4; i++) {
             quadrants[i] = quadrantCreator.apply(64);
+            rowIndex[i] = new HierarchicalBitSet[64];
+            columnIndex[i] = new HierarchicalBitSet[64];
         }
         this.rowCreator = rowCreator;
         this.quadrantCreator = quadrantCreator;
@@ -45,7 +57,7 @@ public class NativeContainer2D<T> implements Container2D<T>{
     }
 
     public T set(int x, int y, T data) {
-        if (data == null) remove(x, y);
+        if (data == null) return remove(x, y);
         var id = ((y >>> 31) << 1) | (x >>> 31);
         var quadrant = quadrants[id];
         x = x < 0 ? ~x : x;
@@ -68,14 +80,33 @@ public class NativeContainer2D<T> implements Container2D<T>{
         contents.add(data);
         if (old == null) {
             size++;
+            rowIndex[id] = mark(rowIndex[id], y, x);
+            columnIndex[id] = mark(columnIndex[id], x, y);
         } else {
             contents.remove(old);
         }
         return old;
     }
 
+    @Override
+    public void ensureCapacity(int elements) {
+        contents.ensureCapacity(contents.size() + elements);
+    }
+
     public T remove(int x, int y) {
-        var quadrant = quadrants[((y >>> 31) << 1) | (x >>> 31)];
+        var result = removeCell(x, y);
+        if (result != null) {
+            contents.remove(result);
+        }
+        return result;
+    }
+
+    /**
+     * Removes the cell everywhere except from {@link #contents}, which is up to the caller.
+     */
+    private T removeCell(int x, int y) {
+        var id = ((y >>> 31) << 1) | (x >>> 31);
+        var quadrant = quadrants[id];
 
         x = x < 0 ? ~x : x;
         y = y < 0 ? ~y : y;
@@ -85,8 +116,9 @@ public class NativeContainer2D<T> implements Container2D<T>{
                 var result = row[x];
                 row[x] = null;
                 if (result != null) {
-                    contents.remove(result);
                     size--;
+                    unmark(rowIndex[id], y, x);
+                    unmark(columnIndex[id], x, y);
                 }
                 return result;
             }
@@ -94,6 +126,23 @@ public class NativeContainer2D<T> implements Container2D<T>{
         return null;
     }
 
+    @Override
+    public void removeAll(int x, int y, int width, int height, boolean[] mask, T[] removed) {
+        var dropped = Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+        for (int j = 0; j < height; j++) {
+            for (int i = 0; i < width; i++) {
+                int index = j * width + i;
+                var old = mask == null || mask[index] ? removeCell(x + i, y + j) : null;
+                removed[index] = old;
+                if (old != null) dropped.add(old);
+            }
+        }
+        //Removing from the middle of the contents list is linear, so it's only compacted once.
+        if (!dropped.isEmpty()) {
+            contents.removeIf(dropped::contains);
+        }
+    }
+
     @Override
     public boolean isEmpty(int x, int y) {
         return get(x, y) == null;
@@ -101,6 +150,13 @@ public class NativeContainer2D<T> implements Container2D<T>{
 
     public void clear() {
         quadrants = storageCreator.apply(4);
+        for (int i = 0; i < 4; i++) {
+            quadrants[i] = quadrantCreator.apply(64);
+            rowIndex[i] = new HierarchicalBitSet[64];
+            columnIndex[i] = new HierarchicalBitSet[64];
+        }
+        contents.clear();
+        size = 0;
     }
 
     @Override
@@ -110,128 +166,44 @@ public class NativeContainer2D<T> implements Container2D<T>{
 
     @Override
     public boolean isEmptyUp(int x, int y) {
-        int xI = x >= 0 ? 0 : 1;
-        x = x < 0 ? ~x : x;
-        if (y > 0) {
-            var quadrant = quadrants[xI];
-            for (y = Math.min(quadrant.length - 1, y - 1); y >= 0; y--) {
-                var line = quadrant[y];
-                if (line != null && line.length > x && line[x] != null) return false;
-            }
-            y = 0;
-        }
-        var quadrant = quadrants[2 + xI];
-        y = -y;
-        for (; y < quadrant.length; y++) {
-            var line = quadrant[y];
-            if (line != null && line.length > x && line[x] != null) return false;
-        }
-        return true;
+        return !getUp(x, y, queryBuffer);
     }
 
     @Override
     public boolean isEmptyDown(int x, int y) {
-        int xI = x >= 0 ? 0 : 1;
-        x = x < 0 ? ~x : x;
-        if (y < -1) {
-            var quadrant = quadrants[2 + xI];
-            for (y = Math.min(quadrant.length - 1, ~y - 1); y >= 0; y--) {
-                var line = quadrant[y];
-                if (line != null && line.length > x && line[x] != null) return false;
-            }
-            y = -1;
-        }
-        var quadrant = quadrants[xI];
-        y++;
-        for (; y < quadrant.length; y++) {
-            var line = quadrant[y];
-            if (line != null && line.length > x && line[x] != null) return false;
-        }
-        return true;
+        return !getDown(x, y, queryBuffer);
     }
 
     @Override
     public boolean isEmptyLeft(int x, int y) {
-        int yI = y >= 0 ? 0 : 2;
-        y = y < 0 ? ~y : y;
-        if (x > 0) {
-            var quadrant = quadrants[yI];
-            if (y < quadrant.length) {
-                var line = quadrant[y];
-                if (line != null) {
-                    for (x = Math.min(line.length - 1, x); x >= 0; x--) {
-                        if (line[x] != null) return false;
-                    }
-                }
-            }
-            x = 0;
-        }
-        var quadrant = quadrants[yI + 1];
-        if (y < quadrant.length) {
-            var line = quadrant[y];
-            if (line != null) {
-                x = -x;
-                for (; x < line.length; x++) {
-                    if (line[x] != null) return false;
-                }
-            }
-        }
-        return true;
+        return !getLeft(x, y, queryBuffer);
     }
 
     @Override
     public boolean isEmptyRight(int x, int y) {
-        int yI = y >= 0 ? 0 : 2;
-        y = y < 0 ? ~y : y;
-        if (x < -1) {
-            var quadrant = quadrants[yI + 1];
-            if (y < quadrant.length) {
-                var line = quadrant[y];
-                if (line != null) {
-                    for (x = Math.min(line.length - 1, ~x - 1); x >= 0; x--) {
-                        if (line[x] != null) return false;
-                    }
-                }
-            }
-            x = -1;
-        }
-        var quadrant = quadrants[yI];
-        if (y < quadrant.length) {
-            var line = quadrant[y];
-            if (line != null) {
-                x++;
-                for (; x < line.length; x++) {
-                    if (line[x] != null) return false;
-                }
-            }
-        }
-        return true;
+        return !getRight(x, y, queryBuffer);
     }
 
+    //The queries below run in folded (quadrant-local) coordinates, where moving towards negative infinity means
+    //moving towards larger indices inside the negative quadrants.
+
     @Override
     public boolean getUp(int x, int y, Vector2i buffer) {
         buffer.x = x;
         int xI = x >= 0 ? 0 : 1;
         x = x < 0 ? ~x : x;
         if (y > 0) {
-            var quadrant = quadrants[xI];
-            for (y = Math.min(quadrant.length - 1, y - 1); y >= 0; y--) {
-                var line = quadrant[y];
-                if (line != null && line.length > x && line[x] != null) {
-                    buffer.y = y;
-                    return true;
-                }
+            int found = previous(columnIndex[xI], x, y - 1);
+            if (found >= 0) {
+                buffer.y = found;
+                return true;
             }
             y = 0;
         }
-        var quadrant = quadrants[2 + xI];
-        y = -y;
-        for (; y < quadrant.length; y++) {
-            var line = quadrant[y];
-            if (line != null && line.length > x && line[x] != null) {
-                buffer.y = ~y;
-                return true;
-            }
+        int found = next(columnIndex[2 + xI], x, -y);
+        if (found >= 0) {
+            buffer.y = ~found;
+            return true;
         }
         return false;
     }
@@ -242,24 +214,17 @@ public class NativeContainer2D<T> implements Container2D<T>{
         int xI = x >= 0 ? 0 : 1;
         x = x < 0 ? ~x : x;
         if (y < -1) {
-            var quadrant = quadrants[2 + xI];
-            for (y = Math.min(quadrant.length - 1, ~y - 1); y >= 0; y--) {
-                var line = quadrant[y];
-                if (line != null && line.length > x && line[x] != null) {
-                    buffer.y = ~y;
-                    return true;
-                }
+            int found = previous(columnIndex[2 + xI], x, ~y - 1);
+            if (found >= 0) {
+                buffer.y = ~found;
+                return true;
             }
             y = -1;
         }
-        var quadrant = quadrants[xI];
-        y++;
-        for (; y < quadrant.length; y++) {
-            var line = quadrant[y];
-            if (line != null && line.length > x && line[x] != null) {
-                buffer.y = y;
-                return true;
-            }
+        int found = next(columnIndex[xI], x, y + 1);
+        if (found >= 0) {
+            buffer.y = found;
+            return true;
         }
         return false;
     }
@@ -270,32 +235,17 @@ public class NativeContainer2D<T> implements Container2D<T>{
         int yI = y >= 0 ? 0 : 2;
         y = y < 0 ? ~y : y;
         if (x > 0) {
-            var quadrant = quadrants[yI];
-            if (y < quadrant.length) {
-                var line = quadrant[y];
-                if (line != null) {
-                    for (x = Math.min(line.length - 1, x - 1); x >= 0; x--) {
-                        if (line[x] != null) {
-                            buffer.x = x;
-                            return true;
-                        }
-                    }
-                }
+            int found = previous(rowIndex[yI], y, x - 1);
+            if (found >= 0) {
+                buffer.x = found;
+                return true;
             }
             x = 0;
         }
-        var quadrant = quadrants[yI + 1];
-        if (y < quadrant.length) {
-            var line = quadrant[y];
-            if (line != null) {
-                x = -x;
-                for (; x < line.length; x++) {
-                    if (line[x] != null) {
-                        buffer.x = ~x;
-                        return true;
-                    }
-                }
-            }
+        int found = next(rowIndex[yI + 1], y, -x);
+        if (found >= 0) {
+            buffer.x = ~found;
+            return true;
         }
         return false;
     }
@@ -306,36 +256,49 @@ public class NativeContainer2D<T> implements Container2D<T>{
         int yI = y >= 0 ? 0 : 2;
         y = y < 0 ? ~y : y;
         if (x < -1) {
-            var quadrant = quadrants[yI + 1];
-            if (y < quadrant.length) {
-                var line = quadrant[y];
-                if (line != null) {
-                    for (x = Math.min(line.length - 1, ~x - 1); x >= 0; x--) {
-                        if (line[x] != null) {
-                            buffer.x = ~x;
-                            return true;
-                        }
-                    }
-                }
+            int found = previous(rowIndex[yI + 1], y, ~x - 1);
+            if (found >= 0) {
+                buffer.x = ~found;
+                return true;
             }
             x = -1;
         }
-        var quadrant = quadrants[yI];
-        if (y < quadrant.length) {
-            var line = quadrant[y];
-            if (line != null) {
-                x++;
-                for (; x < line.length; x++) {
-                    if (line[x] != null) {
-                        buffer.x = x;
-                        return true;
-                    }
-                }
-            }
+        int found = next(rowIndex[yI], y, x + 1);
+        if (found >= 0) {
+            buffer.x = found;
+            return true;
         }
         return false;
     }
 
+    private static int next(HierarchicalBitSet[] lines, int line, int from) {
+        if (line >= lines.length || lines[line] == null) return -1;
+        return lines[line].next(from);
+    }
+
+    private static int previous(HierarchicalBitSet[] lines, int line, int from) {
+        if (line >= lines.length || lines[line] == null) return -1;
+        return lines[line].previous(from);
+    }
+
+    private static HierarchicalBitSet[] mark(HierarchicalBitSet[] lines, int line, int bit) {
+        if (line >= lines.length) {
+            lines = Arrays.copyOf(lines, line + 256);
+        }
+        var bits = lines[line];
+        if (bits == null) {
+            lines[line] = bits = new HierarchicalBitSet();
+        }
+        bits.set(bit);
+        return lines;
+    }
+
+    private static void unmark(HierarchicalBitSet[] lines, int line, int bit) {
+        if (line < lines.length && lines[line] != null) {
+            lines[line].clear(bit);
+        }
+    }
+
     @Override
     public Iterator<T> iterator() {
         return new Iterator<>() {
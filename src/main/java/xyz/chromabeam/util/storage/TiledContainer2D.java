@@ -0,0 +1,411 @@
+package xyz.chromabeam.util.storage;
+
+import org.joml.Vector2i;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * A sparse {@link Container2D} made of fixed size 64x64 tiles, stored in a primitive-keyed hash map. Only tiles with at
+ * least one element are allocated, so memory scales with the occupied area, instead of the coordinate extent like in
+ * {@link NativeContainer2D}. A single element at x = 50 000 000 costs one tile, not a 50 million long row.
+ *
+ * Every tile keeps a 64-bit occupancy mask per row and per column, and every row/column of tiles keeps a sorted list of
+ * its allocated tiles, so the directional queries never walk empty cells or empty tiles.
+ *
+ * Iteration goes tile by tile (sorted by tile row, then tile column), and row by row inside a tile.
+ */
+public class TiledContainer2D<T> implements Container2D<T> {
+    public static final int TILE_SHIFT = 6;
+    public static final int TILE_SIZE = 1 << TILE_SHIFT;
+    private static final int TILE_MASK = TILE_SIZE - 1;
+
+    private static final class Tile<T> {
+        final int x;
+        final int y;
+        final T[] cells;
+        /**
+         * Bit n of rows[r] is set if the cell (n, r) of this tile is occupied.
+         */
+        final long[] rows = new long[TILE_SIZE];
+        /**
+         * Bit n of columns[c] is set if the cell (c, n) of this tile is occupied.
+         */
+        final long[] columns = new long[TILE_SIZE];
+        int count = 0;
+        /**
+         * The position of this tile in the tile list.
+         */
+        int index;
+
+        Tile(int x, int y, T[] cells) {
+            this.x = x;
+            this.y = y;
+            this.cells = cells;
+        }
+    }
+
+    /**
+     * A sorted set of tile coordinates along a single row or column of tiles.
+     */
+    private static final class TileLine {
+        int[] values = new int[4];
+        int size = 0;
+
+        void add(int value) {
+            int i = Arrays.binarySearch(values, 0, size, value);
+            if (i >= 0) return;
+            i = ~i;
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            System.arraycopy(values, i, values, i + 1, size - i);
+            values[i] = value;
+            size++;
+        }
+
+        void remove(int value) {
+            int i = Arrays.binarySearch(values, 0, size, value);
+            if (i < 0) return;
+            System.arraycopy(values, i + 1, values, i, size - i - 1);
+            size--;
+        }
+
+        /**
+         * @return The index of the first value strictly greater than the specified one.
+         */
+        int higher(int value) {
+            int i = Arrays.binarySearch(values, 0, size, value);
+            return i >= 0 ? i + 1 : ~i;
+        }
+
+        /**
+         * @return The index of the last value strictly smaller than the specified one, or -1 if there is none.
+         */
+        int lower(int value) {
+            int i = Arrays.binarySearch(values, 0, size, value);
+            return (i >= 0 ? i : ~i) - 1;
+        }
+    }
+
+    private static final Comparator<Tile<?>> TILE_ORDER = Comparator.<Tile<?>>comparingInt(tile -> tile.y).thenComparingInt(tile -> tile.x);
+
+    private final Function<Integer, T[]> tileCreator;
+    private final LongObjectMap<Tile<T>> tiles;
+    private final LongObjectMap<TileLine> tileRows = new LongObjectMap<>(TileLine[]::new);
+    private final LongObjectMap<TileLine> tileColumns = new LongObjectMap<>(TileLine[]::new);
+    private final List<Tile<T>> tileList = new ArrayList<>();
+    private boolean tileListSorted = true;
+    private long size = 0;
+
+    private final Vector2i queryBuffer = new Vector2i();
+
+    /**
+     * @param tileCreator Creates the backing array of a tile. Always called with {@link #TILE_SIZE}^2.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TiledContainer2D(Function<Integer, T[]> tileCreator) {
+        this.tileCreator = tileCreator;
+        this.tiles = new LongObjectMap<>(Tile[]::new);
+    }
+
+    private static long key(int tileX, int tileY) {
+        return ((long) tileX << 32) | (tileY & 0xFFFFFFFFL);
+    }
+
+    private static int index(int x, int y) {
+        return ((y & TILE_MASK) << TILE_SHIFT) | (x & TILE_MASK);
+    }
+
+    private Tile<T> tile(int x, int y) {
+        return tiles.get(key(x >> TILE_SHIFT, y >> TILE_SHIFT));
+    }
+
+    /**
+     * @return The amount of allocated tiles.
+     */
+    public int getTileCount() {
+        return tiles.size();
+    }
+
+    @Override
+    public long getElementCount() {
+        return size;
+    }
+
+    @Override
+    public T get(int x, int y) {
+        var tile = tile(x, y);
+        return tile == null ? null : tile.cells[index(x, y)];
+    }
+
+    @Override
+    public T set(int x, int y, T data) {
+        if (data == null) return remove(x, y);
+        int tX = x >> TILE_SHIFT;
+        int tY = y >> TILE_SHIFT;
+        var tile = tiles.get(key(tX, tY));
+        if (tile == null) {
+            tile = new Tile<>(tX, tY, tileCreator.apply(TILE_SIZE * TILE_SIZE));
+            tiles.put(key(tX, tY), tile);
+            line(tileRows, tY).add(tX);
+            line(tileColumns, tX).add(tY);
+            tile.index = tileList.size();
+            tileList.add(tile);
+            tileListSorted = false;
+        }
+        int i = index(x, y);
+        var old = tile.cells[i];
+        tile.cells[i] = data;
+        if (old == null) {
+            int lX = x & TILE_MASK;
+            int lY = y & TILE_MASK;
+            tile.rows[lY] |= 1L << lX;
+            tile.columns[lX] |= 1L << lY;
+            tile.count++;
+            size++;
+        }
+        return old;
+    }
+
+    @Override
+    public T remove(int x, int y) {
+        var tile = tile(x, y);
+        if (tile == null) return null;
+        int i = index(x, y);
+        var old = tile.cells[i];
+        if (old != null) {
+            tile.cells[i] = null;
+            int lX = x & TILE_MASK;
+            int lY = y & TILE_MASK;
+            tile.rows[lY] &= ~(1L << lX);
+            tile.columns[lX] &= ~(1L << lY);
+            size--;
+            if (--tile.count == 0) {
+                dropTile(tile);
+            }
+        }
+        return old;
+    }
+
+    private static TileLine line(LongObjectMap<TileLine> lines, int coordinate) {
+        var line = lines.get(coordinate);
+        if (line == null) {
+            lines.put(coordinate, line = new TileLine());
+        }
+        return line;
+    }
+
+    private static void removeFromLine(LongObjectMap<TileLine> lines, int coordinate, int value) {
+        var line = lines.get(coordinate);
+        line.remove(value);
+        if (line.size == 0) lines.remove(coordinate);
+    }
+
+    private void dropTile(Tile<T> tile) {
+        tiles.remove(key(tile.x, tile.y));
+        removeFromLine(tileRows, tile.y, tile.x);
+        removeFromLine(tileColumns, tile.x, tile.y);
+        //Swap remove, the list is sorted again before the next iteration
+        var last = tileList.remove(tileList.size() - 1);
+        if (last != tile) {
+            last.index = tile.index;
+            tileList.set(tile.index, last);
+            tileListSorted = false;
+        }
+    }
+
+    @Override
+    public boolean isEmpty(int x, int y) {
+        return get(x, y) == null;
+    }
+
+    @Override
+    public void clear() {
+        tiles.clear();
+        tileRows.clear();
+        tileColumns.clear();
+        tileList.clear();
+        tileListSorted = true;
+        size = 0;
+    }
+
+    @Override
+    public List<T> getNonNullUnordered() {
+        var result = new ArrayList<T>((int) size);
+        for (var element: this) {
+            result.add(element);
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    @Override
+    public boolean isEmptyRight(int x, int y) {
+        return !getRight(x, y, queryBuffer);
+    }
+
+    @Override
+    public boolean isEmptyDown(int x, int y) {
+        return !getDown(x, y, queryBuffer);
+    }
+
+    @Override
+    public boolean isEmptyLeft(int x, int y) {
+        return !getLeft(x, y, queryBuffer);
+    }
+
+    @Override
+    public boolean isEmptyUp(int x, int y) {
+        return !getUp(x, y, queryBuffer);
+    }
+
+    @Override
+    public boolean getRight(int x, int y, Vector2i buffer) {
+        int tX = x >> TILE_SHIFT;
+        int tY = y >> TILE_SHIFT;
+        int lY = y & TILE_MASK;
+        var tile = tiles.get(key(tX, tY));
+        if (tile != null) {
+            long mask = tile.rows[lY] & (-2L << (x & TILE_MASK));
+            if (mask != 0) {
+                buffer.set((tX << TILE_SHIFT) | Long.numberOfTrailingZeros(mask), y);
+                return true;
+            }
+        }
+        var line = tileRows.get(tY);
+        if (line == null) return false;
+        for (int i = line.higher(tX); i < line.size; i++) {
+            int nX = line.values[i];
+            long mask = tiles.get(key(nX, tY)).rows[lY];
+            if (mask != 0) {
+                buffer.set((nX << TILE_SHIFT) | Long.numberOfTrailingZeros(mask), y);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean getLeft(int x, int y, Vector2i buffer) {
+        int tX = x >> TILE_SHIFT;
+        int tY = y >> TILE_SHIFT;
+        int lY = y & TILE_MASK;
+        var tile = tiles.get(key(tX, tY));
+        if (tile != null) {
+            long mask = tile.rows[lY] & ((1L << (x & TILE_MASK)) - 1);
+            if (mask != 0) {
+                buffer.set((tX << TILE_SHIFT) | (63 - Long.numberOfLeadingZeros(mask)), y);
+                return true;
+            }
+        }
+        var line = tileRows.get(tY);
+        if (line == null) return false;
+        for (int i = line.lower(tX); i >= 0; i--) {
+            int nX = line.values[i];
+            long mask = tiles.get(key(nX, tY)).rows[lY];
+            if (mask != 0) {
+                buffer.set((nX << TILE_SHIFT) | (63 - Long.numberOfLeadingZeros(mask)), y);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean getDown(int x, int y, Vector2i buffer) {
+        int tX = x >> TILE_SHIFT;
+        int tY = y >> TILE_SHIFT;
+        int lX = x & TILE_MASK;
+        var tile = tiles.get(key(tX, tY));
+        if (tile != null) {
+            long mask = tile.columns[lX] & (-2L << (y & TILE_MASK));
+            if (mask != 0) {
+                buffer.set(x, (tY << TILE_SHIFT) | Long.numberOfTrailingZeros(mask));
+                return true;
+            }
+        }
+        var line = tileColumns.get(tX);
+        if (line == null) return false;
+        for (int i = line.higher(tY); i < line.size; i++) {
+            int nY = line.values[i];
+            long mask = tiles.get(key(tX, nY)).columns[lX];
+            if (mask != 0) {
+                buffer.set(x, (nY << TILE_SHIFT) | Long.numberOfTrailingZeros(mask));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean getUp(int x, int y, Vector2i buffer) {
+        int tX = x >> TILE_SHIFT;
+        int tY = y >> TILE_SHIFT;
+        int lX = x & TILE_MASK;
+        var tile = tiles.get(key(tX, tY));
+        if (tile != null) {
+            long mask = tile.columns[lX] & ((1L << (y & TILE_MASK)) - 1);
+            if (mask != 0) {
+                buffer.set(x, (tY << TILE_SHIFT) | (63 - Long.numberOfLeadingZeros(mask)));
+                return true;
+            }
+        }
+        var line = tileColumns.get(tX);
+        if (line == null) return false;
+        for (int i = line.lower(tY); i >= 0; i--) {
+            int nY = line.values[i];
+            long mask = tiles.get(key(tX, nY)).columns[lX];
+            if (mask != 0) {
+                buffer.set(x, (nY << TILE_SHIFT) | (63 - Long.numberOfLeadingZeros(mask)));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        if (!tileListSorted) {
+            tileList.sort(TILE_ORDER);
+            for (int i = 0; i < tileList.size(); i++) {
+                tileList.get(i).index = i;
+            }
+            tileListSorted = true;
+        }
+        return new Iterator<>() {
+            private int tileIndex = -1;
+            private Tile<T> tile = null;
+            private int row = TILE_SIZE;
+            private long remaining = 0;
+
+            private boolean advance() {
+                while (remaining == 0) {
+                    if (++row >= TILE_SIZE) {
+                        if (++tileIndex >= tileList.size()) return false;
+                        tile = tileList.get(tileIndex);
+                        row = 0;
+                    }
+                    remaining = tile.rows[row];
+                }
+                return true;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return remaining != 0 || advance();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                int column = Long.numberOfTrailingZeros(remaining);
+                remaining &= remaining - 1;
+                return tile.cells[(row << TILE_SHIFT) | column];
+            }
+        };
+    }
+}
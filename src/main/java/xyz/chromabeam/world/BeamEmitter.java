@@ -1,7 +1,15 @@
 package xyz.chromabeam.world;
 
 import xyz.chromabeam.beam.Direction;
+import xyz.chromabeam.beam.PackedColor;
 
 public interface BeamEmitter {
     void emit(Direction direction, float red, float green, float blue);
+
+    /**
+     * Emits a {@link PackedColor packed} color. Worlds storing packed colors take it as is, without unpacking.
+     */
+    default void emit(Direction direction, int color) {
+        emit(direction, PackedColor.red(color), PackedColor.green(color), PackedColor.blue(color));
+    }
 }
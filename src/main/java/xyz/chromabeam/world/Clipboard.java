@@ -0,0 +1,145 @@
+package xyz.chromabeam.world;
+
+import xyz.chromabeam.beam.Direction;
+import xyz.chromabeam.component.Component;
+import xyz.chromabeam.component.ComponentRegistry;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Holds a copied rectangle of components in a compact form: the position, orientation and type ID of every component in
+ * primitive arrays, plus the state of the stateful ones in a single byte buffer. Pasting creates fresh components from
+ * the registry and places them all at once with {@link World2D#setAll(int, int, Region)}, optionally rotated and
+ * flipped.
+ */
+public class Clipboard {
+    private static final Direction[] directions = Direction.values();
+    private final ComponentRegistry registry;
+    private int width = 0;
+    private int height = 0;
+    private int count = 0;
+    private int[] positions = new int[64];
+    private byte[] orientations = new byte[64];
+    private int[] types = new int[64];
+    private ByteBuffer states = ByteBuffer.allocate(1024);
+
+    public Clipboard(ComponentRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Copies every component of the rectangle, replacing the previous contents of the clipboard.
+     */
+    public void copy(World2D world, int x, int y, int width, int height) {
+        if (width < 0 || height < 0) throw new IllegalArgumentException("Clipboard size cannot be negative!");
+        this.width = width;
+        this.height = height;
+        count = 0;
+        states.clear();
+        var transform = new ComponentTransform<Component>();
+        for (int j = 0; j < height; j++) {
+            for (int i = 0; i < width; i++) {
+                if (world.get(x + i, y + j) == null) continue;
+                world.getTransform(x + i, y + j, transform);
+                add(j * width + i, transform.direction, transform.flipped, transform.component);
+            }
+        }
+        states.flip();
+    }
+
+    /**
+     * Copies every component of the rectangle, then removes them from the world.
+     */
+    public void cut(World2D world, int x, int y, int width, int height) {
+        copy(world, x, y, width, height);
+        world.removeAll(x, y, width, height, null);
+    }
+
+    private void add(int position, Direction direction, boolean flipped, Component component) {
+        int type = registry.getTypeID(component.getID());
+        if (type < 0) throw new IllegalArgumentException("Component " + component.getID() + " is not registered!");
+        if (count == positions.length) {
+            int size = count + (count >>> 1);
+            positions = Arrays.copyOf(positions, size);
+            orientations = Arrays.copyOf(orientations, size);
+            types = Arrays.copyOf(types, size);
+        }
+        if (states.remaining() < component.stateSize()) {
+            var grown = ByteBuffer.allocate(Math.max(states.capacity() * 2, states.position() + component.stateSize()));
+            states = grown.put(states.flip());
+        }
+        positions[count] = position;
+        orientations[count] = (byte) (direction.ordinal() | (flipped ? 4 : 0));
+        types[count] = type;
+        component.writeState(states);
+        count++;
+    }
+
+    /**
+     * Pastes the clipboard, with its top left corner at the specified position. The contents are flipped vertically
+     * first if requested, like components are, then rotated clockwise by the rotation.
+     */
+    public void paste(World2D world, int x, int y, Direction rotation, boolean flip) {
+        world.setAll(x, y, toRegion(rotation, flip));
+    }
+
+    /**
+     * Same as {@link #paste(World2D, int, int, Direction, boolean)}, saving the pasted components in the journal.
+     */
+    public void paste(EditJournal journal, int x, int y, Direction rotation, boolean flip) {
+        journal.setAll(x, y, toRegion(rotation, flip));
+    }
+
+    /**
+     * Creates new components from the clipboard, laid out with the specified rotation and flip.
+     */
+    public Region toRegion(Direction rotation, boolean flip) {
+        int steps = rotation.ordinal();
+        var region = (steps & 1) == 0 ? new Region(width, height) : new Region(height, width);
+        var state = states.duplicate();
+        for (int n = 0; n < count; n++) {
+            int px = positions[n] % width;
+            int py = positions[n] / width;
+            if (flip) py = height - 1 - py;
+            int w = width;
+            int h = height;
+            for (int s = 0; s < steps; s++) {
+                int t = px;
+                px = h - 1 - py;
+                py = t;
+                t = w;
+                w = h;
+                h = t;
+            }
+            var component = registry.create(types[n]);
+            component.readState(state);
+            var direction = directions[orientations[n] & 3];
+            boolean flipped = (orientations[n] & 4) != 0;
+            //Mirroring a rotated component turns the rotation the other way, and toggles its own flip.
+            if (flip) {
+                direction = rotation.sub(direction);
+                flipped = !flipped;
+            } else {
+                direction = direction.add(rotation);
+            }
+            region.set(px, py, direction, flipped, component);
+        }
+        return region;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return The amount of copied components
+     */
+    public int getComponentCount() {
+        return count;
+    }
+}
@@ -0,0 +1,16 @@
+package xyz.chromabeam.world;
+
+import xyz.chromabeam.component.Component;
+
+/**
+ * Receives the graphics of every component the world places, changes or removes.
+ */
+public interface ComponentDrawer {
+    void set(ComponentTransform<Component> transform);
+
+    /**
+     * Only the colors of the color masks changed, the textures, direction and flip are the same as when last set.
+     */
+    void updateMaskColors(ComponentTransform<Component> transform);
+    void remove(int x, int y);
+}
@@ -5,17 +5,50 @@ import xyz.chromabeam.beam.Direction;
 import xyz.chromabeam.component.ComponentI;
 
 public class ComponentTransform<T extends ComponentI> {
+    /**
+     * Direction conversion tables for every orientation, indexed by (direction ordinal << 1) | flipped, then by the
+     * ordinal of the direction to convert.
+     */
+    private static final Direction[][] LOCAL_TO_WORLD = new Direction[8][4];
+    private static final Direction[][] WORLD_TO_LOCAL = new Direction[8][4];
+    static {
+        for (var direction: Direction.values()) {
+            for (int flip = 0; flip < 2; flip++) {
+                int orientation = (direction.ordinal() << 1) | flip;
+                for (var d: Direction.values()) {
+                    LOCAL_TO_WORLD[orientation][d.ordinal()] = d.applyFlip(flip == 1).add(direction);
+                    WORLD_TO_LOCAL[orientation][d.ordinal()] = d.sub(direction).applyFlip(flip == 1);
+                }
+            }
+        }
+    }
+
     T component;
 
     final Vector2i position = new Vector2i();
     Direction direction;
     boolean flipped;
+    /**
+     * The slot of the component's cell in the beam map.
+     */
+    int cell;
+    /**
+     * The tick the component is scheduled to wake up at, or -1. Stale timing wheel entries are recognized by this not
+     * matching their tick.
+     */
+    long wakeUp = -1;
+    private Direction[] toWorld;
+    private Direction[] toLocal;
 
     ComponentTransform<T> with(T component, int x, int y, Direction direction, boolean flipped) {
         this.component = component;
         this.position.set(x, y);
         this.direction = direction;
         this.flipped = flipped;
+        this.wakeUp = -1;
+        int orientation = (direction.ordinal() << 1) | (flipped ? 1 : 0);
+        this.toWorld = LOCAL_TO_WORLD[orientation];
+        this.toLocal = WORLD_TO_LOCAL[orientation];
         return this;
     }
 
@@ -24,6 +57,36 @@ public class ComponentTransform<T extends ComponentI> {
         this.position.set(other.position);
         this.direction = other.direction;
         this.flipped = other.flipped;
+        this.cell = other.cell;
+        this.wakeUp = other.wakeUp;
+        this.toWorld = other.toWorld;
+        this.toLocal = other.toLocal;
         return this;
     }
+
+    public T getComponent() {
+        return component;
+    }
+
+    public Direction getDirection() {
+        return direction;
+    }
+
+    public boolean isFlipped() {
+        return flipped;
+    }
+
+    /**
+     * Converts a direction relative to the component into a world direction.
+     */
+    Direction toWorld(Direction local) {
+        return toWorld[local.ordinal()];
+    }
+
+    /**
+     * Converts the world direction with the specified ordinal into a direction relative to the component.
+     */
+    Direction toLocal(int world) {
+        return toLocal[world];
+    }
 }
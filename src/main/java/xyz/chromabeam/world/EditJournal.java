@@ -0,0 +1,330 @@
+package xyz.chromabeam.world;
+
+import xyz.chromabeam.beam.Direction;
+import xyz.chromabeam.component.Component;
+import xyz.chromabeam.component.ComponentRegistry;
+import xyz.chromabeam.component.UserInteractive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of the edits made to a world since its last {@link WorldSnapshot snapshot}. Edits go through the
+ * journal, which applies them to the world and appends a record to a pre-allocated buffer. {@link #flush()} writes the
+ * buffered records to the end of the journal file, so autosaving costs as much as the edits since the last flush,
+ * no matter how large the world is. {@link #compact()} folds the journal into a new snapshot.
+ * <p>
+ * Every record is stored as (int length, payload, int CRC32 of the payload). A crash can only leave a torn record at
+ * the end of the file, which replay detects and cuts off. The journal header holds the size and the CRC32 of the
+ * snapshot it continues, so a journal left behind by a compaction that crashed halfway is recognized and dropped
+ * instead of being replayed a second time. Snapshots and journal writes are forced to the disk before anything depends
+ * on them, so an OS crash or a power loss can't leave a renamed but empty snapshot behind either.
+ */
+public class EditJournal implements Closeable {
+    private static final int MAGIC = 0x43425744;
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final byte SET = 0;
+    private static final byte REMOVE = 1;
+    private static final byte INTERACT = 2;
+    private static final byte REMOVE_ALL = 3;
+    private static final Direction[] directions = Direction.values();
+
+    private final World2D world;
+    private final ComponentRegistry registry;
+    private final Path snapshot;
+    private final Path journal;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final CRC32 crc = new CRC32();
+    private FileChannel channel;
+    private long recordCount = 0;
+    private boolean sameTypes = true;
+
+    private EditJournal(World2D world, ComponentRegistry registry, Path snapshot, Path journal) {
+        this.world = world;
+        this.registry = registry;
+        this.snapshot = snapshot;
+        this.journal = journal;
+    }
+
+    /**
+     * Restores the world from the snapshot and the journal, if they exist, and opens the journal for appending.
+     * The world is cleared first.
+     */
+    public static EditJournal open(World2D world, ComponentRegistry registry, Path snapshot, Path journal) throws IOException {
+        var result = new EditJournal(world, registry, snapshot, journal);
+        world.clear();
+        if (Files.exists(snapshot)) {
+            WorldSnapshot.load(world, registry, snapshot);
+        }
+        long end = Files.exists(journal) ? result.replay() : -1;
+        result.channel = FileChannel.open(journal, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+        if (end < 0) {
+            result.reset();
+        } else if (!result.sameTypes) {
+            //New records couldn't use the type numbers of the old header.
+            result.compact();
+        } else {
+            result.channel.truncate(end);
+            result.channel.position(end);
+        }
+        return result;
+    }
+
+    /**
+     * Applies every intact record of the journal file to the world.
+     * @return The length of the intact part of the journal, or -1 if the journal doesn't belong to the snapshot
+     */
+    private long replay() throws IOException {
+        ByteBuffer data;
+        try (var in = FileChannel.open(journal, StandardOpenOption.READ)) {
+            data = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+        }
+        if (data.remaining() < 24 || data.getInt() != MAGIC || data.getInt() != VERSION) return -1;
+        long snapshotSize = data.getLong();
+        int snapshotCrc = data.getInt();
+        if (snapshotSize != snapshotSize() || snapshotCrc != snapshotCrc()) return -1;
+        int typeCount = data.getInt();
+        //Every type takes at least 2 bytes, anything else is a torn header
+        if (typeCount < 0 || typeCount > data.remaining() / 2) return -1;
+        var types = new int[typeCount];
+        sameTypes = typeCount == registry.getTypeCount();
+        try {
+            for (int i = 0; i < typeCount; i++) {
+                var id = new byte[data.getShort() & 0xFFFF];
+                data.get(id);
+                var name = new String(id, StandardCharsets.UTF_8);
+                types[i] = registry.getTypeID(name);
+                if (types[i] < 0) throw new IOException("Unknown component " + name + "!");
+                sameTypes &= types[i] == i;
+            }
+        } catch (BufferUnderflowException e) {
+            //Torn inside the type table, so no record made it to the disk either
+            return -1;
+        }
+        while (data.remaining() >= 4) {
+            int start = data.position();
+            int length = data.getInt();
+            if (length <= 0 || data.remaining() < length + 4) {
+                data.position(start);
+                break;
+            }
+            var payload = data.slice(data.position(), length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != data.getInt(start + 4 + length)) {
+                data.position(start);
+                break;
+            }
+            apply(payload, types);
+            recordCount++;
+            data.position(start + 8 + length);
+        }
+        return data.position();
+    }
+
+    private void apply(ByteBuffer record, int[] types) {
+        byte op = record.get();
+        int x = record.getInt();
+        int y = record.getInt();
+        switch (op) {
+            case SET -> {
+                byte orientation = record.get();
+                var component = registry.create(types[record.getInt()]);
+                component.readState(record);
+                world.set(x, y, directions[orientation & 3], (orientation & 4) != 0, component);
+            }
+            case REMOVE -> world.remove(x, y);
+            case INTERACT -> interactWith(x, y);
+            case REMOVE_ALL -> world.removeAll(x, y, record.getInt(), record.getInt(), null);
+        }
+    }
+
+    private long snapshotSize() throws IOException {
+        return Files.exists(snapshot) ? Files.size(snapshot) : -1;
+    }
+
+    private int snapshotCrc() throws IOException {
+        if (!Files.exists(snapshot)) return 0;
+        try (var in = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            crc.reset();
+            crc.update(in.map(FileChannel.MapMode.READ_ONLY, 0, in.size()));
+            return (int) crc.getValue();
+        }
+    }
+
+    /**
+     * Empties the journal file, and writes a header tying it to the current snapshot.
+     */
+    private void reset() throws IOException {
+        buffer.clear();
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(snapshotSize()).putInt(snapshotCrc());
+        buffer.putInt(registry.getTypeCount());
+        for (int i = 0; i < registry.getTypeCount(); i++) {
+            var id = registry.getPrototype(i).getID().getBytes(StandardCharsets.UTF_8);
+            buffer.putShort((short) id.length).put(id);
+        }
+        channel.truncate(0);
+        channel.position(0);
+        write();
+        channel.force(true);
+        recordCount = 0;
+    }
+
+    public Component set(int x, int y, Direction direction, boolean flipped, Component component) {
+        record(x, y, direction, flipped, component);
+        return world.set(x, y, direction, flipped, component);
+    }
+
+    private void record(int x, int y, Direction direction, boolean flipped, Component component) {
+        int type = registry.getTypeID(component.getID());
+        if (type < 0) throw new IllegalArgumentException("Component " + component.getID() + " is not registered!");
+        int start = begin(14 + component.stateSize(), SET, x, y);
+        buffer.put((byte) (direction.ordinal() | (flipped ? 4 : 0))).putInt(type);
+        component.writeState(buffer);
+        end(start);
+    }
+
+    /**
+     * Places a region with {@link World2D#setAll(int, int, Region)}. Journaled as one record per component, which
+     * ends up the same when replayed one by one.
+     */
+    public void setAll(int x, int y, Region region) {
+        for (int j = 0; j < region.height; j++) {
+            for (int i = 0; i < region.width; i++) {
+                var component = region.get(i, j);
+                if (component != null) record(x + i, y + j, region.getDirection(i, j), region.isFlipped(i, j), component);
+            }
+        }
+        world.setAll(x, y, region);
+    }
+
+    public Region removeAll(int x, int y, int width, int height) {
+        int start = begin(17, REMOVE_ALL, x, y);
+        buffer.putInt(width).putInt(height);
+        end(start);
+        return world.removeAll(x, y, width, height, null);
+    }
+
+    public Component remove(int x, int y) {
+        end(begin(9, REMOVE, x, y));
+        return world.remove(x, y);
+    }
+
+    /**
+     * Clicks on an interactive component, the same way {@link InteractionManager} does.
+     */
+    public void interact(int x, int y) {
+        var component = world.get(x, y);
+        if (component == null || !component.isInteractive()) return;
+        end(begin(9, INTERACT, x, y));
+        interactWith(x, y);
+    }
+
+    private void interactWith(int x, int y) {
+        var component = world.get(x, y);
+        if (component != null && component.isInteractive()) {
+            ((UserInteractive) component).mouseInteraction();
+            world.forceTick(x, y);
+        }
+    }
+
+    /**
+     * Starts a record, flushing the buffer first if the record doesn't fit.
+     * @return The position of the record in the buffer
+     */
+    private int begin(int payloadSize, byte op, int x, int y) {
+        if (payloadSize + 8 > BUFFER_SIZE) throw new IllegalArgumentException("Cannot journal a record of " + payloadSize + " bytes!");
+        if (buffer.remaining() < payloadSize + 8) {
+            try {
+                flush();
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not write the journal!", e);
+            }
+        }
+        int start = buffer.position();
+        buffer.putInt(0).put(op).putInt(x).putInt(y);
+        return start;
+    }
+
+    private void end(int start) {
+        int length = buffer.position() - start - 4;
+        buffer.putInt(start, length);
+        crc.reset();
+        crc.update(buffer.slice(start + 4, length));
+        buffer.putInt((int) crc.getValue());
+        recordCount++;
+    }
+
+    /**
+     * Appends the buffered records to the journal file, and forces them to the disk. Only costs as much as the edits
+     * made since the last flush.
+     */
+    public void flush() throws IOException {
+        if (buffer.position() == 0) return;
+        write();
+        channel.force(false);
+    }
+
+    private void write() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Saves the whole world into a new snapshot, and empties the journal. Costs as much as saving the world.
+     */
+    public void compact() throws IOException {
+        flush();
+        var temp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        WorldSnapshot.save(world, registry, temp);
+        Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(snapshot.toAbsolutePath().getParent());
+        reset();
+    }
+
+    /**
+     * Makes the rename of the snapshot durable. Not every platform can open a directory, in which case the rename is
+     * left to the file system.
+     */
+    private static void forceDirectory(Path directory) {
+        if (directory == null) return;
+        try (var dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            //Directories can't be opened on Windows
+        }
+    }
+
+    /**
+     * @return The amount of records in the journal, including the replayed ones
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * @return The size of the journal file, once flushed
+     */
+    public long size() throws IOException {
+        return channel.size() + buffer.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+}
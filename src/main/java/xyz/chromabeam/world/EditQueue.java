@@ -0,0 +1,382 @@
+package xyz.chromabeam.world;
+
+import xyz.chromabeam.beam.Direction;
+import xyz.chromabeam.component.Component;
+import xyz.chromabeam.component.UserInteractive;
+import xyz.chromabeam.util.storage.LongObjectMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Edits submitted by any amount of threads, applied by the thread that owns the world with {@link #drain()}, usually
+ * the {@link SimulationRunner} between two ticks. Submitting never blocks and never allocates: the edits go into a
+ * fixed size lock-free ring buffer, and are rejected when it's full.
+ * <p>
+ * Draining coalesces the edits of each cell, so a cell that was placed and removed a hundred times since the last
+ * drain is only touched once, and applies them sorted by position. Large dense batches go through
+ * {@link World2D#setAll(int, int, Region)} and {@link World2D#removeAll(int, int, int, int, boolean[])}. Interactions,
+ * bulk edits and clipboard operations depend on what is already in the world, so every edit submitted before them is
+ * applied first.
+ */
+public class EditQueue {
+    private static final byte PLACE = 0;
+    private static final byte REMOVE = 1;
+    private static final byte PLACE_OR_INTERACT = 2;
+    private static final byte REMOVE_ALL = 3;
+    private static final byte PASTE = 4;
+    private static final byte COPY = 5;
+    private static final byte CUT = 6;
+
+    /**
+     * Below this many coalesced edits of one kind, applying them one by one is cheaper than building a region.
+     */
+    private static final int BULK_THRESHOLD = 64;
+    /**
+     * A batch goes through the bulk methods only if it fills at least this fraction of its bounding box.
+     */
+    private static final int BULK_MAX_SPARSENESS = 4;
+
+    private final World2D world;
+    private final EditJournal journal;
+
+    private final int mask;
+    /**
+     * Vyukov's bounded queue: a slot is free for the producer that claimed position p when its sequence is p, and holds
+     * the edit of position p for the consumer when its sequence is p + 1. The sequences publish the plain slot arrays.
+     */
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private long head = 0;
+    private final byte[] ops;
+    private final int[] xs;
+    private final int[] ys;
+    private final int[] widths;
+    private final int[] heights;
+    private final Direction[] directions;
+    private final boolean[] flips;
+    private final Object[] payloads;
+
+    private static final class Pending {
+        int x;
+        int y;
+        boolean remove;
+        Component component;
+        Direction direction;
+        boolean flipped;
+    }
+
+    private final LongObjectMap<Pending> pendingIndex = new LongObjectMap<>(Pending[]::new);
+    private final List<Pending> pending = new ArrayList<>();
+    private int pendingCount = 0;
+    private long[] sortKeys = new long[64];
+
+    /**
+     * @param journal Records every edit, or null to edit the world directly.
+     * @param capacity The most edits that can wait to be drained, rounded up to a power of two.
+     */
+    public EditQueue(World2D world, EditJournal journal, int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) throw new IllegalArgumentException("Invalid edit queue capacity: " + capacity);
+        this.world = world;
+        this.journal = journal;
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        mask = size - 1;
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        ops = new byte[size];
+        xs = new int[size];
+        ys = new int[size];
+        widths = new int[size];
+        heights = new int[size];
+        directions = new Direction[size];
+        flips = new boolean[size];
+        payloads = new Object[size];
+    }
+
+    private boolean offer(byte op, int x, int y, int width, int height, Direction direction, boolean flipped, Object payload) {
+        long position = tail.get();
+        while (true) {
+            long available = sequences.get((int) position & mask) - position;
+            if (available == 0) {
+                if (tail.compareAndSet(position, position + 1)) break;
+                position = tail.get();
+            } else if (available < 0) {
+                rejected.incrementAndGet();
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+        int slot = (int) position & mask;
+        ops[slot] = op;
+        xs[slot] = x;
+        ys[slot] = y;
+        widths[slot] = width;
+        heights[slot] = height;
+        directions[slot] = direction;
+        flips[slot] = flipped;
+        payloads[slot] = payload;
+        sequences.lazySet(slot, position + 1);
+        return true;
+    }
+
+    /**
+     * @return False if the queue is full and the edit was dropped, same for every other submitting method.
+     */
+    public boolean place(int x, int y, Direction direction, boolean flipped, Component component) {
+        return offer(PLACE, x, y, 0, 0, direction, flipped, component);
+    }
+
+    public boolean remove(int x, int y) {
+        return offer(REMOVE, x, y, 0, 0, null, false, null);
+    }
+
+    /**
+     * Clicks on the cell: interacts with the component there, or places the component if the cell is empty.
+     */
+    public boolean placeOrInteract(int x, int y, Direction direction, boolean flipped, Component component) {
+        return offer(PLACE_OR_INTERACT, x, y, 0, 0, direction, flipped, component);
+    }
+
+    public boolean removeAll(int x, int y, int width, int height) {
+        return offer(REMOVE_ALL, x, y, width, height, null, false, null);
+    }
+
+    /**
+     * Pastes the clipboard when drained, with whatever it holds at that point.
+     */
+    public boolean paste(Clipboard clipboard, int x, int y, Direction rotation, boolean flip) {
+        return offer(PASTE, x, y, 0, 0, rotation, flip, clipboard);
+    }
+
+    /**
+     * Copies a rectangle of the world into the clipboard, and removes it if cutting.
+     */
+    public boolean copy(Clipboard clipboard, int x, int y, int width, int height, boolean cut) {
+        return offer(cut ? CUT : COPY, x, y, width, height, null, false, clipboard);
+    }
+
+    /**
+     * @return The amount of edits dropped because the queue was full.
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Applies every edit submitted so far. Must only be called by the thread that owns the world.
+     * @return The amount of edits drained
+     */
+    public int drain() {
+        int drained = 0;
+        while (true) {
+            int slot = (int) head & mask;
+            if (sequences.get(slot) != head + 1) break;
+            byte op = ops[slot];
+            int x = xs[slot];
+            int y = ys[slot];
+            int width = widths[slot];
+            int height = heights[slot];
+            var direction = directions[slot];
+            boolean flipped = flips[slot];
+            var payload = payloads[slot];
+            directions[slot] = null;
+            payloads[slot] = null;
+            sequences.lazySet(slot, head + mask + 1);
+            head++;
+            drained++;
+            switch (op) {
+                case PLACE -> {
+                    var entry = pending(x, y);
+                    entry.component = (Component) payload;
+                    entry.direction = direction;
+                    entry.flipped = flipped;
+                }
+                case REMOVE -> {
+                    var entry = pending(x, y);
+                    entry.remove = true;
+                    entry.component = null;
+                }
+                default -> {
+                    flush();
+                    apply(op, x, y, width, height, direction, flipped, payload);
+                }
+            }
+        }
+        flush();
+        return drained;
+    }
+
+    private Pending pending(int x, int y) {
+        long key = key(x, y);
+        var entry = pendingIndex.get(key);
+        if (entry == null) {
+            if (pendingCount == pending.size()) pending.add(new Pending());
+            entry = pending.get(pendingCount++);
+            entry.x = x;
+            entry.y = y;
+            entry.remove = false;
+            entry.component = null;
+            pendingIndex.put(key, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Row-major order of the cells, as long as they are less than 2^31 apart.
+     */
+    private static long key(int x, int y) {
+        return ((long) y << 32) + x;
+    }
+
+    private void apply(byte op, int x, int y, int width, int height, Direction direction, boolean flipped, Object payload) {
+        switch (op) {
+            case PLACE_OR_INTERACT -> {
+                var existing = world.get(x, y);
+                if (existing == null) {
+                    set(x, y, direction, flipped, (Component) payload);
+                } else if (journal != null) {
+                    journal.interact(x, y);
+                } else if (existing.isInteractive()) {
+                    ((UserInteractive) existing).mouseInteraction();
+                    world.forceTick(x, y);
+                }
+            }
+            case REMOVE_ALL -> removeRectangle(x, y, width, height);
+            case PASTE -> {
+                var region = ((Clipboard) payload).toRegion(direction, flipped);
+                if (journal != null) {
+                    journal.setAll(x, y, region);
+                } else {
+                    world.setAll(x, y, region);
+                }
+            }
+            case COPY, CUT -> {
+                ((Clipboard) payload).copy(world, x, y, width, height);
+                if (op == CUT) removeRectangle(x, y, width, height);
+            }
+        }
+    }
+
+    private void set(int x, int y, Direction direction, boolean flipped, Component component) {
+        if (journal != null) {
+            journal.set(x, y, direction, flipped, component);
+        } else {
+            world.set(x, y, direction, flipped, component);
+        }
+    }
+
+    private void removeRectangle(int x, int y, int width, int height) {
+        if (journal != null) {
+            journal.removeAll(x, y, width, height);
+        } else {
+            world.removeAll(x, y, width, height, null);
+        }
+    }
+
+    /**
+     * Applies the coalesced edits of every cell, the removals first, then the placements.
+     */
+    private void flush() {
+        if (pendingCount == 0) return;
+        if (sortKeys.length < pendingCount) sortKeys = new long[Math.max(pendingCount, sortKeys.length * 2)];
+        int removals = 0;
+        int placements = 0;
+        for (int i = 0; i < pendingCount; i++) {
+            var entry = pending.get(i);
+            if (entry.remove) removals++;
+            if (entry.component != null) placements++;
+        }
+        if (removals > 0) applyRemovals(removals);
+        if (placements > 0) applyPlacements(placements);
+        for (int i = 0; i < pendingCount; i++) {
+            var entry = pending.get(i);
+            pendingIndex.remove(key(entry.x, entry.y));
+            entry.component = null;
+            entry.direction = null;
+        }
+        pendingCount = 0;
+    }
+
+    /**
+     * The bounding box of the cells last sorted, as min x, min y, max x and max y.
+     */
+    private final int[] bounds = new int[4];
+
+    /**
+     * Puts the keys of the cells to remove or place into the sort keys, in row-major order, and their bounding box into
+     * the bounds.
+     */
+    private void sortKeys(boolean removals, int count) {
+        int n = 0;
+        bounds[0] = bounds[1] = Integer.MAX_VALUE;
+        bounds[2] = bounds[3] = Integer.MIN_VALUE;
+        for (int i = 0; i < pendingCount; i++) {
+            var entry = pending.get(i);
+            if (removals ? entry.remove : entry.component != null) {
+                sortKeys[n++] = key(entry.x, entry.y);
+                bounds[0] = Math.min(bounds[0], entry.x);
+                bounds[1] = Math.min(bounds[1], entry.y);
+                bounds[2] = Math.max(bounds[2], entry.x);
+                bounds[3] = Math.max(bounds[3], entry.y);
+            }
+        }
+        Arrays.sort(sortKeys, 0, count);
+    }
+
+    private boolean dense(int count) {
+        long area = (long) (bounds[2] - bounds[0] + 1) * (bounds[3] - bounds[1] + 1);
+        return count >= BULK_THRESHOLD && area <= (long) count * BULK_MAX_SPARSENESS;
+    }
+
+    private void applyRemovals(int count) {
+        sortKeys(true, count);
+        //The journal can only remove whole rectangles
+        if (journal == null && dense(count)) {
+            int width = bounds[2] - bounds[0] + 1;
+            int height = bounds[3] - bounds[1] + 1;
+            var cells = new boolean[width * height];
+            for (int i = 0; i < count; i++) {
+                var entry = pendingIndex.get(sortKeys[i]);
+                cells[(entry.y - bounds[1]) * width + entry.x - bounds[0]] = true;
+            }
+            world.removeAll(bounds[0], bounds[1], width, height, cells);
+        } else {
+            for (int i = 0; i < count; i++) {
+                var entry = pendingIndex.get(sortKeys[i]);
+                if (journal != null) {
+                    journal.remove(entry.x, entry.y);
+                } else {
+                    world.remove(entry.x, entry.y);
+                }
+            }
+        }
+    }
+
+    private void applyPlacements(int count) {
+        sortKeys(false, count);
+        if (dense(count)) {
+            var region = new Region(bounds[2] - bounds[0] + 1, bounds[3] - bounds[1] + 1);
+            for (int i = 0; i < count; i++) {
+                var entry = pendingIndex.get(sortKeys[i]);
+                region.set(entry.x - bounds[0], entry.y - bounds[1], entry.direction, entry.flipped, entry.component);
+            }
+            if (journal != null) {
+                journal.setAll(bounds[0], bounds[1], region);
+            } else {
+                world.setAll(bounds[0], bounds[1], region);
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                var entry = pendingIndex.get(sortKeys[i]);
+                set(entry.x, entry.y, entry.direction, entry.flipped, entry.component);
+            }
+        }
+    }
+}
@@ -1,41 +1,252 @@
 package xyz.chromabeam.world;
 
 import xyz.chromabeam.beam.Direction;
+import xyz.chromabeam.beam.PackedColor;
 import xyz.chromabeam.component.BeamConsumer;
 import xyz.chromabeam.component.BeamInstantManipulator;
 import xyz.chromabeam.component.BeamProducer;
 import xyz.chromabeam.component.Component;
 import xyz.chromabeam.component.Tickable;
-import xyz.chromabeam.engine.render.beam.BeamRenderer;
+import xyz.chromabeam.engine.render.beam.BeamDrawer;
 import xyz.chromabeam.engine.beam.Beam;
+import xyz.chromabeam.engine.beam.BeamStore;
+import xyz.chromabeam.engine.jfr.BulkEditEvent;
+import xyz.chromabeam.engine.jfr.TickEvent;
+import xyz.chromabeam.engine.jfr.TickPhaseEvent;
 import xyz.chromabeam.util.Cache;
+import xyz.chromabeam.util.IntStack;
+import xyz.chromabeam.util.TimingWheel;
 import xyz.chromabeam.util.storage.Container2D;
-import xyz.chromabeam.util.storage.NativeContainer2D;
+import xyz.chromabeam.util.storage.Container2DFactory;
 import xyz.chromabeam.util.storage.BeamMap;
+import xyz.chromabeam.util.storage.HierarchicalBitSet;
+import xyz.chromabeam.util.storage.IslandMap;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
 
 @SuppressWarnings({"unchecked", "rawtypes"})
 public class FlatWorld2D implements World2D, BeamResolver {
-    private final Container2D<ComponentTransform<Component>> storage = new NativeContainer2D<ComponentTransform<Component>>(ComponentTransform[]::new, ComponentTransform[][]::new, ComponentTransform[][][]::new);
-    private final BeamMap beamMap = new BeamMap();
+    public static final int DEFAULT_LOOP_LIMIT = 64;
 
-    private final Cache<Beam> propagatingBeams = new Cache<>(() -> null, Beam[]::new);
-    private final Set<Beam> consumingBeams = new HashSet<>();
+    private final Container2D<ComponentTransform<Component>> storage;
+    private final BeamMap beamMap;
+    private final boolean packedColors;
 
     private final Cache<ComponentTransform<Component>> transformCache = new Cache<ComponentTransform<Component>>(ComponentTransform::new, ComponentTransform[]::new);
-    private final List<ComponentTransform<Tickable>> tickables = new ArrayList<>();
-    private final List<ComponentTransform<BeamProducer>> producers = new ArrayList<>();
+    /**
+     * The transforms indexed by the slot of their cell in the beam map. Together with the target cells of the beams,
+     * this makes the beam graph walkable during a tick without a single position lookup.
+     */
+    private ComponentTransform<Component>[] cellTransforms = new ComponentTransform[256];
 
-    private final WorldRenderer worldRenderer;
-    private final BeamRenderer beamRenderer;
+    private final ComponentDrawer worldRenderer;
+    private final BeamDrawer beamRenderer;
 
-    public FlatWorld2D(WorldRenderer worldRenderer, BeamRenderer beamRenderer) {
+    private boolean fastForward = false;
+    /**
+     * Cell slots and beams waiting for {@link #flushRendering()} in fast-forward mode. A cell with changed graphics is
+     * only in {@link #dirtyGraphics}, a cell with only changed mask colors only in {@link #dirtyColors}.
+     */
+    private final HierarchicalBitSet dirtyGraphics = new HierarchicalBitSet();
+    private final HierarchicalBitSet dirtyColors = new HierarchicalBitSet();
+    private final HierarchicalBitSet dirtyBeams = new HierarchicalBitSet();
+
+    /**
+     * Holds every pending beam and producer between ticks, and runs the whole tick when not ticking in parallel.
+     */
+    private final Lane main = new Lane(false);
+
+    private ForkJoinPool tickPool = null;
+    private IslandMap islands = null;
+    private final List<Lane> islandLanes = new ArrayList<>();
+
+    /**
+     * The components that asked to be woken up at a later tick, see {@link Tickable#wakeUpDelay()}.
+     */
+    private final TimingWheel<ComponentTransform<Tickable>> wakeUps = new TimingWheel<>(256);
+    private final List<ComponentTransform<Tickable>> wokenUp = new ArrayList<>();
+    private long tickCount = 0;
+    private boolean eventDriven = false;
+
+    private int loopLimit = DEFAULT_LOOP_LIMIT;
+    private int propagationBudget = Integer.MAX_VALUE;
+    private PropagationListener propagationListener = null;
+
+    private TickMetrics metrics = null;
+    private final long[] phaseNanos = new long[TickMetrics.Phase.values().length];
+    private final TickEvent tickEvent = new TickEvent();
+
+    public FlatWorld2D(ComponentDrawer worldRenderer, BeamDrawer beamRenderer) {
+        this(worldRenderer, beamRenderer, Container2DFactory.NATIVE);
+    }
+
+    /**
+     * @param containerFactory The storage strategy of the components and the beam map. Use {@link Container2DFactory#TILED}
+     *                         for worlds with components that are far apart.
+     */
+    public FlatWorld2D(ComponentDrawer worldRenderer, BeamDrawer beamRenderer, Container2DFactory containerFactory) {
+        this(worldRenderer, beamRenderer, containerFactory, false);
+    }
+
+    /**
+     * @param packedColors True to store beam colors as {@link PackedColor packed} ints, and hand them to components
+     *                     through the packed overloads of {@link BeamConsumer}, {@link BeamInstantManipulator} and
+     *                     {@link BeamEmitter}. Saves memory and makes color comparisons single int operations, but
+     *                     rounds every channel to 10 bits.
+     */
+    public FlatWorld2D(ComponentDrawer worldRenderer, BeamDrawer beamRenderer, Container2DFactory containerFactory, boolean packedColors) {
         this.worldRenderer = worldRenderer;
         this.beamRenderer = beamRenderer;
+        storage = containerFactory.create(ComponentTransform[]::new, ComponentTransform[][]::new, ComponentTransform[][][]::new);
+        beamMap = new BeamMap(containerFactory, packedColors);
+        this.packedColors = packedColors;
+    }
+
+    /**
+     * Switches between sequential and parallel ticking. In parallel mode, the world keeps track of the islands of
+     * components that can exchange beams with each other, and every island with work to do is ticked as a separate task
+     * on the pool. Rendering and the merging of the results happen on the calling thread, in a deterministic order, so
+     * both modes produce exactly the same results.
+     * @param pool The pool to tick the islands on, or null to tick sequentially on the calling thread.
+     */
+    public void setTickPool(ForkJoinPool pool) {
+        if (pool != null && islands == null) {
+            islands = new IslandMap(beamMap);
+            for (var transform: storage) {
+                islands.add(transform.cell, capabilities(transform.component));
+            }
+        } else if (pool == null) {
+            islands = null;
+            islandLanes.clear();
+        }
+        tickPool = pool;
+    }
+
+    /**
+     * Switches between sweeping and event-driven propagation. In event-driven mode, a beam that is emitted with the same
+     * color it already has is dropped, so its target is neither visited nor ticked. Components are then only ticked when
+     * one of their inputs actually changed, or when they are woken up by {@link Tickable#wakeUpDelay()}, and settled
+     * parts of the world cost nothing per tick, even if they contain loops. Consumers that count repeated beams must not
+     * be used in this mode.
+     */
+    public void setEventDriven(boolean eventDriven) {
+        this.eventDriven = eventDriven;
+    }
+
+    /**
+     * Bounds the instant propagation of beams within a single tick, so that a loop of instant manipulators can't hang the
+     * game. Beams that go over either limit are deferred to the next tick instead of being dropped, so an oscillating
+     * loop keeps running, just a limited number of rounds per tick.
+     * @param loopLimit The amount of times a single beam may be propagated within a tick. Going over it counts as a loop.
+     * @param budget The amount of beams that may be propagated within a tick. When ticking in parallel, every island has
+     *               its own budget.
+     * @param listener Gets notified about the loops and the exhausted budgets, or null.
+     */
+    public void setPropagationLimits(int loopLimit, int budget, PropagationListener listener) {
+        if (loopLimit < 1 || budget < 1) throw new IllegalArgumentException("Propagation limits must be positive!");
+        this.loopLimit = loopLimit;
+        this.propagationBudget = budget;
+        this.propagationListener = listener;
+    }
+
+    /**
+     * Starts recording the timings and work counts of every update into the metrics, or stops if null. Costs a few
+     * {@link System#nanoTime()} calls per update while enabled, and nothing while disabled.
+     */
+    public void setMetrics(TickMetrics metrics) {
+        this.metrics = metrics;
+        //The counters keep counting while disabled
+        main.resetMetrics();
+        for (int i = 0; i < islandLanes.size(); i++) {
+            islandLanes.get(i).resetMetrics();
+        }
+    }
+
+    /**
+     * Switches fast-forward mode on or off. In fast-forward mode, changed components and beams are only marked dirty,
+     * and reach the renderers when {@link #flushRendering()} is called, with their state at that point. A cell that
+     * changes every tick then costs a single renderer call per flush instead of one per tick, so running many ticks per
+     * frame is bounded by the simulation, not by the vertex writes. Removals still reach the renderers immediately.
+     * Switching it off flushes.
+     */
+    @Override
+    public void setFastForward(boolean fastForward) {
+        this.fastForward = fastForward;
+        if (!fastForward) flushRendering();
+    }
+
+    @Override
+    public boolean isFastForward() {
+        return fastForward;
+    }
+
+    /**
+     * Hands the current state of every cell and beam marked dirty since the previous flush to the renderers, in slot
+     * order. Call it once per frame in fast-forward mode, it does nothing otherwise.
+     */
+    @Override
+    public void flushRendering() {
+        for (int cell = dirtyGraphics.next(0); cell >= 0; cell = dirtyGraphics.next(cell + 1)) {
+            dirtyGraphics.clear(cell);
+            worldRenderer.set(cellTransforms[cell]);
+        }
+        for (int cell = dirtyColors.next(0); cell >= 0; cell = dirtyColors.next(cell + 1)) {
+            dirtyColors.clear(cell);
+            worldRenderer.updateMaskColors(cellTransforms[cell]);
+        }
+        for (int beam = dirtyBeams.next(0); beam >= 0; beam = dirtyBeams.next(beam + 1)) {
+            dirtyBeams.clear(beam);
+            beamRenderer.drawBeam(beamMap.beams().copyTo(beam, drawBuffer));
+        }
+    }
+
+    /**
+     * Draws the component, or marks it dirty in fast-forward mode.
+     * @param graphicsChanged False if only the colors of the color masks changed
+     */
+    private void render(ComponentTransform<Component> transform, boolean graphicsChanged) {
+        if (worldRenderer == null) return;
+        if (fastForward) {
+            if (graphicsChanged) {
+                dirtyGraphics.set(transform.cell);
+                dirtyColors.clear(transform.cell);
+            } else if (!dirtyGraphics.get(transform.cell)) {
+                dirtyColors.set(transform.cell);
+            }
+        } else if (graphicsChanged) {
+            worldRenderer.set(transform);
+        } else {
+            worldRenderer.updateMaskColors(transform);
+        }
+    }
+
+    /**
+     * Drops the pending fast-forward updates of a removed cell, its slot may be reused by the next component.
+     */
+    private void forgetDirty(int cell) {
+        if (!fastForward) return;
+        dirtyGraphics.clear(cell);
+        dirtyColors.clear(cell);
+        for (int i = 0; i < 4; i++) {
+            dirtyBeams.clear(BeamStore.beam(cell, i));
+        }
+    }
+
+    private static void clearBits(HierarchicalBitSet bits) {
+        for (int i = bits.next(0); i >= 0; i = bits.next(i + 1)) {
+            bits.clear(i);
+        }
+    }
+
+    private static byte capabilities(Component component) {
+        return (byte) ((component.isProducer() || component.isInstantManipulator() ? IslandMap.EMITS : 0)
+                | (component.isConsumer() || component.isInstantManipulator() ? IslandMap.RECEIVES : 0));
     }
 
     @Override
@@ -46,41 +257,160 @@ public class FlatWorld2D implements World2D, BeamResolver {
             var tf = transformCache.getOrCreate();
             tf.with(component, x, y, direction, flipped);
             if (component.isProducer()) {
-                producers.add((ComponentTransform)tf);
+                main.producers.add((ComponentTransform)tf);
             }
+            startWakeUps(tf);
             storage.set(x, y, tf);
             beamMap.setup(x, y);
-            var n = beamMap.get(x, y);
+            var beams = beamMap.beams();
+            int cell = beamMap.getCell(x, y);
+            registerCell(tf, cell);
+            if (islands != null) islands.add(cell, capabilities(component));
             for (int i = 0; i < 4; i++) {
-                var beam = n[i];
-                if (!beam.infinite) {
-                    var comp = storage.get(beam.x, beam.y).component;
+                int beam = BeamStore.beam(cell, i);
+                int target = beams.targetCell(beam);
+                if (target != BeamStore.NONE) {
+                    var comp = cellTransforms[target].component;
                     if (comp.isConsumer() || comp.isInstantManipulator()) {
-                        propagatingBeams.put(beam);
+                        main.propagatingBeams.push(beam);
                     }
-                    var opposite = beamMap.get(beam.x, beam.y, Direction.values()[(i + 2) % 4]);
-                    if (opposite != null) {
-                        if (component.isConsumer() || component.isInstantManipulator()) {
-                            propagatingBeams.put(opposite);
-                        }
-                        if (beamRenderer != null) beamRenderer.drawBeam(opposite);
+                    int opposite = BeamStore.beam(target, (i + 2) % 4);
+                    if (component.isConsumer() || component.isInstantManipulator()) {
+                        main.propagatingBeams.push(opposite);
                     }
+                    drawBeam(opposite);
                 }
-                if (beamRenderer != null) beamRenderer.drawBeam(beam);
+                drawBeam(beam);
             }
-            if (worldRenderer != null) worldRenderer.set(tf);
+            render(tf, true);
             return null;
         } else {
             var oldComp = old.component;
             old.with(component, x, y, direction, flipped);
-            if (component.isProducer() && !producers.contains(old)) {
-                producers.add((ComponentTransform)old);
+            if (islands != null) islands.update(old.cell, capabilities(component));
+            if (component.isProducer() && !main.producers.contains(old)) {
+                main.producers.add((ComponentTransform)old);
+            } else if (!component.isProducer()) {
+                dequeueProducer(old);
             }
-            if (worldRenderer != null) worldRenderer.set(old);
+            startWakeUps(old);
+            render(old, true);
             return oldComp;
         }
     }
 
+    /**
+     * Removes every queued emission of the transform, a producer can be queued more than once.
+     */
+    private void dequeueProducer(ComponentTransform<?> transform) {
+        var producers = main.producers;
+        for (int i = producers.size() - 1; i >= 0; i--) {
+            if (producers.get(i) == transform) producers.remove(i);
+        }
+    }
+
+    private void registerCell(ComponentTransform<Component> transform, int cell) {
+        transform.cell = cell;
+        if (cell >= cellTransforms.length) {
+            cellTransforms = Arrays.copyOf(cellTransforms, Math.max(cell + 1, cellTransforms.length + (cellTransforms.length >>> 1)));
+        }
+        cellTransforms[cell] = transform;
+    }
+
+    @Override
+    public void setAll(int x, int y, Region region) {
+        var event = new BulkEditEvent();
+        event.begin();
+        placeAll(x, y, region);
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = "setAll";
+            event.x = x;
+            event.y = y;
+            event.width = region.width;
+            event.height = region.height;
+            event.components = region.getComponentCount();
+            event.commit();
+        }
+    }
+
+    private void placeAll(int x, int y, Region region) {
+        int width = region.width;
+        int height = region.height;
+        var mask = new boolean[width * height];
+        var added = new ArrayList<ComponentTransform<Component>>(region.getComponentCount());
+        for (int j = 0; j < height; j++) {
+            for (int i = 0; i < width; i++) {
+                var component = region.get(i, j);
+                if (component == null) continue;
+                if (storage.get(x + i, y + j) != null) {
+                    set(x + i, y + j, region.getDirection(i, j), region.isFlipped(i, j), component);
+                    continue;
+                }
+                var tf = transformCache.getOrCreate();
+                tf.with(component, x + i, y + j, region.getDirection(i, j), region.isFlipped(i, j));
+                if (component.isProducer()) {
+                    main.producers.add((ComponentTransform)tf);
+                }
+                startWakeUps(tf);
+                storage.set(x + i, y + j, tf);
+                mask[j * width + i] = true;
+                added.add(tf);
+            }
+        }
+        if (added.isEmpty()) return;
+        var slots = beamMap.setupAll(x, y, width, height, mask);
+        for (int n = 0; n < added.size(); n++) {
+            var tf = added.get(n);
+            registerCell(tf, slots[(tf.position.y - y) * width + tf.position.x - x]);
+        }
+        if (islands != null) {
+            for (int n = 0; n < added.size(); n++) {
+                var tf = added.get(n);
+                islands.add(tf.cell, capabilities(tf.component));
+            }
+        }
+        //Every link is final by now, queue and draw everything once. Beams between two new cells are handled by their
+        //source only.
+        var beams = beamMap.beams();
+        for (int n = 0; n < added.size(); n++) {
+            var tf = added.get(n);
+            var component = tf.component;
+            for (int i = 0; i < 4; i++) {
+                int beam = BeamStore.beam(tf.cell, i);
+                int target = beams.targetCell(beam);
+                if (target != BeamStore.NONE) {
+                    var comp = cellTransforms[target].component;
+                    if (comp.isConsumer() || comp.isInstantManipulator()) {
+                        main.propagatingBeams.push(beam);
+                    }
+                    int tx = beams.cellX(target) - x;
+                    int ty = beams.cellY(target) - y;
+                    boolean targetAdded = tx >= 0 && ty >= 0 && tx < width && ty < height && mask[ty * width + tx];
+                    if (!targetAdded) {
+                        int opposite = BeamStore.beam(target, (i + 2) % 4);
+                        if (component.isConsumer() || component.isInstantManipulator()) {
+                            main.propagatingBeams.push(opposite);
+                        }
+                        drawBeam(opposite);
+                    }
+                }
+                drawBeam(beam);
+            }
+            render(tf, true);
+        }
+    }
+
+    @Override
+    public void ensureCapacity(int components) {
+        storage.ensureCapacity(components);
+        beamMap.ensureCapacity(components);
+        var beams = beamMap.beams();
+        if (cellTransforms.length < beams.capacity()) {
+            cellTransforms = Arrays.copyOf(cellTransforms, beams.capacity());
+        }
+    }
+
     @Override
     public Component get(int x, int y) {
         var p = storage.get(x, y);
@@ -88,122 +418,335 @@ public class FlatWorld2D implements World2D, BeamResolver {
     }
 
 
+    private final int[] incomingBeams = new int[4];
     @Override
     public Component remove(int x, int y) {
         var old = storage.remove(x, y);
         if (old == null) {
             return null;
         } else {
-            var n = new Beam[]{new Beam(), new Beam(), new Beam(), new Beam()};
-            {
-                var m = beamMap.get(x, y);
-                for (int i = 0; i < 4; i++) {
-                    m[i].copyTo(n[i]);
-                }
+            var beams = beamMap.beams();
+            int cell = old.cell;
+            for (int i = 0; i < 4; i++) {
+                int target = beams.targetCell(BeamStore.beam(cell, i));
+                incomingBeams[i] = target == BeamStore.NONE ? BeamStore.NONE : BeamStore.beam(target, (i + 2) % 4);
             }
-            var dirs = new Beam[]{
-                    n[0].infinite ? null : beamMap.get(n[0].x, n[0].y, Direction.LEFT),
-                    n[1].infinite ? null : beamMap.get(n[1].x, n[1].y, Direction.UP),
-                    n[2].infinite ? null : beamMap.get(n[2].x, n[2].y, Direction.RIGHT),
-                    n[3].infinite ? null : beamMap.get(n[3].x, n[3].y, Direction.DOWN)
-            };
+            if (islands != null) islands.remove(cell);
             beamMap.removeAll(x, y);
+            cellTransforms[cell] = null;
+            forgetDirty(cell);
 
             for (int i = 0; i < 4; i++) {
-                if (dirs[i] != null && dirs[(i + 2) % 4] == null) {
-                    dirs[i].infinite = true;
-                    switch (i) {
-                        case 0 -> dirs[i].x = Integer.MIN_VALUE;
-                        case 1 -> dirs[i].y = Integer.MIN_VALUE;
-                        case 2 -> dirs[i].x = Integer.MAX_VALUE;
-                        case 3 -> dirs[i].y = Integer.MAX_VALUE;
-                    }
-                }
-                if (dirs[i] != null) {
-                    var beam = dirs[i];
-                    var target = storage.get(beam.x, beam.y);
-                    if (target != null) {
-                        if (target.component.isInstantManipulator() || target.component.isConsumer()) {
-                            propagatingBeams.put(beam);
-                        }
-                    }
-                } else {
-                    var beam = n[(i + 2) % 4];
-                    var target = storage.get(beam.x, beam.y);
-                    if (target != null && (target.component.isInstantManipulator() || target.component.isConsumer())) {
-                        var copy = new Beam();
-                        beam.copyTo(copy);
-                        beam.red = 0;
-                        beam.green = 0;
-                        beam.blue = 0;
-                        propagatingBeams.put(beam);
-                    }
+                //Either the beam coming from the neighbor continues to the opposite side, or the opposite side goes dark.
+                int beam = incomingBeams[i] != BeamStore.NONE ? incomingBeams[i] : BeamStore.beam(cell, (i + 2) % 4);
+                int target = beams.targetCell(beam);
+                if (target != BeamStore.NONE && (cellTransforms[target].component.isInstantManipulator() || cellTransforms[target].component.isConsumer())) {
+                    main.propagatingBeams.push(beam);
                 }
             }
             if (beamRenderer != null) {
                 beamRenderer.removeAll(x, y);
                 for (int i = 0; i < 4; i++) {
-                    if (dirs[i] != null) {
-                        beamRenderer.drawBeam(dirs[i]);
+                    if (incomingBeams[i] != BeamStore.NONE) {
+                        drawBeam(incomingBeams[i]);
                     }
                 }
             }
             var comp = old.component;
             old.component = null;
-            producers.remove(old);
+            old.wakeUp = -1;
+            dequeueProducer(old);
             transformCache.put(old);
             if (worldRenderer != null) worldRenderer.remove(x, y);
             return comp;
         }
     }
 
-    private final ComponentTransform<Component> beamComponentBuffer = new ComponentTransform<>();
     @Override
-    public void update() {
-        for (var producer: producers) {
-            producer.component.emitBeams((direction, red, green, blue) -> scheduleBeam(producer.position.x, producer.position.y, direction.applyFlip(producer.flipped).add(producer.direction), red, green, blue));
+    public Region removeAll(int x, int y, int width, int height, boolean[] mask) {
+        var event = new BulkEditEvent();
+        event.begin();
+        var region = removeRegion(x, y, width, height, mask);
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = "removeAll";
+            event.x = x;
+            event.y = y;
+            event.width = width;
+            event.height = height;
+            event.components = region.getComponentCount();
+            event.commit();
+        }
+        return region;
+    }
+
+    private Region removeRegion(int x, int y, int width, int height, boolean[] mask) {
+        var region = new Region(width, height);
+        var removed = new ComponentTransform[width * height];
+        storage.removeAll(x, y, width, height, mask, removed);
+        var removedMask = new boolean[width * height];
+        var transforms = new ArrayList<ComponentTransform<Component>>();
+        for (int j = 0; j < height; j++) {
+            for (int i = 0; i < width; i++) {
+                int index = j * width + i;
+                ComponentTransform<Component> tf = removed[index];
+                if (tf == null) continue;
+                region.set(i, j, tf.direction, tf.flipped, tf.component);
+                removedMask[index] = true;
+                transforms.add(tf);
+            }
+        }
+        if (transforms.isEmpty()) return region;
+        var beams = beamMap.beams();
+        //The surviving cells with beams running into the removed cells, their beams continue further after re-linking.
+        var boundary = new IntStack();
+        for (int n = 0; n < transforms.size(); n++) {
+            int cell = transforms.get(n).cell;
+            if (islands != null) islands.remove(cell);
+            for (int i = 0; i < 4; i++) {
+                int target = beams.targetCell(BeamStore.beam(cell, i));
+                if (target != BeamStore.NONE && !inMask(target, x, y, width, height, removedMask)) {
+                    boundary.push(BeamStore.beam(target, (i + 2) % 4));
+                }
+            }
+        }
+        beamMap.removeAll(x, y, width, height, removedMask);
+        for (int n = 0; n < transforms.size(); n++) {
+            int cell = transforms.get(n).cell;
+            cellTransforms[cell] = null;
+            forgetDirty(cell);
         }
-        producers.clear();
-        while (!propagatingBeams.empty()) {
-            var beam = propagatingBeams.get();
-            var transform = storage.get(beam.x, beam.y);
-            if (transform.component.isInstantManipulator()) {
-                ((BeamInstantManipulator) transform.component).incomingBeam(beam.direction.sub(transform.direction).applyFlip(transform.flipped), beam.red, beam.green, beam.blue,
-                        (direction, red, green, blue) -> scheduleBeam(transform.position.x, transform.position.y, direction.applyFlip(transform.flipped).add(transform.direction), red, green, blue));
+        for (int n = 0; n < boundary.size(); n++) {
+            int beam = boundary.get(n);
+            if (islands != null) islands.relink(BeamStore.cellOf(beam));
+            if (receives(beams.targetCell(beam))) {
+                main.propagatingBeams.push(beam);
             }
-            if (transform.component.isConsumer()) {
-                consumingBeams.add(beam);
+        }
+        //Surviving cells that are no longer hit from the side of a removed cell get its black beam instead.
+        for (int n = 0; n < transforms.size(); n++) {
+            int cell = transforms.get(n).cell;
+            for (int i = 0; i < 4; i++) {
+                int beam = BeamStore.beam(cell, i);
+                int target = beams.targetCell(beam);
+                if (target != BeamStore.NONE && !inMask(target, x, y, width, height, removedMask) && receives(target)
+                        && beams.targetCell(BeamStore.beam(target, (i + 2) % 4)) == BeamStore.NONE) {
+                    main.propagatingBeams.push(beam);
+                }
             }
         }
-        for (var beam: consumingBeams) {
-            var transform = storage.get(beam.x, beam.y);
-            ((BeamConsumer)transform.component).incomingBeam(beam.direction.sub(transform.direction).applyFlip(transform.flipped), beam.red, beam.green, beam.blue);
-            tickables.add((ComponentTransform)transform);
+        for (int n = 0; n < transforms.size(); n++) {
+            var tf = transforms.get(n);
+            if (beamRenderer != null) beamRenderer.removeAll(tf.position.x, tf.position.y);
+            if (worldRenderer != null) worldRenderer.remove(tf.position.x, tf.position.y);
+            tf.component = null;
+            tf.wakeUp = -1;
+        }
+        for (int n = 0; n < boundary.size(); n++) {
+            drawBeam(boundary.get(n));
         }
-        consumingBeams.clear();
+        //Dequeue every removed producer in a single pass
+        main.producers.removeIf(producer -> producer.component == null);
+        for (int n = 0; n < transforms.size(); n++) {
+            transformCache.put(transforms.get(n));
+        }
+        return region;
+    }
+
+    private boolean inMask(int cell, int x, int y, int width, int height, boolean[] mask) {
+        var beams = beamMap.beams();
+        int i = beams.cellX(cell) - x;
+        int j = beams.cellY(cell) - y;
+        return i >= 0 && j >= 0 && i < width && j < height && mask[j * width + i];
+    }
+
+    private boolean receives(int cell) {
+        if (cell == BeamStore.NONE) return false;
+        var component = cellTransforms[cell].component;
+        return component.isConsumer() || component.isInstantManipulator();
+    }
 
-        for (var tickable: tickables) {
-            tick(tickable);
+    @Override
+    public void clear() {
+        var event = new BulkEditEvent();
+        event.begin();
+        long count = storage.getElementCount();
+        for (var tf: storage) {
+            if (beamRenderer != null) beamRenderer.removeAll(tf.position.x, tf.position.y);
+            if (worldRenderer != null) worldRenderer.remove(tf.position.x, tf.position.y);
+            tf.component = null;
+            tf.wakeUp = -1;
+            transformCache.put(tf);
+        }
+        storage.clear();
+        beamMap.clear();
+        Arrays.fill(cellTransforms, null);
+        clearBits(dirtyGraphics);
+        clearBits(dirtyColors);
+        clearBits(dirtyBeams);
+        main.propagatingBeams.clear();
+        main.producers.clear();
+        main.tickables.clear();
+        wakeUps.clear();
+        if (islands != null) {
+            islands = new IslandMap(beamMap);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = "clear";
+            event.components = count;
+            event.commit();
         }
-        tickables.clear();
     }
 
-    private void tick(ComponentTransform<Tickable> tickable) {
-        tickable.component.tick();
-        if (tickable.component.isGraphicsChanged()) {
-            tickable.component.updateGraphics();
-            worldRenderer.set((ComponentTransform) tickable);
+    @Override
+    public void update() {
+        long start = metrics == null ? 0 : System.nanoTime();
+        var event = tickEvent;
+        event.begin();
+        tickCount++;
+        wakeUps.drain(tickCount, wokenUp);
+        for (int i = 0; i < wokenUp.size(); i++) {
+            var transform = wokenUp.get(i);
+            //Entries of removed, replaced or rescheduled components are stale
+            if (transform.wakeUp == tickCount && transform.component != null) {
+                transform.wakeUp = -1;
+                main.tickables.add(transform);
+            }
+        }
+        wokenUp.clear();
+        if (tickPool == null) {
+            main.run();
         } else {
-            worldRenderer.updateMaskColors((ComponentTransform) tickable);
+            updateIslands();
+        }
+        beamMap.releaseRemoved();
+        if (metrics != null) {
+            recordMetrics(System.nanoTime() - start);
         }
-        if (tickable.component instanceof BeamProducer p && p.wantEmit()) {
-            producers.add((ComponentTransform)tickable);
+        event.end();
+        if (event.shouldCommit()) {
+            event.tick = tickCount;
+            event.parallel = tickPool != null;
+            event.components = storage.getElementCount();
+            event.commit();
+        }
+    }
+
+    private void recordMetrics(long updateNanos) {
+        Arrays.fill(phaseNanos, 0);
+        int propagated = 0;
+        int consumed = 0;
+        int ticked = 0;
+        int propagationPeak = 0;
+        int consumerPeak = 0;
+        int tickablePeak = 0;
+        for (int i = -1; i < islandLanes.size(); i++) {
+            var lane = i < 0 ? main : islandLanes.get(i);
+            for (int p = 0; p < phaseNanos.length; p++) {
+                phaseNanos[p] += lane.phaseNanos[p];
+            }
+            propagated += lane.propagated;
+            consumed += lane.consumed;
+            ticked += lane.ticked;
+            propagationPeak = Math.max(propagationPeak, lane.propagationPeak);
+            consumerPeak = Math.max(consumerPeak, lane.consumerPeak);
+            tickablePeak = Math.max(tickablePeak, lane.tickablePeak);
+            lane.resetMetrics();
+        }
+        metrics.record(updateNanos, phaseNanos, propagated, consumed, ticked, propagationPeak, consumerPeak, tickablePeak);
+    }
+
+    /**
+     * Distributes the pending work of the main lane between the islands, ticks every island with work on the pool, and
+     * merges the results back in the order the islands were first encountered in.
+     */
+    private void updateIslands() {
+        islands.rebuild();
+        islands.resetLabels();
+        for (int i = 0; i < main.producers.size(); i++) {
+            var producer = main.producers.get(i);
+            islandLane(producer.cell).producers.add(producer);
+        }
+        main.producers.clear();
+        for (int i = 0; i < main.tickables.size(); i++) {
+            var tickable = main.tickables.get(i);
+            islandLane(tickable.cell).tickables.add(tickable);
+        }
+        main.tickables.clear();
+        var beams = beamMap.beams();
+        //Bottom to top, so that every island pops its beams in the same relative order as the main lane would.
+        for (int i = 0; i < main.propagatingBeams.size(); i++) {
+            int beam = main.propagatingBeams.get(i);
+            int target = beams.targetCell(beam);
+            if (target != BeamStore.NONE && cellTransforms[target] != null) {
+                islandLane(target).propagatingBeams.push(beam);
+            }
+        }
+        main.propagatingBeams.clear();
+
+        int count = islands.labelCount();
+        if (count == 1) {
+            islandLanes.get(0).run();
+        } else if (count > 1) {
+            tickPool.invoke(new IslandTask(0, count));
+        }
+        for (int i = 0; i < count; i++) {
+            islandLanes.get(i).merge();
+        }
+    }
+
+    /**
+     * Components that want wake ups get their first one when they are placed, as nothing else may ever tick them.
+     */
+    @SuppressWarnings("unchecked")
+    private void startWakeUps(ComponentTransform<Component> tf) {
+        if (tf.component instanceof Tickable tickable) {
+            int delay = tickable.wakeUpDelay();
+            if (delay > 0) scheduleWakeUp((ComponentTransform) tf, delay);
+        }
+    }
+
+    private void scheduleWakeUp(ComponentTransform<Tickable> tickable, int delay) {
+        long tick = tickCount + delay;
+        //A component that is already scheduled earlier will be asked again when it wakes up
+        if (tickable.wakeUp == -1 || tick < tickable.wakeUp) {
+            tickable.wakeUp = tick;
+            wakeUps.schedule(tickable, tick);
+        }
+    }
+
+    private Lane islandLane(int cell) {
+        int label = islands.label(cell);
+        if (label == islandLanes.size()) {
+            islandLanes.add(new Lane(true));
+        }
+        return islandLanes.get(label);
+    }
+
+    private final class IslandTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+
+        private IslandTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                islandLanes.get(from).run();
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new IslandTask(from, mid), new IslandTask(mid, to));
+            }
         }
     }
 
     @Override
     public void forceTick(int x, int y) {
-        tick((ComponentTransform)storage.get(x, y));
+        main.tick((ComponentTransform)storage.get(x, y));
     }
 
     @Override
@@ -211,21 +754,335 @@ public class FlatWorld2D implements World2D, BeamResolver {
         return buffer.with(storage.get(x, y));
     }
 
+    @Override
+    public void forEachTransform(Consumer<ComponentTransform<Component>> action) {
+        storage.forEach(action);
+    }
+
     @Override
     public void scheduleBeam(int x, int y, Direction direction, float red, float green, float blue) {
-        var beam = beamMap.get(x, y, direction);
-        beam.red = red;
-        beam.green = green;
-        beam.blue = blue;
-        if (!beam.infinite) {
-            var target = storage.get(beam.x, beam.y).component;
-            if (target.isInstantManipulator() || target.isConsumer()) {
-                propagatingBeams.put(beam);
+        main.scheduleBeam(beamMap.get(x, y, direction), red, green, blue);
+    }
+
+    /**
+     * @return The transform hit by the beam, or null if the beam hits nothing.
+     */
+    private ComponentTransform<Component> target(int beam) {
+        int cell = beamMap.beams().targetCell(beam);
+        return cell == BeamStore.NONE ? null : cellTransforms[cell];
+    }
+
+    private final Beam drawBuffer = new Beam();
+    private void drawBeam(int beam) {
+        if (beamRenderer == null) return;
+        if (fastForward) {
+            dirtyBeams.set(beam);
+        } else {
+            beamRenderer.drawBeam(beamMap.beams().copyTo(beam, drawBuffer));
+        }
+    }
+
+    /**
+     * The state of a single tick: the emit, propagate, consume and tick phases, and every queue they need. Lanes of
+     * different islands touch disjoint components and beams, so they can run at the same time. Those lanes defer every
+     * renderer call, and replay them with {@link #merge()} on the thread that owns the renderers.
+     */
+    private final class Lane {
+        final IntStack propagatingBeams = new IntStack();
+        final IntStack consumingBeams = new IntStack();
+        final List<ComponentTransform<Tickable>> tickables = new ArrayList<>();
+        final List<ComponentTransform<BeamProducer>> producers = new ArrayList<>();
+        final TransformEmitter emitter = new TransformEmitter();
+
+        final boolean deferRendering;
+        final IntStack drawnBeams = new IntStack();
+        final List<ComponentTransform<Component>> rendered = new ArrayList<>();
+        final BitSet graphicsChanged = new BitSet();
+        final List<ComponentTransform<Tickable>> sleeping = new ArrayList<>();
+        final IntStack sleepDelays = new IntStack();
+
+        final IntStack visitedBeams = new IntStack();
+        final IntStack deferredBeams = new IntStack();
+        final IntStack loopCells = new IntStack();
+        int budgetOverflow = 0;
+
+        final long[] phaseNanos = new long[TickMetrics.Phase.values().length];
+        //Reused for every phase, the JIT can't always prove that a fresh event doesn't escape, and would allocate it.
+        final TickPhaseEvent phaseEvent = new TickPhaseEvent();
+        int propagated = 0;
+        int consumed = 0;
+        int ticked = 0;
+        int propagationPeak = 0;
+        int consumerPeak = 0;
+        int tickablePeak = 0;
+
+        Lane(boolean deferRendering) {
+            this.deferRendering = deferRendering;
+        }
+
+        /**
+         * Converts the local directions of the emitting component into world directions. A single instance is reused
+         * for every emission, instead of allocating a capturing lambda per producer and per manipulator hit.
+         */
+        final class TransformEmitter implements BeamEmitter {
+            private ComponentTransform<?> source;
+
+            private TransformEmitter from(ComponentTransform<?> source) {
+                this.source = source;
+                return this;
+            }
+
+            @Override
+            public void emit(Direction direction, float red, float green, float blue) {
+                scheduleBeam(BeamStore.beam(source.cell, source.toWorld(direction)), red, green, blue);
+            }
+
+            @Override
+            public void emit(Direction direction, int color) {
+                scheduleBeam(BeamStore.beam(source.cell, source.toWorld(direction)), color);
             }
         }
-        if (beamRenderer != null) {
-            beamRenderer.drawBeam(beam);
+
+        private long now() {
+            return metrics == null ? 0 : System.nanoTime();
         }
-    }
 
+        void resetMetrics() {
+            Arrays.fill(phaseNanos, 0);
+            propagated = 0;
+            consumed = 0;
+            ticked = 0;
+            propagationPeak = 0;
+            consumerPeak = 0;
+            tickablePeak = 0;
+        }
+
+        void run() {
+            //Indexed loops everywhere in here, iterators would allocate on every tick.
+            long time = now();
+            var event = phaseEvent;
+            event.begin();
+            for (int i = 0; i < producers.size(); i++) {
+                var producer = producers.get(i);
+                producer.component.emitBeams(emitter.from(producer));
+            }
+            commitPhase(event, TickMetrics.Phase.EMIT, producers.size());
+            producers.clear();
+            long next = now();
+            phaseNanos[TickMetrics.Phase.EMIT.ordinal()] += next - time;
+            time = next;
+            event.begin();
+            int propagatedBefore = propagated;
+            var beams = beamMap.beams();
+            int budget = propagationBudget;
+            while (!propagatingBeams.empty()) {
+                if (budget-- == 0) {
+                    deferRemainingBeams();
+                    break;
+                }
+                propagationPeak = Math.max(propagationPeak, propagatingBeams.size());
+                int beam = propagatingBeams.pop();
+                var transform = target(beam);
+                if (transform == null) continue;
+                propagated++;
+                int visits = beams.visit(beam);
+                if (visits == 1) {
+                    visitedBeams.push(beam);
+                } else if (visits > loopLimit) {
+                    if (visits == loopLimit + 1) {
+                        loopCells.push(transform.cell);
+                    }
+                    deferredBeams.push(beam);
+                    continue;
+                }
+                if (transform.component.isInstantManipulator()) {
+                    var manipulator = (BeamInstantManipulator) transform.component;
+                    if (packedColors) {
+                        manipulator.incomingBeam(transform.toLocal(beam & 3), beams.color(beam), emitter.from(transform));
+                    } else {
+                        manipulator.incomingBeam(transform.toLocal(beam & 3), beams.red(beam), beams.green(beam), beams.blue(beam),
+                                emitter.from(transform));
+                    }
+                }
+                if (transform.component.isConsumer() && beams.mark(beam)) {
+                    consumingBeams.push(beam);
+                }
+            }
+            for (int i = 0; i < visitedBeams.size(); i++) {
+                beams.clearVisits(visitedBeams.get(i));
+            }
+            visitedBeams.clear();
+            commitPhase(event, TickMetrics.Phase.PROPAGATE, propagated - propagatedBefore);
+            next = now();
+            phaseNanos[TickMetrics.Phase.PROPAGATE.ordinal()] += next - time;
+            time = next;
+            event.begin();
+            consumerPeak = Math.max(consumerPeak, consumingBeams.size());
+            consumed += consumingBeams.size();
+            for (int i = 0; i < consumingBeams.size(); i++) {
+                int beam = consumingBeams.get(i);
+                beams.unmark(beam);
+                var transform = target(beam);
+                if (transform == null) continue;
+                if (packedColors) {
+                    ((BeamConsumer)transform.component).incomingBeam(transform.toLocal(beam & 3), beams.color(beam));
+                } else {
+                    ((BeamConsumer)transform.component).incomingBeam(transform.toLocal(beam & 3), beams.red(beam), beams.green(beam), beams.blue(beam));
+                }
+                tickables.add((ComponentTransform)transform);
+            }
+            commitPhase(event, TickMetrics.Phase.DELIVER, consumingBeams.size());
+            consumingBeams.clear();
+            next = now();
+            phaseNanos[TickMetrics.Phase.DELIVER.ordinal()] += next - time;
+            time = next;
+            event.begin();
+
+            tickablePeak = Math.max(tickablePeak, tickables.size());
+            ticked += tickables.size();
+            for (int i = 0; i < tickables.size(); i++) {
+                tick(tickables.get(i));
+            }
+            commitPhase(event, TickMetrics.Phase.TICK, tickables.size());
+            tickables.clear();
+            phaseNanos[TickMetrics.Phase.TICK.ordinal()] += now() - time;
+            if (!deferRendering) {
+                handOverDeferred();
+            }
+        }
+
+        private void commitPhase(TickPhaseEvent event, TickMetrics.Phase phase, int count) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.tick = tickCount;
+                event.phase = phase.name();
+                event.count = count;
+                event.commit();
+            }
+        }
+
+        private void deferRemainingBeams() {
+            budgetOverflow = propagatingBeams.size();
+            //Bottom to top, so that they are popped in the same order next tick
+            for (int i = 0; i < propagatingBeams.size(); i++) {
+                deferredBeams.push(propagatingBeams.get(i));
+            }
+            propagatingBeams.clear();
+        }
+
+        /**
+         * Queues the beams deferred by the propagation limits for the next tick, and reports why they were deferred.
+         */
+        private void handOverDeferred() {
+            for (int i = 0; i < deferredBeams.size(); i++) {
+                main.propagatingBeams.push(deferredBeams.get(i));
+            }
+            deferredBeams.clear();
+            if (propagationListener != null) {
+                for (int i = 0; i < loopCells.size(); i++) {
+                    var transform = cellTransforms[loopCells.get(i)];
+                    if (transform != null) {
+                        propagationListener.loopDetected(transform.position.x, transform.position.y);
+                    }
+                }
+                if (budgetOverflow > 0) {
+                    propagationListener.budgetExceeded(budgetOverflow);
+                }
+            }
+            loopCells.clear();
+            budgetOverflow = 0;
+        }
+
+        void tick(ComponentTransform<Tickable> tickable) {
+            tickable.component.tick();
+            boolean changed = tickable.component.isGraphicsChanged();
+            if (changed) {
+                tickable.component.updateGraphics();
+            }
+            if (deferRendering) {
+                graphicsChanged.set(rendered.size(), changed);
+                rendered.add((ComponentTransform) tickable);
+            } else {
+                render((ComponentTransform) tickable, changed);
+            }
+            if (tickable.component instanceof BeamProducer p && p.wantEmit()) {
+                producers.add((ComponentTransform)tickable);
+            }
+            int delay = tickable.component.wakeUpDelay();
+            if (delay > 0) {
+                if (deferRendering) {
+                    //The timing wheel belongs to the main lane
+                    sleeping.add(tickable);
+                    sleepDelays.push(delay);
+                } else {
+                    scheduleWakeUp(tickable, delay);
+                }
+            }
+        }
+
+        void scheduleBeam(int beam, float red, float green, float blue) {
+            if (packedColors) {
+                scheduleBeam(beam, PackedColor.pack(red, green, blue));
+                return;
+            }
+            var beams = beamMap.beams();
+            if (eventDriven && beams.red(beam) == red && beams.green(beam) == green && beams.blue(beam) == blue) return;
+            beams.setColor(beam, red, green, blue);
+            propagate(beam);
+        }
+
+        void scheduleBeam(int beam, int color) {
+            if (!packedColors) {
+                scheduleBeam(beam, PackedColor.red(color), PackedColor.green(color), PackedColor.blue(color));
+                return;
+            }
+            var beams = beamMap.beams();
+            if (eventDriven && beams.color(beam) == color) return;
+            beams.setColor(beam, color);
+            propagate(beam);
+        }
+
+        /**
+         * Queues the beam for its target, if the target reacts to beams, and draws it.
+         */
+        private void propagate(int beam) {
+            var beams = beamMap.beams();
+            int target = beams.targetCell(beam);
+            if (target != BeamStore.NONE) {
+                var component = cellTransforms[target].component;
+                if (component.isInstantManipulator() || component.isConsumer()) {
+                    propagatingBeams.push(beam);
+                }
+            }
+            if (deferRendering) {
+                drawnBeams.push(beam);
+            } else {
+                drawBeam(beam);
+            }
+        }
+
+        /**
+         * Replays the deferred renderer calls, and hands the producers that want to emit next tick, the components that
+         * want to wake up later and the beams deferred by the propagation limits back to the main lane.
+         */
+        void merge() {
+            for (int i = 0; i < drawnBeams.size(); i++) {
+                drawBeam(drawnBeams.get(i));
+            }
+            drawnBeams.clear();
+            for (int i = 0; i < rendered.size(); i++) {
+                render(rendered.get(i), graphicsChanged.get(i));
+            }
+            rendered.clear();
+            graphicsChanged.clear();
+            main.producers.addAll(producers);
+            producers.clear();
+            for (int i = 0; i < sleeping.size(); i++) {
+                scheduleWakeUp(sleeping.get(i), sleepDelays.get(i));
+            }
+            sleeping.clear();
+            sleepDelays.clear();
+            handOverDeferred();
+        }
+    }
 }
@@ -24,6 +24,11 @@ public class InteractionManager implements InputHandler {
     private final Component[] components; //TODO remove demo code
     private Component selectedComponent;
     private final int z;
+    private EditJournal journal = null;
+    private Clipboard clipboard = null;
+    private EditQueue edits = null;
+    private final Vector2i selectionCorner = new Vector2i();
+    private boolean selecting = false;
     public InteractionManager(World2D world, Camera camera, Component[] components, int z) {
         this.world = world;
         this.camera = camera;
@@ -37,6 +42,72 @@ public class InteractionManager implements InputHandler {
         this.z = z;
     }
 
+    /**
+     * Routes every edit through the journal, so that it gets saved. Null edits the world directly.
+     */
+    public void setJournal(EditJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Enables copy and paste. C marks the first corner of the selection, and C or X on the opposite corner copies or
+     * cuts it. V pastes, with the top left corner at the cursor, rotated and flipped like the placement.
+     */
+    public void setClipboard(Clipboard clipboard) {
+        this.clipboard = clipboard;
+    }
+
+    /**
+     * Submits every edit and clipboard operation to the queue instead of applying it, for worlds that tick on another
+     * thread. Null edits the world directly.
+     */
+    public void setEditQueue(EditQueue edits) {
+        this.edits = edits;
+    }
+
+    private void submitted(boolean accepted) {
+        if (!accepted) System.out.println("Too many edits at once, dropped one");
+    }
+
+    private boolean clipboardEvent(int keyCode) {
+        var x = (int)Math.floor(cursorProjectionBuffer.x);
+        var y = (int)Math.floor(cursorProjectionBuffer.y);
+        if (keyCode == GLFW_KEY_V) {
+            if (edits != null) {
+                submitted(edits.paste(clipboard, x, y, placeDir, placeFlip));
+            } else if (journal != null) {
+                clipboard.paste(journal, x, y, placeDir, placeFlip);
+            } else {
+                clipboard.paste(world, x, y, placeDir, placeFlip);
+            }
+            System.out.println("Pasted clipboard at: (" + x + ", " + y + ")");
+        } else if (!selecting) {
+            selectionCorner.set(x, y);
+            selecting = true;
+            System.out.println("Selection started at: (" + x + ", " + y + ")");
+        } else {
+            int minX = Math.min(x, selectionCorner.x);
+            int minY = Math.min(y, selectionCorner.y);
+            int width = Math.abs(x - selectionCorner.x) + 1;
+            int height = Math.abs(y - selectionCorner.y) + 1;
+            if (edits != null) {
+                submitted(edits.copy(clipboard, minX, minY, width, height, keyCode == GLFW_KEY_X));
+            } else {
+                clipboard.copy(world, minX, minY, width, height);
+                if (keyCode == GLFW_KEY_X) {
+                    if (journal != null) {
+                        journal.removeAll(minX, minY, width, height);
+                    } else {
+                        world.removeAll(minX, minY, width, height, null);
+                    }
+                }
+            }
+            selecting = false;
+            System.out.println((keyCode == GLFW_KEY_X ? "Cut " : "Copied ") + width + "x" + height + " cells");
+        }
+        return true;
+    }
+
     private final Vector2f cursorProjectionBuffer = new Vector2f();
     private final Vector2i mouseBuffer = new Vector2i();
 
@@ -59,6 +130,7 @@ public class InteractionManager implements InputHandler {
                     System.out.println("Placement flip: " + placeFlip);
                     yield true;
                 }
+                case GLFW_KEY_C, GLFW_KEY_X, GLFW_KEY_V -> clipboard != null && clipboardEvent(event.keyCode());
                 default -> false;
             };
         else return false;
@@ -75,9 +147,17 @@ public class InteractionManager implements InputHandler {
 
         return switch (event.type()) {
             case LPress -> {
+                if (edits != null) {
+                    var newComponent = selectedComponent.newInstance();
+                    selectedComponent.copy(newComponent);
+                    submitted(edits.placeOrInteract(x, y, placeDir, placeFlip, newComponent));
+                    yield true;
+                }
                 var existing = world.get(x, y);
                 if (existing != null) {
-                    if (existing.isInteractive()) {
+                    if (journal != null) {
+                        journal.interact(x, y);
+                    } else if (existing.isInteractive()) {
                         ((UserInteractive)existing).mouseInteraction();
                         world.forceTick(x, y);
                     }
@@ -87,12 +167,22 @@ public class InteractionManager implements InputHandler {
                             + ", flipped: " + placeFlip);
                     var newComponent = selectedComponent.newInstance();
                     selectedComponent.copy(newComponent);
-                    world.set(x, y, placeDir, placeFlip, newComponent);
+                    if (journal != null) {
+                        journal.set(x, y, placeDir, placeFlip, newComponent);
+                    } else {
+                        world.set(x, y, placeDir, placeFlip, newComponent);
+                    }
                 }
                 yield true;
             }
             case RPress -> {
-                world.remove((int)Math.floor(cursorProjectionBuffer.x), (int)Math.floor(cursorProjectionBuffer.y));
+                if (edits != null) {
+                    submitted(edits.remove(x, y));
+                } else if (journal != null) {
+                    journal.remove(x, y);
+                } else {
+                    world.remove(x, y);
+                }
                 yield true;
             }
             case Move -> {
@@ -0,0 +1,20 @@
+package xyz.chromabeam.world;
+
+/**
+ * Gets notified when the instant propagation of a tick had to be cut short, see
+ * {@link FlatWorld2D#setPropagationLimits(int, int, PropagationListener)}.
+ */
+public interface PropagationListener {
+    /**
+     * A beam hit the component at the specified position more times within a single tick than the loop limit allows.
+     * This usually means that the component is part of a loop of instant manipulators. The beam is deferred to the next
+     * tick.
+     */
+    void loopDetected(int x, int y);
+
+    /**
+     * The propagation budget of a tick ran out, and the specified amount of pending beams were deferred to the next tick.
+     */
+    default void budgetExceeded(int deferredBeams) {
+    }
+}
@@ -0,0 +1,77 @@
+package xyz.chromabeam.world;
+
+import xyz.chromabeam.beam.Direction;
+import xyz.chromabeam.component.Component;
+
+import java.util.Arrays;
+
+/**
+ * A rectangular block of placed components, detached from any world. Used to place or move many components at once,
+ * see {@link World2D#setAll(int, int, Region)}. Coordinates are relative to the top left corner of the region.
+ */
+public class Region {
+    public final int width;
+    public final int height;
+    private final Component[] components;
+    private final Direction[] directions;
+    private final boolean[] flipped;
+    private int count = 0;
+
+    public Region(int width, int height) {
+        if (width < 0 || height < 0) throw new IllegalArgumentException("Region size cannot be negative!");
+        this.width = width;
+        this.height = height;
+        components = new Component[width * height];
+        directions = new Direction[width * height];
+        flipped = new boolean[width * height];
+    }
+
+    private int index(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) throw new IndexOutOfBoundsException("(" + x + ", " + y + ") is outside the region!");
+        return y * width + x;
+    }
+
+    /**
+     * Puts a component into the region, or clears the cell if the component is null.
+     * @return The old component of the cell, or null if it was empty
+     */
+    public Component set(int x, int y, Direction direction, boolean flipped, Component component) {
+        int i = index(x, y);
+        var old = components[i];
+        if (old != null) count--;
+        if (component != null) count++;
+        components[i] = component;
+        directions[i] = component == null ? null : direction;
+        this.flipped[i] = component != null && flipped;
+        return old;
+    }
+
+    public Component get(int x, int y) {
+        return components[index(x, y)];
+    }
+
+    public Direction getDirection(int x, int y) {
+        return directions[index(x, y)];
+    }
+
+    public boolean isFlipped(int x, int y) {
+        return flipped[index(x, y)];
+    }
+
+    /**
+     * Empties every cell, so that the region can be reused.
+     */
+    public void clear() {
+        Arrays.fill(components, null);
+        Arrays.fill(directions, null);
+        Arrays.fill(flipped, false);
+        count = 0;
+    }
+
+    /**
+     * @return The amount of non-empty cells.
+     */
+    public int getComponentCount() {
+        return count;
+    }
+}
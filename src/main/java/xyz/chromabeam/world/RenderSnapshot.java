@@ -0,0 +1,227 @@
+package xyz.chromabeam.world;
+
+import org.joml.Vector4f;
+import xyz.chromabeam.beam.Direction;
+import xyz.chromabeam.component.Component;
+import xyz.chromabeam.engine.beam.Beam;
+import xyz.chromabeam.engine.render.beam.BeamDrawer;
+import xyz.chromabeam.engine.render.texture.TextureRegionI;
+import xyz.chromabeam.util.storage.LongObjectMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The render state that changed since the previous snapshot, as the latest state of every component cell and beam cell
+ * that was touched. Touching a cell again overwrites its entry, so a snapshot never grows past the amount of distinct
+ * cells changed, no matter how many ticks it covers. The entries are reused after {@link #reset()}, so recording into a
+ * snapshot doesn't allocate once it has grown large enough.
+ */
+class RenderSnapshot {
+    private static final int NONE = 0;
+    private static final int SET = 1;
+    private static final int COLORS = 2;
+    private static final int REMOVED = 3;
+
+    private static final int DRAWN = 1;
+    private static final int ERASED = 2;
+
+    private static final Direction[] dirs = Direction.values();
+    private static final Vector4f WHITE = new Vector4f(1);
+
+    private static final class ComponentEntry {
+        int x;
+        int y;
+        int state;
+        /**
+         * The cell was removed before it was set again, so the layers left behind by the old component must go.
+         */
+        boolean cleared;
+        Direction direction;
+        boolean flipped;
+        int layers;
+        TextureRegionI[] textures = new TextureRegionI[4];
+        float[] colors = new float[16];
+
+        void ensureLayers(int count) {
+            if (count > textures.length) {
+                textures = Arrays.copyOf(textures, count);
+                colors = Arrays.copyOf(colors, count * 4);
+            }
+            layers = Math.max(layers, count);
+        }
+
+        void setColor(int layer, Vector4f color) {
+            colors[layer * 4] = color.x;
+            colors[layer * 4 + 1] = color.y;
+            colors[layer * 4 + 2] = color.z;
+            colors[layer * 4 + 3] = color.w;
+        }
+
+        Vector4f getColor(int layer, Vector4f buffer) {
+            return buffer.set(colors[layer * 4], colors[layer * 4 + 1], colors[layer * 4 + 2], colors[layer * 4 + 3]);
+        }
+    }
+
+    private static final class BeamEntry {
+        int x;
+        int y;
+        boolean cleared;
+        final int[] states = new int[4];
+        final Beam[] beams = new Beam[4];
+    }
+
+    private final LongObjectMap<ComponentEntry> componentIndex = new LongObjectMap<>(ComponentEntry[]::new);
+    private final List<ComponentEntry> components = new ArrayList<>();
+    private int componentCount = 0;
+    private final LongObjectMap<BeamEntry> beamIndex = new LongObjectMap<>(BeamEntry[]::new);
+    private final List<BeamEntry> beams = new ArrayList<>();
+    private int beamCount = 0;
+    private final Vector4f colorBuffer = new Vector4f();
+
+    private static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    private ComponentEntry component(int x, int y) {
+        long key = key(x, y);
+        var entry = componentIndex.get(key);
+        if (entry == null) {
+            if (componentCount == components.size()) components.add(new ComponentEntry());
+            entry = components.get(componentCount++);
+            entry.x = x;
+            entry.y = y;
+            entry.state = NONE;
+            entry.cleared = false;
+            entry.layers = 0;
+            componentIndex.put(key, entry);
+        }
+        return entry;
+    }
+
+    private BeamEntry beam(int x, int y) {
+        long key = key(x, y);
+        var entry = beamIndex.get(key);
+        if (entry == null) {
+            if (beamCount == beams.size()) beams.add(new BeamEntry());
+            entry = beams.get(beamCount++);
+            entry.x = x;
+            entry.y = y;
+            entry.cleared = false;
+            Arrays.fill(entry.states, NONE);
+            beamIndex.put(key, entry);
+        }
+        return entry;
+    }
+
+    boolean isEmpty() {
+        return componentCount == 0 && beamCount == 0;
+    }
+
+    void set(ComponentTransform<Component> transform) {
+        var entry = component(transform.position.x, transform.position.y);
+        var component = transform.component;
+        int masks = component.getColorMaskCount();
+        entry.state = SET;
+        entry.direction = transform.direction;
+        entry.flipped = transform.flipped;
+        entry.layers = 0;
+        entry.ensureLayers(masks + 1);
+        entry.textures[0] = component.getTexture();
+        entry.setColor(0, WHITE);
+        for (int i = 0; i < masks; i++) {
+            entry.textures[i + 1] = component.getColorMaskTexture(i);
+            entry.setColor(i + 1, component.getColorMaskColor(i, colorBuffer));
+        }
+    }
+
+    void updateMaskColors(ComponentTransform<Component> transform) {
+        var entry = component(transform.position.x, transform.position.y);
+        //A component can't change colors after it was removed, without being set again first.
+        if (entry.state == REMOVED) return;
+        if (entry.state == NONE) entry.state = COLORS;
+        var component = transform.component;
+        int masks = component.getColorMaskCount();
+        entry.ensureLayers(masks + 1);
+        for (int i = 0; i < masks; i++) {
+            entry.setColor(i + 1, component.getColorMaskColor(i, colorBuffer));
+        }
+    }
+
+    void remove(int x, int y) {
+        var entry = component(x, y);
+        entry.state = REMOVED;
+        entry.cleared = true;
+    }
+
+    void drawBeam(Beam beam) {
+        var entry = beam(beam.sourceX, beam.sourceY);
+        int i = beam.direction.ordinal();
+        if (entry.beams[i] == null) entry.beams[i] = new Beam();
+        beam.copyTo(entry.beams[i]);
+        entry.states[i] = DRAWN;
+    }
+
+    void removeBeam(int x, int y, Direction direction) {
+        beam(x, y).states[direction.ordinal()] = ERASED;
+    }
+
+    void removeBeams(int x, int y) {
+        var entry = beam(x, y);
+        entry.cleared = true;
+        Arrays.fill(entry.states, NONE);
+    }
+
+    /**
+     * Replays the final state of every touched cell, in the order the cells were first touched.
+     * @param worldRenderer Receives the components, can be null
+     * @param beamDrawer Receives the beams, can be null
+     */
+    void applyTo(WorldRenderer worldRenderer, BeamDrawer beamDrawer) {
+        if (worldRenderer != null) {
+            for (int i = 0; i < componentCount; i++) {
+                var entry = components.get(i);
+                if (entry.cleared) worldRenderer.remove(entry.x, entry.y);
+                if (entry.state == SET) {
+                    for (int layer = 0; layer < entry.layers; layer++) {
+                        worldRenderer.setLayer(entry.x, entry.y, entry.direction, entry.flipped, layer,
+                                entry.textures[layer], entry.getColor(layer, colorBuffer));
+                    }
+                } else if (entry.state == COLORS) {
+                    for (int layer = 1; layer < entry.layers; layer++) {
+                        worldRenderer.setLayerColor(entry.x, entry.y, layer, entry.getColor(layer, colorBuffer));
+                    }
+                }
+            }
+        }
+        if (beamDrawer != null) {
+            for (int i = 0; i < beamCount; i++) {
+                var entry = beams.get(i);
+                if (entry.cleared) beamDrawer.removeAll(entry.x, entry.y);
+                for (int d = 0; d < 4; d++) {
+                    if (entry.states[d] == DRAWN) {
+                        beamDrawer.drawBeam(entry.beams[d]);
+                    } else if (entry.states[d] == ERASED) {
+                        beamDrawer.removeBeam(entry.x, entry.y, dirs[d]);
+                    }
+                }
+            }
+        }
+    }
+
+    void reset() {
+        for (int i = 0; i < componentCount; i++) {
+            var entry = components.get(i);
+            //Don't hold on to the textures of components that might be long gone.
+            Arrays.fill(entry.textures, null);
+            componentIndex.remove(key(entry.x, entry.y));
+        }
+        componentCount = 0;
+        for (int i = 0; i < beamCount; i++) {
+            var entry = beams.get(i);
+            beamIndex.remove(key(entry.x, entry.y));
+        }
+        beamCount = 0;
+    }
+}
@@ -0,0 +1,96 @@
+package xyz.chromabeam.world;
+
+import xyz.chromabeam.beam.Direction;
+import xyz.chromabeam.component.Component;
+import xyz.chromabeam.engine.beam.Beam;
+import xyz.chromabeam.engine.render.beam.BeamDrawer;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hands the render state of a world ticking on one thread to the renderers on another, without either of them ever
+ * waiting for the other. Give it to the world in place of the renderers: the world's thread records every change into
+ * one snapshot, and {@link #publish()}es it after each tick, while the render thread {@link #apply applies} the other
+ * one to the real renderers. When the render thread hasn't taken the previous snapshot yet, publishing is skipped and
+ * the changes keep piling up in the current one, which only keeps the latest state of each cell, so slow frames cost
+ * memory proportional to the changed area and never lose a change.
+ */
+public class RenderSnapshotBuffer implements ComponentDrawer, BeamDrawer {
+    private RenderSnapshot recording = new RenderSnapshot();
+    private final AtomicReference<RenderSnapshot> ready = new AtomicReference<>();
+    private final AtomicReference<RenderSnapshot> free = new AtomicReference<>(new RenderSnapshot());
+
+    /**
+     * Must only be called on the thread that updates the world.
+     * @return True if the changes recorded since the previous publish were handed over to the render thread, false if
+     * there were none or the render thread is still busy with the previous snapshot.
+     */
+    public boolean publish() {
+        if (recording.isEmpty() || ready.get() != null) return false;
+        //Free is only empty while the render thread applies the previous snapshot
+        var next = free.getAndSet(null);
+        if (next == null) return false;
+        ready.set(recording);
+        recording = next;
+        return true;
+    }
+
+    /**
+     * Must only be called on the thread that updates the world.
+     * @return True if the render thread is done with the previous snapshot, so a {@link #publish()} would hand the
+     * recorded changes over, if there are any.
+     */
+    public boolean canPublish() {
+        return ready.get() == null && free.get() != null;
+    }
+
+    /**
+     * Applies the latest published snapshot, if there is one. Must only be called on the render thread.
+     * @return True if there was a snapshot to apply
+     */
+    public boolean apply(WorldRenderer worldRenderer, BeamDrawer beamDrawer) {
+        var snapshot = ready.getAndSet(null);
+        if (snapshot == null) return false;
+        snapshot.applyTo(worldRenderer, beamDrawer);
+        snapshot.reset();
+        free.set(snapshot);
+        return true;
+    }
+
+    @Override
+    public void set(ComponentTransform<Component> transform) {
+        recording.set(transform);
+    }
+
+    @Override
+    public void updateMaskColors(ComponentTransform<Component> transform) {
+        recording.updateMaskColors(transform);
+    }
+
+    @Override
+    public void remove(int x, int y) {
+        recording.remove(x, y);
+    }
+
+    /**
+     * Does nothing, the beams only turn into vertices on the render thread.
+     */
+    @Override
+    public void clear() {
+    }
+
+    @Override
+    public void drawBeam(Beam beam) {
+        recording.drawBeam(beam);
+    }
+
+    @Override
+    public void removeBeam(int x, int y, Direction direction) {
+        recording.removeBeam(x, y, direction);
+    }
+
+    @Override
+    public void removeAll(int x, int y) {
+        recording.removeBeams(x, y);
+    }
+}
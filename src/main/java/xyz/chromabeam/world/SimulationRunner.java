@@ -0,0 +1,152 @@
+package xyz.chromabeam.world;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Updates a world on a dedicated thread, so that slow frames don't slow down the simulation, and slow ticks don't drop
+ * frames. Once started, the world belongs to the simulation thread: every other thread must go through an
+ * {@link EditQueue} or {@link #execute(Runnable)} to touch it, and receives its graphics through a
+ * {@link RenderSnapshotBuffer} given to the world in place of the renderers. Pairs well with
+ * {@link World2D#setFastForward(boolean) fast-forward mode}, the world is then flushed once per published snapshot.
+ */
+public class SimulationRunner implements Executor, AutoCloseable {
+    /**
+     * The longest a waiting simulation thread sleeps before it looks at the task queue again.
+     */
+    private static final long MAX_PARK_NANOS = 1_000_000;
+    /**
+     * How many ticks the simulation can fall behind a fixed tick rate before it gives up catching up.
+     */
+    private static final int MAX_LAG_TICKS = 5;
+
+    private final World2D world;
+    private final RenderSnapshotBuffer snapshots;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private volatile EditQueue edits = null;
+    private final Thread thread;
+    private volatile boolean running = false;
+    private volatile long tickInterval = 0;
+    private volatile long ticks = 0;
+
+    /**
+     * @param snapshots The buffer the world draws into, published after every tick, or null if nothing renders the
+     *                  world.
+     */
+    public SimulationRunner(World2D world, RenderSnapshotBuffer snapshots) {
+        this.world = world;
+        this.snapshots = snapshots;
+        thread = new Thread(this::run, "Simulation");
+    }
+
+    /**
+     * @param ticksPerSecond The target tick rate, or 0 to tick as fast as possible.
+     */
+    public void setTickRate(double ticksPerSecond) {
+        if (ticksPerSecond < 0) throw new IllegalArgumentException("Tick rate cannot be negative!");
+        tickInterval = ticksPerSecond == 0 ? 0 : Math.max(1, (long) (1_000_000_000 / ticksPerSecond));
+    }
+
+    public void start() {
+        running = true;
+        thread.start();
+    }
+
+    /**
+     * @return False once the runner was closed, or the simulation thread died of an exception.
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return The amount of ticks run so far.
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Runs the task on the simulation thread, between two ticks. Never blocks. Tasks run in the order they were
+     * submitted, and a task submitted before {@link #start()} runs before the first tick.
+     */
+    @Override
+    public void execute(Runnable task) {
+        tasks.add(task);
+    }
+
+    /**
+     * Drains the queue at every tick boundary, before the tasks.
+     */
+    public void setEditQueue(EditQueue edits) {
+        this.edits = edits;
+    }
+
+    private boolean runTasks() {
+        var edits = this.edits;
+        boolean any = edits != null && edits.drain() > 0;
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+            any = true;
+        }
+        return any;
+    }
+
+    /**
+     * Flushes a fast-forwarding world only when the snapshot can actually be handed over, so that every frame gets a
+     * single flush, no matter how many ticks ran since the previous one.
+     */
+    private void publish() {
+        if (snapshots != null && snapshots.canPublish()) {
+            world.flushRendering();
+            snapshots.publish();
+        }
+    }
+
+    private void run() {
+        try {
+            long next = System.nanoTime();
+            while (running) {
+                runTasks();
+                world.update();
+                ticks++;
+                publish();
+                long interval = tickInterval;
+                if (interval == 0) continue;
+                next += interval;
+                long remaining = next - System.nanoTime();
+                if (remaining < -MAX_LAG_TICKS * interval) {
+                    next -= remaining;
+                }
+                while (running && (remaining = next - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(Math.min(remaining, MAX_PARK_NANOS));
+                    //Edits shouldn't wait for the next tick to show up, and neither should a snapshot that was held back
+                    runTasks();
+                    publish();
+                }
+            }
+            runTasks();
+            publish();
+        } finally {
+            running = false;
+        }
+    }
+
+    /**
+     * Stops the simulation after the current tick, and waits for it. Tasks submitted before closing still run, tasks
+     * submitted after don't. The world can be used from the calling thread afterwards.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            if (thread.isAlive()) thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package xyz.chromabeam.world;
+
+import xyz.chromabeam.util.LatencyHistogram;
+
+/**
+ * Collects the timings and work counts of every {@link FlatWorld2D#update()}, see
+ * {@link FlatWorld2D#setMetrics(TickMetrics)}. Every tick records the duration of the whole update, and the duration of
+ * each of its phases, into latency histograms. When ticking in parallel, a phase's duration is the sum over every
+ * island, so it measures the work done rather than the wall clock time, and the queue high-water marks are those of
+ * the busiest island. Must only be read on the thread that updates the world.
+ */
+public class TickMetrics {
+    public enum Phase {
+        /**
+         * Producers emitting their beams.
+         */
+        EMIT,
+        /**
+         * Draining the propagation queue, including every instant manipulator hit.
+         */
+        PROPAGATE,
+        /**
+         * Handing the beams to the consumers.
+         */
+        DELIVER,
+        /**
+         * Ticking the consumers and the woken up components.
+         */
+        TICK
+    }
+
+    private static final Phase[] phases = Phase.values();
+
+    private final LatencyHistogram updates = new LatencyHistogram();
+    private final LatencyHistogram[] phaseHistograms = new LatencyHistogram[phases.length];
+    private long ticks = 0;
+    private long beamsPropagated = 0;
+    private long consumersHit = 0;
+    private long tickablesRun = 0;
+    private int propagationHighWater = 0;
+    private int consumerHighWater = 0;
+    private int tickableHighWater = 0;
+
+    public TickMetrics() {
+        for (int i = 0; i < phaseHistograms.length; i++) {
+            phaseHistograms[i] = new LatencyHistogram();
+        }
+    }
+
+    void record(long updateNanos, long[] phaseNanos, int propagated, int consumed, int ticked,
+                int propagationPeak, int consumerPeak, int tickablePeak) {
+        ticks++;
+        updates.record(updateNanos);
+        for (int i = 0; i < phaseHistograms.length; i++) {
+            phaseHistograms[i].record(phaseNanos[i]);
+        }
+        beamsPropagated += propagated;
+        consumersHit += consumed;
+        tickablesRun += ticked;
+        propagationHighWater = Math.max(propagationHighWater, propagationPeak);
+        consumerHighWater = Math.max(consumerHighWater, consumerPeak);
+        tickableHighWater = Math.max(tickableHighWater, tickablePeak);
+    }
+
+    /**
+     * @return The durations of whole updates, in nanoseconds.
+     */
+    public LatencyHistogram getUpdates() {
+        return updates;
+    }
+
+    /**
+     * @return The durations of the phase within each update, in nanoseconds.
+     */
+    public LatencyHistogram getPhase(Phase phase) {
+        return phaseHistograms[phase.ordinal()];
+    }
+
+    /**
+     * @return The phase that took the most time in total.
+     */
+    public Phase getDominantPhase() {
+        var result = Phase.EMIT;
+        for (var phase: phases) {
+            if (getPhase(phase).getSum() > getPhase(result).getSum()) result = phase;
+        }
+        return result;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * @return The amount of beams taken off the propagation queue, by instant manipulators and consumers alike.
+     */
+    public long getBeamsPropagated() {
+        return beamsPropagated;
+    }
+
+    /**
+     * @return The amount of beams handed to consumers.
+     */
+    public long getConsumersHit() {
+        return consumersHit;
+    }
+
+    public long getTickablesRun() {
+        return tickablesRun;
+    }
+
+    /**
+     * @return The largest size the propagation queue reached.
+     */
+    public int getPropagationHighWater() {
+        return propagationHighWater;
+    }
+
+    /**
+     * @return The most beams that were waiting to be delivered to consumers in a single tick.
+     */
+    public int getConsumerHighWater() {
+        return consumerHighWater;
+    }
+
+    /**
+     * @return The most components that were waiting to be ticked in a single tick.
+     */
+    public int getTickableHighWater() {
+        return tickableHighWater;
+    }
+
+    public void reset() {
+        updates.reset();
+        for (var histogram: phaseHistograms) {
+            histogram.reset();
+        }
+        ticks = 0;
+        beamsPropagated = 0;
+        consumersHit = 0;
+        tickablesRun = 0;
+        propagationHighWater = 0;
+        consumerHighWater = 0;
+        tickableHighWater = 0;
+    }
+}
@@ -3,12 +3,57 @@ package xyz.chromabeam.world;
 import xyz.chromabeam.beam.Direction;
 import xyz.chromabeam.component.Component;
 
+import java.util.function.Consumer;
+
 public interface World2D extends BeamResolver {
     Component set(int x, int y, Direction direction, boolean flipped, Component component);
     Component get(int x, int y);
     Component remove(int x, int y);
+
+    /**
+     * Places every component of the region at once, with its top left corner at the specified position. Components
+     * already in the world are replaced where the region has a component, and kept where it doesn't. Much faster than
+     * setting the components one by one.
+     */
+    void setAll(int x, int y, Region region);
+
+    /**
+     * Removes every component of a rectangle at once. Much faster than removing the components one by one.
+     * @param mask Row-major, true for the cells to remove, or null to remove the whole rectangle
+     * @return The removed components, relative to the top left corner of the rectangle
+     */
+    Region removeAll(int x, int y, int width, int height, boolean[] mask);
+
+    /**
+     * Removes every component.
+     */
+    void clear();
+
+    /**
+     * Makes room for the specified amount of new components, so bulk loads don't grow the internal arrays one step at a
+     * time. Only a hint, placing more components than reserved still works.
+     */
+    void ensureCapacity(int components);
     void forceTick(int x, int y);
     void update();
+
+    /**
+     * In fast-forward mode, ticks only mark the changed cells dirty, and the renderers receive their final state with
+     * {@link #flushRendering()}. Switching it off flushes.
+     */
+    void setFastForward(boolean fastForward);
+    boolean isFastForward();
+
+    /**
+     * Hands every cell marked dirty in fast-forward mode to the renderers.
+     */
+    void flushRendering();
     ComponentTransform<Component> getTransform(int x, int y, ComponentTransform<Component> buffer);
 
+    /**
+     * Calls the action with the transform of every component, in no particular order. The transforms are the world's
+     * own, so they must not be modified, and are only valid until the world is edited.
+     */
+    void forEachTransform(Consumer<ComponentTransform<Component>> action);
+
 }
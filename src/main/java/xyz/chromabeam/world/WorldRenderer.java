@@ -1,23 +1,32 @@
 package xyz.chromabeam.world;
 
 import org.joml.Vector4f;
+import xyz.chromabeam.beam.Direction;
 import xyz.chromabeam.component.Component;
 import xyz.chromabeam.engine.render.chunk.RenderChunk;
+import xyz.chromabeam.engine.render.chunk.RenderChunkI;
+import xyz.chromabeam.engine.render.texture.TextureRegionI;
 import xyz.chromabeam.util.FastMath;
 import xyz.chromabeam.util.storage.Container2D;
-import xyz.chromabeam.util.storage.NativeContainer2D;
+import xyz.chromabeam.util.storage.Container2DFactory;
 
 import java.util.function.BiFunction;
 
-public class WorldRenderer {
-    private final Container2D<RenderChunk> chunks = new NativeContainer2D<>(RenderChunk[]::new, RenderChunk[][]::new, RenderChunk[][][]::new);
-    private final BiFunction<Integer, Integer, RenderChunk> renderChunkSupplier;
-    public WorldRenderer(BiFunction<Integer, Integer, RenderChunk> renderChunkSupplier) {
+public class WorldRenderer implements ComponentDrawer {
+    private final Container2D<RenderChunkI> chunks;
+    private final BiFunction<Integer, Integer, ? extends RenderChunkI> renderChunkSupplier;
+    public WorldRenderer(BiFunction<Integer, Integer, ? extends RenderChunkI> renderChunkSupplier) {
+        this(renderChunkSupplier, Container2DFactory.NATIVE);
+    }
+
+    public WorldRenderer(BiFunction<Integer, Integer, ? extends RenderChunkI> renderChunkSupplier, Container2DFactory containerFactory) {
         this.renderChunkSupplier = renderChunkSupplier;
+        chunks = containerFactory.create(RenderChunkI[]::new, RenderChunkI[][]::new, RenderChunkI[][][]::new);
     }
 
     private static final Vector4f WHITE = new Vector4f(1);
     private static final Vector4f colorBuffer = new Vector4f(1);
+    @Override
     public void set(ComponentTransform<Component> transform) {
         int cX = Math.floorDiv(transform.position.x, RenderChunk.CHUNK_SIDE_LENGTH);
         int cY = Math.floorDiv(transform.position.y, RenderChunk.CHUNK_SIDE_LENGTH);
@@ -37,6 +46,7 @@ public class WorldRenderer {
         }
     }
 
+    @Override
     public void updateMaskColors(ComponentTransform<Component> transform) {
         int cX = Math.floorDiv(transform.position.x, RenderChunk.CHUNK_SIDE_LENGTH);
         int cY = Math.floorDiv(transform.position.y, RenderChunk.CHUNK_SIDE_LENGTH);
@@ -50,6 +60,23 @@ public class WorldRenderer {
         }
     }
 
+    /**
+     * Sets a single layer of a cell, layer 0 being the base texture and layer i + 1 the color mask i.
+     */
+    public void setLayer(int x, int y, Direction direction, boolean flipped, int layer, TextureRegionI texture, Vector4f color) {
+        int cX = Math.floorDiv(x, RenderChunk.CHUNK_SIDE_LENGTH);
+        int cY = Math.floorDiv(y, RenderChunk.CHUNK_SIDE_LENGTH);
+        var chunk = chunks.getOrCompute(cX, cY, () -> renderChunkSupplier.apply(cX, cY));
+        chunk.set(FastMath.floorMod(x, RenderChunk.CHUNK_SIDE_LENGTH), FastMath.floorMod(y, RenderChunk.CHUNK_SIDE_LENGTH),
+                direction, flipped, layer, texture, color);
+    }
+
+    public void setLayerColor(int x, int y, int layer, Vector4f color) {
+        var chunk = chunks.get(Math.floorDiv(x, RenderChunk.CHUNK_SIDE_LENGTH), Math.floorDiv(y, RenderChunk.CHUNK_SIDE_LENGTH));
+        chunk.setColor(FastMath.floorMod(x, RenderChunk.CHUNK_SIDE_LENGTH), FastMath.floorMod(y, RenderChunk.CHUNK_SIDE_LENGTH), layer, color);
+    }
+
+    @Override
     public void remove(int x, int y) {
         int cX = Math.floorDiv(x, RenderChunk.CHUNK_SIDE_LENGTH);
         int cY = Math.floorDiv(y, RenderChunk.CHUNK_SIDE_LENGTH);
@@ -0,0 +1,201 @@
+package xyz.chromabeam.world;
+
+import xyz.chromabeam.beam.Direction;
+import xyz.chromabeam.component.Component;
+import xyz.chromabeam.component.ComponentRegistry;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Saves and loads whole worlds in a compact binary format. The world is split into chunks of 64x64 cells, and every
+ * component is stored as a single int, with the state of stateful components appended after it:
+ * <pre>
+ * int magic, int version
+ * int typeCount, typeCount * (short idLength, byte[] id, byte stateful)
+ * int chunkCount, chunkCount * (int chunkX, int chunkY, int componentCount, componentCount * component)
+ * component: int (x | y << 6 | direction << 12 | flipped << 14 | type << 15), stateful ? (short length, byte[] state)
+ * </pre>
+ * The type table maps the type numbers of the file to component IDs, so files stay readable when the registry changes.
+ * The lengths are unsigned shorts, so an ID or a state can be at most {@value #MAX_LENGTH} bytes long.
+ * Loading maps the file into memory and places every chunk with a single {@link World2D#setAll(int, int, Region)}.
+ */
+public final class WorldSnapshot {
+    private static final int MAGIC = 0x43425753;
+    private static final int VERSION = 1;
+    private static final int CHUNK_SHIFT = 6;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int TYPE_SHIFT = 15;
+    private static final int MAX_LENGTH = 0xFFFF;
+    private static final int BUFFER_SIZE = 1 << 17;
+
+    private WorldSnapshot() {}
+
+    public static void save(World2D world, ComponentRegistry registry, Path path) throws IOException {
+        var chunks = new HashMap<Long, List<ComponentTransform<Component>>>();
+        world.forEachTransform((tf) -> {
+            long key = ((long) (tf.position.x >> CHUNK_SHIFT) << 32) | ((tf.position.y >> CHUNK_SHIFT) & 0xFFFFFFFFL);
+            chunks.computeIfAbsent(key, (k) -> new ArrayList<>()).add(tf);
+        });
+        try (var channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            var buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(registry.getTypeCount());
+            for (int i = 0; i < registry.getTypeCount(); i++) {
+                var prototype = registry.getPrototype(i);
+                var id = prototype.getID().getBytes(StandardCharsets.UTF_8);
+                if (id.length > MAX_LENGTH) throw new IllegalArgumentException("Component ID " + prototype.getID() + " is too long!");
+                reserve(channel, buffer, 3 + id.length);
+                buffer.putShort((short) id.length).put(id).put((byte) (prototype.stateSize() > 0 ? 1 : 0));
+            }
+            reserve(channel, buffer, 4);
+            buffer.putInt(chunks.size());
+            for (var entry: chunks.entrySet()) {
+                var chunk = entry.getValue();
+                reserve(channel, buffer, 12);
+                buffer.putInt((int) (entry.getKey() >> 32)).putInt(entry.getKey().intValue()).putInt(chunk.size());
+                for (int i = 0; i < chunk.size(); i++) {
+                    var tf = chunk.get(i);
+                    int type = registry.getTypeID(tf.component.getID());
+                    if (type < 0) throw new IllegalArgumentException("Component " + tf.component.getID() + " is not registered!");
+                    boolean stateful = registry.getPrototype(type).stateSize() > 0;
+                    int stateSize = stateful ? tf.component.stateSize() : 0;
+                    if (stateSize > MAX_LENGTH) throw new IllegalStateException("Component " + tf.component.getID() + " has more than " + MAX_LENGTH + " bytes of state!");
+                    reserve(channel, buffer, 6 + stateSize);
+                    buffer.putInt((tf.position.x & CHUNK_MASK)
+                            | (tf.position.y & CHUNK_MASK) << CHUNK_SHIFT
+                            | tf.direction.ordinal() << 12
+                            | (tf.flipped ? 1 : 0) << 14
+                            | type << TYPE_SHIFT);
+                    if (stateful) {
+                        buffer.putShort((short) stateSize);
+                        int start = buffer.position();
+                        tf.component.writeState(buffer);
+                        if (buffer.position() - start != stateSize) throw new IllegalStateException("Component " + tf.component.getID() + " wrote a different amount of state than it reported!");
+                    }
+                }
+            }
+            flush(channel, buffer);
+            //Durable before anything can replace the old snapshot with it
+            channel.force(true);
+        }
+    }
+
+    private static void reserve(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) return;
+        flush(channel, buffer);
+        if (buffer.remaining() < bytes) throw new IllegalStateException("Cannot save " + bytes + " bytes of state for a single component!");
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Replaces the contents of the world with the saved world. The whole file is checked before the world is touched, so
+     * a truncated or corrupt file leaves the world as it was.
+     */
+    public static void load(World2D world, ComponentRegistry registry, Path path) throws IOException {
+        ByteBuffer buffer;
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.remaining() < 12 || buffer.getInt() != MAGIC) throw new IOException(path + " is not a saved world!");
+        int version = buffer.getInt();
+        if (version != VERSION) throw new IOException("Unsupported world version " + version + "!");
+        int typeCount = buffer.getInt();
+        //Every type takes at least 3 bytes
+        if (typeCount < 0 || typeCount > buffer.remaining() / 3) throw corrupt(path, null);
+        var types = new int[typeCount];
+        var stateful = new boolean[typeCount];
+        int components;
+        try {
+            for (int i = 0; i < typeCount; i++) {
+                var id = new byte[Short.toUnsignedInt(buffer.getShort())];
+                buffer.get(id);
+                var name = new String(id, StandardCharsets.UTF_8);
+                types[i] = registry.getTypeID(name);
+                stateful[i] = buffer.get() != 0;
+                if (types[i] < 0) throw new IOException("Unknown component " + name + "!");
+            }
+            components = validate(buffer.duplicate(), stateful, path);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw corrupt(path, e);
+        }
+        world.clear();
+        world.ensureCapacity(components);
+        var directions = Direction.values();
+        var region = new Region(CHUNK_SIZE, CHUNK_SIZE);
+        int limit = buffer.limit();
+        int chunkCount = buffer.getInt();
+        try {
+            for (int c = 0; c < chunkCount; c++) {
+                int chunkX = buffer.getInt();
+                int chunkY = buffer.getInt();
+                int count = buffer.getInt();
+                for (int i = 0; i < count; i++) {
+                    int packed = buffer.getInt();
+                    int type = packed >>> TYPE_SHIFT;
+                    var component = registry.create(types[type]);
+                    if (stateful[type]) {
+                        int end = Short.toUnsignedInt(buffer.getShort()) + buffer.position();
+                        //A component can't read into the next one
+                        buffer.limit(end);
+                        component.readState(buffer);
+                        buffer.limit(limit).position(end);
+                    }
+                    region.set(packed & CHUNK_MASK, (packed >> CHUNK_SHIFT) & CHUNK_MASK, directions[(packed >> 12) & 3], ((packed >> 14) & 1) != 0, component);
+                }
+                world.setAll(chunkX << CHUNK_SHIFT, chunkY << CHUNK_SHIFT, region);
+                region.clear();
+            }
+        } catch (BufferUnderflowException e) {
+            //Only a component reading more state than it saved gets here, don't leave half a world behind
+            world.clear();
+            throw corrupt(path, e);
+        }
+    }
+
+    /**
+     * Walks the chunks without creating any component, and checks that every count, type and length fits the file.
+     * @return The amount of components in the file
+     */
+    private static int validate(ByteBuffer buffer, boolean[] stateful, Path path) throws IOException {
+        int chunkCount = buffer.getInt();
+        //Every chunk takes at least 12 bytes
+        if (chunkCount < 0 || chunkCount > buffer.remaining() / 12) throw corrupt(path, null);
+        int components = 0;
+        for (int c = 0; c < chunkCount; c++) {
+            buffer.position(buffer.position() + 8);
+            int count = buffer.getInt();
+            if (count < 0 || count > CHUNK_SIZE * CHUNK_SIZE || count > buffer.remaining() / 4) throw corrupt(path, null);
+            components += count;
+            for (int i = 0; i < count; i++) {
+                int type = buffer.getInt() >>> TYPE_SHIFT;
+                if (type >= stateful.length) throw corrupt(path, null);
+                if (stateful[type]) {
+                    int stateSize = Short.toUnsignedInt(buffer.getShort());
+                    buffer.position(buffer.position() + stateSize);
+                }
+            }
+        }
+        if (buffer.hasRemaining()) throw corrupt(path, null);
+        return components;
+    }
+
+    private static IOException corrupt(Path path, Exception cause) {
+        return new IOException(path + " is truncated or corrupt!", cause);
+    }
+}
@@ -0,0 +1,29 @@
+#version 330 core
+//One unit quad per instance, see InstanceLayer for the record layout
+layout(location = 0) in vec2 corner;
+layout(location = 1) in uint instanceIN;
+layout(location = 2) in vec4 colorIN;
+
+uniform mat3 projectionMatrix;
+uniform vec2 chunk;
+uniform int edgeLength;
+//u0, v0, u1, v1 of every region, the size must match RegionTable.MAX_REGIONS
+uniform vec4 regions[192];
+
+out vec2 uv;
+out vec4 color;
+void main() {
+    int cell = int(instanceIN & 0xFFFFu);
+    int direction = int((instanceIN >> 16) & 3u);
+    bool flipped = ((instanceIN >> 18) & 1u) != 0u;
+    vec4 region = regions[instanceIN >> 19];
+    //Same mapping as RenderChunk.set: left and up mirror u, flipping mirrors v, vertical directions swap the axes
+    bool otherRotation = direction >= 2;
+    vec2 start = vec2(otherRotation ? region.z : region.x, flipped != otherRotation ? region.w : region.y);
+    vec2 end = vec2(otherRotation ? region.x : region.z, flipped != otherRotation ? region.y : region.w);
+    vec2 t = direction % 2 == 0 ? corner : vec2(corner.y, 1.0 - corner.x);
+    uv = mix(start, end, t);
+    color = colorIN;
+    vec2 position = vec2(cell % edgeLength, cell / edgeLength) + corner;
+    gl_Position = vec4((projectionMatrix * vec3(position + chunk, 1.0)).xy, 0.0, 1.0);
+}
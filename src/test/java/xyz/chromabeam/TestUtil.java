@@ -1,11 +1,103 @@
 package xyz.chromabeam;
 
 import org.joml.Vector3f;
+import org.joml.Vector4f;
+import xyz.chromabeam.beam.Direction;
+import xyz.chromabeam.component.Component;
+import xyz.chromabeam.component.ComponentRegistry;
+import xyz.chromabeam.demo.components.basic.*;
+import xyz.chromabeam.world.ComponentTransform;
+import xyz.chromabeam.world.World2D;
 
-import java.awt.*;
+import java.awt.Color;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
 
 public final class TestUtil {
+    /**
+     * The basic demo components the random worlds are built from, Clock excluded, as its timing depends on the tick.
+     */
+    public static final List<Supplier<Component>> BASIC = List.of(Emitter::new, Mirror::new, Splitter::new, Gate::new, Block::new, Delayer::new);
+
     public static Vector3f colorToVector(Color color) {
         return new Vector3f(color.getRed() / 255f, color.getGreen() / 255f, color.getBlue() / 255f);
     }
+
+    /**
+     * @return A registry of every basic demo component
+     */
+    public static ComponentRegistry registry() {
+        var registry = new ComponentRegistry();
+        for (var prototype: new Component[]{new Block(), new Emitter(), new Gate(), new Mirror(), new Splitter(), new Delayer(), new Clock()}) {
+            registry.register(prototype);
+        }
+        return registry;
+    }
+
+    /**
+     * @return The saved state of the component, ready for comparing
+     */
+    public static ByteBuffer state(Component component) {
+        var buffer = ByteBuffer.allocate(component.stateSize());
+        component.writeState(buffer);
+        return buffer.flip();
+    }
+
+    public static Component randomComponent(Random rng) {
+        return randomComponent(rng, BASIC);
+    }
+
+    public static Component randomComponent(Random rng, List<Supplier<Component>> types) {
+        return types.get(rng.nextInt(types.size())).get();
+    }
+
+    /**
+     * Places random basic components at random cells of the area, the same ones for the same seed.
+     */
+    public static void populate(World2D world, Random rng, int x, int y, int width, int height, int count) {
+        populate(world, rng, x, y, width, height, count, BASIC);
+    }
+
+    public static void populate(World2D world, Random rng, int x, int y, int width, int height, int count, List<Supplier<Component>> types) {
+        var dirs = Direction.values();
+        for (int i = 0; i < count; i++) {
+            world.set(x + rng.nextInt(width), y + rng.nextInt(height), dirs[rng.nextInt(4)], rng.nextBoolean(), randomComponent(rng, types));
+        }
+    }
+
+    /**
+     * Describes every component of the area row by row, with its orientation, state and colors, for comparing worlds.
+     */
+    public static List<String> describe(World2D world, int x, int y, int width, int height) {
+        return describe(world, x, y, width, height, true);
+    }
+
+    /**
+     * @param state Whether to describe the state and colors too. Replaced components keep emitting their old beams until
+     *              their inputs change, so those only match between worlds edited in the same order.
+     */
+    public static List<String> describe(World2D world, int x, int y, int width, int height, boolean state) {
+        var result = new ArrayList<String>();
+        var transform = new ComponentTransform<Component>();
+        var color = new Vector4f();
+        for (int j = y; j < y + height; j++) {
+            for (int i = x; i < x + width; i++) {
+                if (world.get(i, j) == null) continue;
+                world.getTransform(i, j, transform);
+                var component = transform.getComponent();
+                var line = new StringBuilder().append(i).append(' ').append(j).append(' ').append(component.getID())
+                        .append(' ').append(transform.getDirection()).append(' ').append(transform.isFlipped());
+                if (state) line.append(' ').append(Arrays.toString(state(component).array()));
+                for (int m = 0; state && m < component.getColorMaskCount(); m++) {
+                    line.append(' ').append(component.getColorMaskColor(m, color));
+                }
+                result.add(line.toString());
+            }
+        }
+        return result;
+    }
 }
@@ -0,0 +1,56 @@
+package xyz.chromabeam.beam;
+
+import org.junit.jupiter.api.Test;
+import xyz.chromabeam.TestUtil;
+import xyz.chromabeam.util.storage.Container2DFactory;
+import xyz.chromabeam.world.FlatWorld2D;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PackedColorTest {
+    @Test
+    public void testChannelOperations() {
+        System.out.println("Testing packed color operations");
+        var random = new Random(4);
+        for (int i = 0; i < 100000; i++) {
+            int a = PackedColor.pack(random.nextFloat(), random.nextFloat(), random.nextFloat());
+            int b = PackedColor.pack(random.nextFloat(), random.nextFloat(), i % 7 == 0 ? PackedColor.blue(a) : random.nextFloat());
+            assertEquals(a, PackedColor.pack(PackedColor.red(a), PackedColor.green(a), PackedColor.blue(a)));
+            int expected = PackedColor.pack(Math.max(PackedColor.red(a), PackedColor.red(b)),
+                    Math.max(PackedColor.green(a), PackedColor.green(b)),
+                    Math.max(PackedColor.blue(a), PackedColor.blue(b)));
+            assertEquals(expected, PackedColor.max(a, b));
+            float brightest = Math.max(PackedColor.red(a), Math.max(PackedColor.green(a), PackedColor.blue(a)));
+            assertEquals(brightest >= 0.5f, PackedColor.isBright(a));
+        }
+        assertEquals(1f, PackedColor.blue(PackedColor.WHITE));
+        assertEquals(PackedColor.WHITE, PackedColor.pack(3, 1, 1.5f));
+        assertEquals(PackedColor.BLACK, PackedColor.pack(-1, 0, 0));
+        assertTrue(PackedColor.isBright(PackedColor.pack(0, 0, 0.5f)));
+        assertFalse(PackedColor.isBright(PackedColor.pack(0.49f, 0.49f, 0.49f)));
+    }
+
+    private static List<String> simulate(long seed, boolean packed) {
+        var world = new FlatWorld2D(null, null, Container2DFactory.NATIVE, packed);
+        TestUtil.populate(world, new Random(seed), 0, 0, 40, 40, 400);
+        var result = new ArrayList<String>();
+        for (int t = 0; t < 50; t++) {
+            world.update();
+            result.add("Tick " + t);
+            result.addAll(TestUtil.describe(world, 0, 0, 40, 40));
+        }
+        return result;
+    }
+
+    @Test
+    public void testPackedWorld() {
+        System.out.println("Testing worlds with packed beam colors");
+        for (long seed = 0; seed < 10; seed++) {
+            assertEquals(simulate(seed, false), simulate(seed, true), "Seed " + seed);
+        }
+    }
+}
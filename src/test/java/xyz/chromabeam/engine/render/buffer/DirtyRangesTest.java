@@ -0,0 +1,78 @@
+package xyz.chromabeam.engine.render.buffer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DirtyRangesTest {
+    @Test
+    public void testMerging() {
+        System.out.println("Testing dirty range merging");
+        var ranges = new DirtyRanges(16, 4);
+        assertTrue(ranges.isEmpty());
+        ranges.mark(100, 200);
+        ranges.mark(0, 10);
+        ranges.mark(500, 600);
+        assertEquals(3, ranges.size());
+        //Touching, within the gap, and overlapping two ranges at once
+        ranges.mark(200, 210);
+        ranges.mark(220, 230);
+        assertEquals(3, ranges.size());
+        assertEquals(100, ranges.start(1));
+        assertEquals(230, ranges.end(1));
+        ranges.mark(5, 505);
+        assertEquals(1, ranges.size());
+        assertEquals(0, ranges.start(0));
+        assertEquals(600, ranges.end(0));
+        assertEquals(600, ranges.bytes());
+
+        //The fifth range merges the closest two
+        ranges.clear();
+        for (int i = 0; i < 4; i++) {
+            ranges.mark(i * 1000, i * 1000 + 10);
+        }
+        ranges.mark(2050, 2060);
+        assertEquals(4, ranges.size());
+        assertEquals(2000, ranges.start(2));
+        assertEquals(2060, ranges.end(2));
+
+        ranges.markAll(4096);
+        assertEquals(1, ranges.size());
+        assertEquals(4096, ranges.bytes());
+        assertThrows(IllegalArgumentException.class, () -> ranges.mark(10, 5));
+    }
+
+    @Test
+    public void testRandomMarksAreCovered() {
+        System.out.println("Testing dirty range coverage");
+        var random = new Random(21);
+        int size = 1 << 16;
+        for (int round = 0; round < 200; round++) {
+            int gap = random.nextInt(256);
+            int max = 1 + random.nextInt(16);
+            var ranges = new DirtyRanges(gap, max);
+            var marked = new boolean[size];
+            int marks = random.nextInt(64);
+            for (int i = 0; i < marks; i++) {
+                int start = random.nextInt(size);
+                int end = Math.min(size, start + random.nextInt(512));
+                ranges.mark(start, end);
+                for (int b = start; b < end; b++) marked[b] = true;
+            }
+            assertTrue(ranges.size() <= max);
+            for (int i = 0; i < ranges.size(); i++) {
+                assertTrue(ranges.start(i) < ranges.end(i));
+                if (i > 0) assertTrue(ranges.start(i) > ranges.end(i - 1) + gap, "Ranges should have been merged");
+                //Ranges never extend past the marked bytes at their ends
+                assertTrue(marked[ranges.start(i)] && marked[ranges.end(i) - 1]);
+            }
+            for (int b = 0, i = 0; b < size; b++) {
+                if (!marked[b]) continue;
+                while (ranges.end(i) <= b) i++;
+                assertTrue(ranges.start(i) <= b, "Byte " + b + " isn't covered");
+            }
+        }
+    }
+}
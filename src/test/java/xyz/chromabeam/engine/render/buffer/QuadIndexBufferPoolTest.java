@@ -0,0 +1,28 @@
+package xyz.chromabeam.engine.render.buffer;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.IntBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QuadIndexBufferPoolTest {
+    @Test
+    public void testQuadIndices() {
+        System.out.println("Testing quad indices");
+        int quads = 1000;
+        var buffer = IntBuffer.allocate(quads * QuadIndexBufferPool.INDICES_PER_QUAD);
+        QuadIndexBufferPool.putQuadIndices(buffer, quads);
+        assertFalse(buffer.hasRemaining());
+        for (int quad = 0; quad < quads; quad++) {
+            int base = quad * QuadIndexBufferPool.INDICES_PER_QUAD;
+            int vertex = quad * QuadIndexBufferPool.VERTICES_PER_QUAD;
+            //Two triangles sharing the diagonal from the first to the third vertex
+            assertArrayEquals(new int[]{vertex, vertex + 1, vertex + 2, vertex, vertex + 2, vertex + 3},
+                    new int[]{buffer.get(base), buffer.get(base + 1), buffer.get(base + 2),
+                            buffer.get(base + 3), buffer.get(base + 4), buffer.get(base + 5)});
+        }
+        assertEquals(0, QuadIndexBufferPool.getReferences(quads));
+        assertThrows(IllegalStateException.class, () -> QuadIndexBufferPool.release(quads));
+    }
+}
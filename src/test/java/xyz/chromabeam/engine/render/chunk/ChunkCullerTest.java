@@ -0,0 +1,117 @@
+package xyz.chromabeam.engine.render.chunk;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChunkCullerTest {
+    private static final int EDGE = 16;
+    private static final int FRAMES = 10;
+
+    private static final class Chunk {
+        final int x;
+        final int y;
+
+        Chunk(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    private static ChunkCuller<Chunk> culler(List<Chunk> chunks, int size) {
+        var culler = new ChunkCuller<Chunk>(EDGE, FRAMES, c -> c.x, c -> c.y);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                var chunk = new Chunk(x, y);
+                chunks.add(chunk);
+                culler.add(chunk);
+            }
+        }
+        return culler;
+    }
+
+    @Test
+    public void testCulling() {
+        System.out.println("Testing chunk culling");
+        var chunks = new ArrayList<Chunk>();
+        var culler = culler(chunks, 8);
+        //Touches chunks 1-2 horizontally, and only chunk 3 vertically
+        var visible = culler.cull(EDGE + 1, 3 * EDGE - 1, 3 * EDGE, 4 * EDGE - 1);
+        assertEquals(2, visible.size());
+        for (var chunk: visible) {
+            assertTrue(chunk.x == 1 || chunk.x == 2);
+            assertEquals(3, chunk.y);
+        }
+        //No viewport, everything is drawn
+        assertEquals(chunks.size(), culler.cull(Float.NaN, Float.NaN, Float.NaN, Float.NaN).size());
+    }
+
+    @Test
+    public void testDeactivation() {
+        System.out.println("Testing chunk deactivation");
+        var chunks = new ArrayList<Chunk>();
+        var culler = culler(chunks, 8);
+        for (int i = 0; i < FRAMES; i++) {
+            assertEquals(64, culler.getActiveCount());
+            assertEquals(1, culler.cull(0, EDGE - 1, 0, EDGE - 1).size());
+        }
+        assertEquals(1, culler.getActiveCount());
+        assertEquals(63, culler.getInactiveCount());
+        //Small view, found through the position index
+        var visible = culler.cull(5 * EDGE + 1, 6 * EDGE - 1, 5 * EDGE + 1, 6 * EDGE - 1);
+        assertEquals(1, visible.size());
+        assertSame(chunks.get(5 * 8 + 5), visible.get(0));
+        assertEquals(62, culler.getInactiveCount());
+        //Zoomed out past every inactive chunk, found through the list
+        assertEquals(64, culler.cull(-1000 * EDGE, 1000 * EDGE, -1000 * EDGE, 1000 * EDGE).size());
+        assertEquals(0, culler.getInactiveCount());
+    }
+
+    @Test
+    public void testManualActivation() {
+        System.out.println("Testing manual chunk activation");
+        var chunks = new ArrayList<Chunk>();
+        var culler = culler(chunks, 2);
+        var chunk = chunks.get(3);
+        culler.deactivate(chunk);
+        assertEquals(1, culler.getInactiveCount());
+        assertEquals(3, culler.getActiveCount());
+        culler.activate(chunk);
+        assertEquals(0, culler.getInactiveCount());
+        culler.deactivate(chunk);
+        assertTrue(culler.remove(chunk));
+        assertFalse(culler.remove(chunk));
+        assertEquals(0, culler.getInactiveCount());
+        assertEquals(3, culler.getAll().size());
+        assertEquals(3, culler.cull(0, 2 * EDGE, 0, 2 * EDGE).size());
+    }
+
+    @Test
+    public void testRandomPanning() {
+        System.out.println("Testing chunk culling while panning");
+        var chunks = new ArrayList<Chunk>();
+        var culler = culler(chunks, 32);
+        var rng = new Random(25);
+        for (int frame = 0; frame < 2000; frame++) {
+            if (rng.nextInt(50) == 0) {
+                var chunk = chunks.remove(rng.nextInt(chunks.size()));
+                assertTrue(culler.remove(chunk));
+            }
+            float left = rng.nextInt(40 * EDGE) - 4 * EDGE;
+            float bottom = rng.nextInt(40 * EDGE) - 4 * EDGE;
+            float size = rng.nextInt(8 * EDGE) + 1;
+            var visible = new HashSet<>(culler.cull(left, left + size, bottom, bottom + size));
+            for (var chunk: chunks) {
+                boolean expected = chunk.x * EDGE < left + size && (chunk.x + 1) * EDGE > left
+                        && chunk.y * EDGE < bottom + size && (chunk.y + 1) * EDGE > bottom;
+                assertEquals(expected, visible.contains(chunk));
+            }
+            assertEquals(chunks.size(), culler.getActiveCount() + culler.getInactiveCount());
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package xyz.chromabeam.engine.render.chunk;
+
+import org.joml.Vector4f;
+import org.junit.jupiter.api.Test;
+import xyz.chromabeam.beam.Direction;
+import xyz.chromabeam.engine.render.texture.RegionTable;
+import xyz.chromabeam.engine.render.texture.TextureRegionI;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InstanceLayerTest {
+    private static final int CELLS = 64 * 64;
+
+    private record Region(float u0, float v0, float u1, float v1) implements TextureRegionI {
+        @Override
+        public int x() {
+            return 0;
+        }
+
+        @Override
+        public int y() {
+            return 0;
+        }
+
+        @Override
+        public int width() {
+            return 0;
+        }
+
+        @Override
+        public int height() {
+            return 0;
+        }
+    }
+
+    private static Map<Integer, Long> readBack(InstanceLayer layer) {
+        var result = new HashMap<Integer, Long>();
+        var records = layer.getRecords();
+        for (int i = 0; i < layer.size(); i++) {
+            long record = records.getLong(i * InstanceLayer.BYTES_PER_INSTANCE);
+            int cell = records.getInt(i * InstanceLayer.BYTES_PER_INSTANCE) & 0xFFFF;
+            assertNull(result.put(cell, record), "Cell " + cell + " has two records");
+        }
+        return result;
+    }
+
+    @Test
+    public void testRecordsMatchCells() {
+        System.out.println("Testing instance layer records");
+        var buffer = ByteBuffer.allocate(CELLS * InstanceLayer.BYTES_PER_INSTANCE).order(ByteOrder.nativeOrder());
+        var layer = new InstanceLayer(CELLS, buffer);
+        var expected = new HashMap<Integer, Long>();
+        var record = ByteBuffer.allocate(InstanceLayer.BYTES_PER_INSTANCE).order(ByteOrder.nativeOrder());
+        var random = new Random(22);
+        var color = new Vector4f();
+        for (int i = 0; i < 20000; i++) {
+            int cell = random.nextInt(CELLS);
+            if (random.nextInt(3) == 0) {
+                layer.remove(cell);
+                expected.remove(cell);
+            } else {
+                var direction = Direction.values()[random.nextInt(4)];
+                boolean flipped = random.nextBoolean();
+                int region = random.nextInt(InstanceLayer.MAX_REGION + 1);
+                int red = random.nextInt(256);
+                color.set(red / 255f, 0, 1, 1);
+                layer.set(cell, direction, flipped, region, color);
+                record.putInt(0, InstanceLayer.packInstance(cell, direction, flipped, region));
+                record.put(4, (byte) red).put(5, (byte) 0).put(6, (byte) 255).put(7, (byte) 255);
+                expected.put(cell, record.getLong(0));
+            }
+            assertEquals(expected.size(), layer.size());
+        }
+        assertEquals(expected, readBack(layer));
+        for (int cell = 0; cell < CELLS; cell++) {
+            assertEquals(expected.containsKey(cell), layer.contains(cell));
+        }
+    }
+
+    @Test
+    public void testPackingAndDirtyRanges() {
+        System.out.println("Testing instance record packing");
+        var layer = new InstanceLayer(CELLS, ByteBuffer.allocate(CELLS * InstanceLayer.BYTES_PER_INSTANCE).order(ByteOrder.nativeOrder()));
+        layer.set(4095, Direction.UP, true, InstanceLayer.MAX_REGION, new Vector4f(1, 0.5f, -1, 2));
+        var records = layer.getRecords();
+        int instance = records.getInt(0);
+        assertEquals(4095, instance & 0xFFFF);
+        assertEquals(Direction.UP.ordinal(), (instance >>> 16) & 3);
+        assertEquals(1, (instance >>> 18) & 1);
+        assertEquals(InstanceLayer.MAX_REGION, instance >>> 19);
+        //Clamped, in RGBA order
+        assertEquals((byte) 255, records.get(4));
+        assertEquals((byte) 128, records.get(5));
+        assertEquals((byte) 0, records.get(6));
+        assertEquals((byte) 255, records.get(7));
+        var dirty = layer.getDirtyRanges();
+        assertEquals(1, dirty.size());
+        assertEquals(0, dirty.start(0));
+        assertEquals(8, dirty.end(0));
+
+        //Removing the first of three records moves the last one into its place, and only that record needs uploading
+        layer.set(1, Direction.RIGHT, false, 0, new Vector4f(1));
+        layer.set(2, Direction.RIGHT, false, 0, new Vector4f(1));
+        dirty.clear();
+        layer.remove(4095);
+        assertEquals(2, layer.size());
+        assertEquals(2, records.getInt(0) & 0xFFFF);
+        assertEquals(1, dirty.size());
+        assertEquals(0, dirty.start(0));
+        assertEquals(8, dirty.end(0));
+        dirty.clear();
+        layer.setColor(4095, new Vector4f(1));
+        assertTrue(dirty.isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> layer.set(0, Direction.RIGHT, false, InstanceLayer.MAX_REGION + 1, new Vector4f()));
+    }
+
+    @Test
+    public void testRegionTable() {
+        System.out.println("Testing texture region table");
+        var table = new RegionTable();
+        var a = new Region(0, 0, 0.5f, 0.5f);
+        var b = new Region(0.5f, 0.5f, 1, 1);
+        assertEquals(0, table.indexOf(a));
+        assertEquals(1, table.indexOf(b));
+        assertEquals(0, table.indexOf(a));
+        assertEquals(2, table.size());
+        assertTrue(table.consumeChanged());
+        assertFalse(table.consumeChanged());
+        assertEquals(0.5f, table.getUVs()[4]);
+        assertEquals(1f, table.getUVs()[7]);
+        //Equal, but a different region
+        assertEquals(2, table.indexOf(new Region(0, 0, 0.5f, 0.5f)));
+        for (int i = 3; i < RegionTable.MAX_REGIONS; i++) {
+            table.indexOf(new Region(0, 0, 0, 0));
+        }
+        assertThrows(IllegalStateException.class, () -> table.indexOf(new Region(0, 0, 0, 0)));
+    }
+}
@@ -0,0 +1,39 @@
+package xyz.chromabeam.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+    @Test
+    public void testPercentiles() {
+        System.out.println("Testing latency histogram percentiles");
+        var histogram = new LatencyHistogram();
+        var random = new Random(6);
+        var values = new long[100000];
+        for (int i = 0; i < values.length; i++) {
+            //Log-normal-ish, from nanoseconds to seconds
+            values[i] = (long) Math.exp(random.nextDouble() * 21);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double percentile: new double[]{0, 1, 50, 90, 99, 99.9, 100}) {
+            long expected = values[Math.max(0, (int) Math.ceil(percentile / 100 * values.length) - 1)];
+            long actual = histogram.getPercentile(percentile);
+            assertTrue(actual >= expected && actual <= expected + expected / 32, percentile + ": " + expected + " vs " + actual);
+        }
+        assertEquals(values.length, histogram.getCount());
+        assertEquals(values[values.length - 1], histogram.getMax());
+        assertEquals(Arrays.stream(values).sum(), histogram.getSum());
+
+        histogram.reset();
+        assertEquals(0, histogram.getPercentile(99));
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(0, histogram.getPercentile(50));
+        assertEquals(Long.MAX_VALUE, histogram.getPercentile(100));
+    }
+}
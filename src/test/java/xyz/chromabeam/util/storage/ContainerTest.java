@@ -0,0 +1,214 @@
+package xyz.chromabeam.util.storage;
+
+import org.joml.Vector2i;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ContainerTest {
+    private static final int RANGE = 150;
+
+    private static Container2D<Integer> nativeContainer() {
+        return new NativeContainer2D<>(Integer[]::new, Integer[][]::new, Integer[][][]::new);
+    }
+
+    private static Container2D<Integer> tiledContainer() {
+        return new TiledContainer2D<>(Integer[]::new);
+    }
+
+    //Walks the container cell by cell, within the coordinate range used by the random tests.
+    private static boolean scan(Container2D<Integer> container, int x, int y, int dX, int dY, Vector2i buffer) {
+        for (x += dX, y += dY; Math.abs(x) <= RANGE && Math.abs(y) <= RANGE; x += dX, y += dY) {
+            if (container.get(x, y) != null) {
+                buffer.set(x, y);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void assertNeighbors(Container2D<Integer> container, int x, int y) {
+        var e = new Vector2i();
+        var a = new Vector2i();
+        assertEquals(scan(container, x, y, 1, 0, e), container.getRight(x, y, a), "getRight " + x + ", " + y);
+        if (!container.isEmptyRight(x, y)) assertEquals(e, a, "getRight " + x + ", " + y);
+        assertEquals(scan(container, x, y, 0, 1, e), container.getDown(x, y, a), "getDown " + x + ", " + y);
+        if (!container.isEmptyDown(x, y)) assertEquals(e, a, "getDown " + x + ", " + y);
+        assertEquals(scan(container, x, y, -1, 0, e), container.getLeft(x, y, a), "getLeft " + x + ", " + y);
+        if (!container.isEmptyLeft(x, y)) assertEquals(e, a, "getLeft " + x + ", " + y);
+        assertEquals(scan(container, x, y, 0, -1, e), container.getUp(x, y, a), "getUp " + x + ", " + y);
+        if (!container.isEmptyUp(x, y)) assertEquals(e, a, "getUp " + x + ", " + y);
+    }
+
+    @Test
+    public void testNeighborQueries() {
+        System.out.println("Testing directional neighbor queries");
+        var containers = new ArrayList<Container2D<Integer>>();
+        containers.add(nativeContainer());
+        containers.add(tiledContainer());
+        for (var container: containers) {
+            var random = new Random(1);
+            for (int i = 0; i < 20000; i++) {
+                int x = random.nextInt(2 * RANGE) - RANGE;
+                int y = random.nextInt(2 * RANGE) - RANGE;
+                if (random.nextInt(3) == 0) {
+                    container.remove(x, y);
+                } else {
+                    container.set(x, y, i);
+                }
+                assertNeighbors(container, random.nextInt(2 * RANGE) - RANGE, random.nextInt(2 * RANGE) - RANGE);
+            }
+        }
+        var expected = new HashSet<Integer>();
+        containers.get(0).forEach(expected::add);
+        var actual = new HashSet<Integer>();
+        containers.get(1).forEach(actual::add);
+        assertEquals(containers.get(0).getElementCount(), containers.get(1).getElementCount());
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testRemoveAllAndClear() {
+        System.out.println("Testing bulk removal and clearing");
+        for (var container: List.of(nativeContainer(), tiledContainer())) {
+            var reference = nativeContainer();
+            var random = new Random(3);
+            for (int i = 0; i < 5000; i++) {
+                int x = random.nextInt(2 * RANGE) - RANGE;
+                int y = random.nextInt(2 * RANGE) - RANGE;
+                container.set(x, y, i);
+                reference.set(x, y, i);
+            }
+            var mask = new boolean[40 * 30];
+            for (int i = 0; i < mask.length; i++) {
+                mask[i] = random.nextBoolean();
+            }
+            var removed = new Integer[mask.length];
+            container.removeAll(-20, -15, 40, 30, mask, removed);
+            for (int j = 0; j < 30; j++) {
+                for (int i = 0; i < 40; i++) {
+                    var expected = mask[j * 40 + i] ? reference.remove(i - 20, j - 15) : null;
+                    assertEquals(expected, removed[j * 40 + i]);
+                }
+            }
+            assertEquals(reference.getElementCount(), container.getElementCount());
+            var expected = new HashSet<Integer>();
+            reference.forEach(expected::add);
+            var actual = new HashSet<Integer>();
+            container.forEach(actual::add);
+            assertEquals(expected, actual);
+            for (int i = 0; i < 200; i++) {
+                assertNeighbors(container, random.nextInt(2 * RANGE) - RANGE, random.nextInt(2 * RANGE) - RANGE);
+            }
+            container.clear();
+            assertEquals(0, container.getElementCount());
+            assertFalse(container.iterator().hasNext());
+            assertNull(container.get(5, -5));
+            assertTrue(container.isEmptyRight(-RANGE, 0));
+            container.set(5, -5, 1);
+            assertEquals(1, container.get(5, -5));
+            assertEquals(1, container.getElementCount());
+        }
+    }
+
+    @Test
+    public void testHierarchicalBitSet() {
+        System.out.println("Testing hierarchical bit set searches");
+        var bits = new HierarchicalBitSet();
+        var reference = new BitSet();
+        var random = new Random(2);
+        for (int i = 0; i < 5000; i++) {
+            int index = random.nextInt(1 << 20);
+            if (random.nextBoolean()) {
+                bits.set(index);
+                reference.set(index);
+            } else {
+                index = reference.nextSetBit(index);
+                if (index >= 0) {
+                    bits.clear(index);
+                    reference.clear(index);
+                }
+            }
+            int from = random.nextInt(1 << 21);
+            assertEquals(reference.nextSetBit(from), bits.next(from), "next " + from);
+            assertEquals(reference.previousSetBit(from), bits.previous(from), "previous " + from);
+        }
+    }
+
+    @Test
+    public void testLongGap() {
+        System.out.println("Testing neighbor queries across a long gap");
+        var container = nativeContainer();
+        container.set(-100_000, 3, 1);
+        container.set(100_000, 3, 2);
+        container.set(5, 100_000, 3);
+        var buffer = new Vector2i();
+        assertTrue(container.getRight(-100_000, 3, buffer));
+        assertEquals(new Vector2i(100_000, 3), buffer);
+        assertTrue(container.getLeft(100_000, 3, buffer));
+        assertEquals(new Vector2i(-100_000, 3), buffer);
+        assertTrue(container.getDown(5, -100_000, buffer));
+        assertEquals(new Vector2i(5, 100_000), buffer);
+        container.remove(100_000, 3);
+        assertFalse(container.getRight(-100_000, 3, buffer));
+    }
+
+    @Test
+    public void testTiledFarApart() {
+        System.out.println("Testing tiled container with far apart elements");
+        var container = (TiledContainer2D<Integer>) tiledContainer();
+        container.set(50_000_000, 7, 1);
+        container.set(-50_000_000, 7, 2);
+        container.set(3, -80_000_000, 3);
+        assertEquals(3, container.getTileCount());
+        var buffer = new Vector2i();
+        assertTrue(container.getRight(-50_000_000, 7, buffer));
+        assertEquals(new Vector2i(50_000_000, 7), buffer);
+        assertTrue(container.getLeft(50_000_000, 7, buffer));
+        assertEquals(new Vector2i(-50_000_000, 7), buffer);
+        assertTrue(container.getUp(3, 0, buffer));
+        assertEquals(new Vector2i(3, -80_000_000), buffer);
+        assertFalse(container.getDown(3, 0, buffer));
+        container.remove(50_000_000, 7);
+        assertEquals(2, container.getTileCount());
+        assertTrue(container.isEmptyRight(-50_000_000, 7));
+    }
+
+    @Test
+    public void testTiledDropMany() {
+        System.out.println("Testing tiled container emptying many tiles");
+        var container = (TiledContainer2D<Integer>) tiledContainer();
+        var reference = new HashSet<Integer>();
+        var cells = new ArrayList<Integer>();
+        for (int i = 0; i < 40 * 40; i++) {
+            int x = ((i % 40) - 20) * TiledContainer2D.TILE_SIZE;
+            int y = ((i / 40) - 20) * TiledContainer2D.TILE_SIZE;
+            container.set(x, y, i);
+            reference.add(i);
+            cells.add(i);
+        }
+        assertEquals(1600, container.getTileCount());
+        var random = new Random(5);
+        for (int n = 0; n < 1500; n++) {
+            int i = cells.remove(random.nextInt(cells.size()));
+            assertEquals(i, container.remove(((i % 40) - 20) * TiledContainer2D.TILE_SIZE, ((i / 40) - 20) * TiledContainer2D.TILE_SIZE));
+            reference.remove(i);
+            if (n % 100 == 0) {
+                //Iterating sorts the tiles, later removals must still find theirs
+                var actual = new HashSet<Integer>();
+                container.forEach(actual::add);
+                assertEquals(reference, actual);
+            }
+        }
+        assertEquals(100, container.getTileCount());
+        var actual = new HashSet<Integer>();
+        container.forEach(actual::add);
+        assertEquals(reference, actual);
+    }
+}
@@ -0,0 +1,89 @@
+package xyz.chromabeam.world;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import xyz.chromabeam.beam.Direction;
+import xyz.chromabeam.demo.components.basic.Delayer;
+import xyz.chromabeam.demo.components.basic.Emitter;
+import xyz.chromabeam.demo.components.basic.Mirror;
+import xyz.chromabeam.demo.components.basic.Splitter;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AllocationTest {
+    private static final int LOOPS = 16;
+    private static final int LOOP_LENGTH = 30;
+    private static final int WARMUP_TICKS = 20000;
+    private static final int MEASURED_TICKS = 5000;
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        var bean = ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(bean instanceof com.sun.management.ThreadMXBean, "Thread allocation counters are not available on this JVM");
+        var sunBean = (com.sun.management.ThreadMXBean) bean;
+        Assumptions.assumeTrue(sunBean.isThreadAllocatedMemorySupported(), "Thread allocation counters are not supported on this JVM");
+        sunBean.setThreadAllocatedMemoryEnabled(true);
+        return sunBean;
+    }
+
+    /**
+     * Delayer loops closed by 4 mirrors each, with an emitter shining through a splitter into the first delayer of every
+     * loop. Every tick goes through the producer, instant manipulator, consumer and tickable phases.
+     */
+    private static FlatWorld2D buildClocks() {
+        var world = new FlatWorld2D(null, null);
+        for (int l = 0; l < LOOPS; l++) {
+            int oy = l * 3;
+            for (int i = 0; i < LOOP_LENGTH; i++) {
+                world.set(i, oy, Direction.RIGHT, false, new Delayer());
+            }
+            world.set(LOOP_LENGTH, oy, Direction.RIGHT, false, new Mirror());
+            world.set(LOOP_LENGTH, oy + 1, Direction.DOWN, false, new Mirror());
+            world.set(-1, oy + 1, Direction.LEFT, false, new Mirror());
+            world.set(-1, oy, Direction.UP, false, new Mirror());
+            world.set(-3, oy, Direction.RIGHT, false, new Emitter());
+            world.set(-2, oy, Direction.RIGHT, false, new Splitter());
+        }
+        return world;
+    }
+
+    private static long measure(com.sun.management.ThreadMXBean bean, Runnable action, int times) {
+        long thread = Thread.currentThread().getId();
+        //Reading the counter might allocate by itself on some JVMs, subtract that overhead.
+        long start = bean.getThreadAllocatedBytes(thread);
+        long overhead = bean.getThreadAllocatedBytes(thread) - start;
+        start = bean.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < times; i++) {
+            action.run();
+        }
+        return bean.getThreadAllocatedBytes(thread) - start - overhead;
+    }
+
+    @Test
+    public void testTickDoesNotAllocate() {
+        System.out.println("Testing allocations of steady state ticks");
+        var bean = threadBean();
+        var world = buildClocks();
+        Runnable tick = world::update;
+        measure(bean, tick, WARMUP_TICKS);
+        assertEquals(0, measure(bean, tick, MEASURED_TICKS), "Steady state ticks allocated memory");
+    }
+
+    @Test
+    public void testEditDoesNotAllocate() {
+        System.out.println("Testing allocations of steady state edits");
+        var bean = threadBean();
+        var world = buildClocks();
+        var mirror = new Mirror();
+        Runnable toggle = () -> {
+            world.set(LOOP_LENGTH, 0, Direction.RIGHT, false, mirror);
+            world.update();
+            world.remove(LOOP_LENGTH, 0);
+            world.update();
+        };
+        world.remove(LOOP_LENGTH, 0);
+        measure(bean, toggle, WARMUP_TICKS);
+        assertEquals(0, measure(bean, toggle, MEASURED_TICKS), "Steady state edits allocated memory");
+    }
+}
@@ -0,0 +1,165 @@
+package xyz.chromabeam.world;
+
+import org.joml.Vector3f;
+import org.joml.Vector4f;
+import org.junit.jupiter.api.Test;
+import xyz.chromabeam.TestUtil;
+import xyz.chromabeam.beam.Direction;
+import xyz.chromabeam.component.BeamConsumer;
+import xyz.chromabeam.component.Component;
+import xyz.chromabeam.demo.components.basic.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BulkEditTest {
+    private static final int RANGE = 32;
+
+    /**
+     * Shows the last beam it received from every side. Unlike delayers and gates, lamps can't form clocks, so the state
+     * a world settles down in doesn't depend on the order of the edits.
+     */
+    private static class Lamp extends Component implements BeamConsumer {
+        private final Vector3f[] inputs = {new Vector3f(), new Vector3f(), new Vector3f(), new Vector3f()};
+
+        Lamp() {
+            super("Lamp", "lamp", 4);
+        }
+
+        @Override
+        public void incomingBeam(Direction direction, float red, float green, float blue) {
+            inputs[direction.ordinal()].set(red, green, blue);
+        }
+
+        @Override
+        public void tick() {
+        }
+
+        @Override
+        public Vector4f getColorMaskColor(int mask, Vector4f buffer) {
+            return buffer.set(inputs[mask], 1);
+        }
+    }
+
+    private static final List<Supplier<Component>> STABLE = List.of(Emitter::new, Mirror::new, Splitter::new, Lamp::new, Block::new);
+    private static final List<Supplier<Component>> CLOCKS = List.of(Emitter::new, Mirror::new, Splitter::new, Lamp::new, Block::new, Delayer::new, Gate::new);
+
+    /**
+     * Fills the world sparsely with random components, the same ones for the same seed.
+     */
+    private static void populate(World2D world, long seed, boolean clocks) {
+        TestUtil.populate(world, new Random(seed), -RANGE / 2, -RANGE / 2, RANGE, RANGE, RANGE * RANGE / 4, clocks ? CLOCKS : STABLE);
+    }
+
+    private static Region randomRegion(long seed, int width, int height) {
+        var rng = new Random(seed);
+        var dirs = Direction.values();
+        var region = new Region(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (rng.nextInt(3) == 0) continue;
+                region.set(x, y, dirs[rng.nextInt(4)], rng.nextBoolean(), TestUtil.randomComponent(rng, STABLE));
+            }
+        }
+        return region;
+    }
+
+    /**
+     * Ticks the world until it settles down, and describes every component.
+     */
+    private static List<String> settle(World2D world) {
+        for (int i = 0; i < 200; i++) {
+            world.update();
+        }
+        return TestUtil.describe(world, -RANGE, -RANGE, 2 * RANGE, 2 * RANGE);
+    }
+
+    private static List<String> simulate(long seed, boolean bulk) {
+        var world = new FlatWorld2D(null, null);
+        populate(world, seed, false);
+        world.update();
+        var region = randomRegion(seed, 20, 12);
+        //Replacing goes through set() either way, and replaced components keep emitting their old beams until their
+        //inputs change, which depends on the order of the edits.
+        for (int y = 0; y < region.height; y++) {
+            for (int x = 0; x < region.width; x++) {
+                if (world.get(x - 7, y - 5) != null) region.set(x, y, null, false, null);
+            }
+        }
+        if (bulk) {
+            world.setAll(-7, -5, region);
+        } else {
+            for (int y = 0; y < region.height; y++) {
+                for (int x = 0; x < region.width; x++) {
+                    if (region.get(x, y) != null) {
+                        world.set(x - 7, y - 5, region.getDirection(x, y), region.isFlipped(x, y), region.get(x, y));
+                    }
+                }
+            }
+        }
+        return settle(world);
+    }
+
+    private static List<String> simulateRemoval(long seed, boolean bulk) {
+        var world = new FlatWorld2D(null, null);
+        populate(world, seed, false);
+        world.update();
+        var rng = new Random(seed);
+        int width = 14;
+        int height = 9;
+        var mask = new boolean[width * height];
+        for (int i = 0; i < mask.length; i++) {
+            mask[i] = rng.nextInt(4) != 0;
+        }
+        if (bulk) {
+            var removed = world.removeAll(-6, -4, width, height, mask);
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    assertTrue(removed.get(x, y) == null || mask[y * width + x]);
+                    assertNull(mask[y * width + x] ? world.get(x - 6, y - 4) : null);
+                }
+            }
+        } else {
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    //Beams queued by a removal go stale when their source is removed too, drain them right away.
+                    if (mask[y * width + x] && world.remove(x - 6, y - 4) != null) world.update();
+                }
+            }
+        }
+        return settle(world);
+    }
+
+    @Test
+    public void testRemoveAllMatchesRemove() {
+        System.out.println("Testing bulk removal against single removals");
+        for (long seed = 1; seed <= 10; seed++) {
+            assertEquals(simulateRemoval(seed, false), simulateRemoval(seed, true), "Seed " + seed + " diverged");
+        }
+    }
+
+    @Test
+    public void testClear() {
+        System.out.println("Testing clearing a world");
+        var world = new FlatWorld2D(null, null);
+        populate(world, 1, true);
+        settle(world);
+        world.clear();
+        assertTrue(settle(world).isEmpty());
+        populate(world, 2, true);
+        var fresh = new FlatWorld2D(null, null);
+        populate(fresh, 2, true);
+        assertEquals(settle(fresh), settle(world));
+    }
+
+    @Test
+    public void testSetAllMatchesSet() {
+        System.out.println("Testing bulk placement against single placements");
+        for (long seed = 1; seed <= 10; seed++) {
+            assertEquals(simulate(seed, false), simulate(seed, true), "Seed " + seed + " diverged");
+        }
+    }
+}
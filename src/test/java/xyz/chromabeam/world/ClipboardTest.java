@@ -0,0 +1,91 @@
+package xyz.chromabeam.world;
+
+import org.junit.jupiter.api.Test;
+import xyz.chromabeam.TestUtil;
+import xyz.chromabeam.beam.Direction;
+import xyz.chromabeam.component.Component;
+import xyz.chromabeam.demo.components.basic.*;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClipboardTest {
+    @Test
+    public void testTransforms() {
+        System.out.println("Testing clipboard rotation and flipping");
+        var registry = TestUtil.registry();
+        var source = new FlatWorld2D(null, null);
+        var rng = new Random(11);
+        var dirs = Direction.values();
+        int width = 7;
+        int height = 5;
+        for (int i = 0; i < 25; i++) {
+            var component = registry.create(rng.nextInt(registry.getTypeCount()));
+            if (component instanceof Gate gate && rng.nextBoolean()) gate.mouseInteraction();
+            source.set(10 + rng.nextInt(width), 20 + rng.nextInt(height), dirs[rng.nextInt(4)], rng.nextBoolean(), component);
+        }
+        source.set(9, 20, Direction.RIGHT, false, new Block());
+        var clipboard = new Clipboard(registry);
+        clipboard.copy(source, 10, 20, width, height);
+
+        var from = new ComponentTransform<Component>();
+        var to = new ComponentTransform<Component>();
+        for (var rotation: dirs) {
+            for (var flip: new boolean[]{false, true}) {
+                var target = new FlatWorld2D(null, null);
+                clipboard.paste(target, -3, 4, rotation, flip);
+                int pasted = 0;
+                for (int j = 0; j < height; j++) {
+                    for (int i = 0; i < width; i++) {
+                        if (source.get(10 + i, 20 + j) == null) continue;
+                        pasted++;
+                        //Rotate the cell's center around the center of the rectangle, then move the corner back.
+                        float cx = i + 0.5f - width / 2f;
+                        float cy = (flip ? height - j - 0.5f : j + 0.5f) - height / 2f;
+                        for (int s = 0; s < rotation.ordinal(); s++) {
+                            float t = cx;
+                            cx = -cy;
+                            cy = t;
+                        }
+                        boolean turned = (rotation.ordinal() & 1) == 1;
+                        int x = -3 + (int) Math.floor(cx + (turned ? height : width) / 2f);
+                        int y = 4 + (int) Math.floor(cy + (turned ? width : height) / 2f);
+                        source.getTransform(10 + i, 20 + j, from);
+                        assertNotNull(target.get(x, y), "Missing at " + x + ", " + y);
+                        target.getTransform(x, y, to);
+                        assertEquals(from.component.getClass(), to.component.getClass());
+                        assertEquals(TestUtil.state(from.component), TestUtil.state(to.component));
+                        for (var local: dirs) {
+                            var expected = from.toWorld(local).applyFlip(flip).add(rotation);
+                            assertEquals(expected, to.toWorld(local), rotation + " " + flip + " " + local);
+                        }
+                    }
+                }
+                assertEquals(clipboard.getComponentCount(), pasted);
+                int[] total = {0};
+                target.forEachTransform((tf) -> total[0]++);
+                assertEquals(pasted, total[0]);
+            }
+        }
+    }
+
+    @Test
+    public void testPastedCircuitWorks() {
+        System.out.println("Testing pasted circuits");
+        var registry = TestUtil.registry();
+        var world = new FlatWorld2D(null, null);
+        world.set(0, 0, Direction.RIGHT, false, new Emitter());
+        world.set(5, 0, Direction.RIGHT, false, new Delayer());
+        var clipboard = new Clipboard(registry);
+        clipboard.cut(world, 0, 0, 6, 1);
+        assertNull(world.get(0, 0));
+        assertNull(world.get(5, 0));
+        clipboard.paste(world, 100, 100, Direction.DOWN, false);
+        assertTrue(world.get(100, 100) instanceof Emitter);
+        assertTrue(world.get(100, 105) instanceof Delayer);
+        world.update();
+        world.update();
+        assertEquals(1f, TestUtil.state(world.get(100, 105)).getFloat());
+    }
+}
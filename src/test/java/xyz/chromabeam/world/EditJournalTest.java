@@ -0,0 +1,147 @@
+package xyz.chromabeam.world;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import xyz.chromabeam.TestUtil;
+import xyz.chromabeam.beam.Direction;
+import xyz.chromabeam.component.ComponentRegistry;
+import xyz.chromabeam.demo.components.basic.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EditJournalTest {
+    private static final int RANGE = 40;
+
+    /**
+     * Makes random placements, removals and clicks, with plenty of clicks on gates.
+     */
+    private static void edit(EditJournal journal, ComponentRegistry registry, Random rng, int count) {
+        var dirs = Direction.values();
+        for (int i = 0; i < count; i++) {
+            int x = rng.nextInt(2 * RANGE) - RANGE;
+            int y = rng.nextInt(2 * RANGE) - RANGE;
+            switch (rng.nextInt(4)) {
+                case 0, 1 -> journal.set(x, y, dirs[rng.nextInt(4)], rng.nextBoolean(), registry.create(rng.nextInt(registry.getTypeCount())));
+                case 2 -> journal.remove(x, y);
+                default -> journal.interact(x, y);
+            }
+        }
+    }
+
+    private static List<String> describe(World2D world) {
+        return TestUtil.describe(world, -RANGE, -RANGE, 2 * RANGE, 2 * RANGE);
+    }
+
+    private static List<String> reopen(ComponentRegistry registry, Path snapshot, Path journal) throws IOException {
+        var world = new FlatWorld2D(null, null);
+        EditJournal.open(world, registry, snapshot, journal).close();
+        return describe(world);
+    }
+
+    @Test
+    public void testReplay(@TempDir Path dir) throws IOException {
+        System.out.println("Testing edit journal replay");
+        var registry = TestUtil.registry();
+        var snapshot = dir.resolve("world.cbw");
+        var file = dir.resolve("world.cbj");
+        var world = new FlatWorld2D(null, null);
+        var rng = new Random(7);
+        try (var journal = EditJournal.open(world, registry, snapshot, file)) {
+            edit(journal, registry, rng, 3000);
+            assertTrue(journal.getRecordCount() > 2000);
+        }
+        var expected = describe(world);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, reopen(registry, snapshot, file));
+
+        //Appending after a replay continues the same journal.
+        try (var journal = EditJournal.open(world, registry, snapshot, file)) {
+            edit(journal, registry, rng, 500);
+        }
+        assertEquals(describe(world), reopen(registry, snapshot, file));
+    }
+
+    @Test
+    public void testTornRecord(@TempDir Path dir) throws IOException {
+        System.out.println("Testing edit journal with a torn record");
+        var registry = TestUtil.registry();
+        var snapshot = dir.resolve("world.cbw");
+        var file = dir.resolve("world.cbj");
+        var world = new FlatWorld2D(null, null);
+        try (var journal = EditJournal.open(world, registry, snapshot, file)) {
+            edit(journal, registry, new Random(8), 1000);
+        }
+        var expected = describe(world);
+        long size = Files.size(file);
+        try (var journal = EditJournal.open(new FlatWorld2D(null, null), registry, snapshot, file)) {
+            journal.set(100, 100, Direction.UP, false, new Mirror());
+        }
+        //Cut the last record in half, as if the game crashed while writing it.
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size + 7);
+        }
+        assertEquals(expected, reopen(registry, snapshot, file));
+        assertEquals(size, Files.size(file));
+
+        //Same for a record with a broken checksum.
+        try (var journal = EditJournal.open(new FlatWorld2D(null, null), registry, snapshot, file)) {
+            journal.set(100, 100, Direction.UP, false, new Mirror());
+        }
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), size + 6);
+        }
+        assertEquals(expected, reopen(registry, snapshot, file));
+
+        //A header torn inside the type table is dropped, the snapshot alone is the world.
+        try (var journal = EditJournal.open(new FlatWorld2D(null, null), registry, snapshot, file)) {
+            journal.compact();
+        }
+        expected = reopen(registry, snapshot, file);
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(30);
+        }
+        assertEquals(expected, reopen(registry, snapshot, file));
+    }
+
+    @Test
+    public void testCompaction(@TempDir Path dir) throws IOException {
+        System.out.println("Testing edit journal compaction");
+        var registry = TestUtil.registry();
+        var snapshot = dir.resolve("world.cbw");
+        var file = dir.resolve("world.cbj");
+        var world = new FlatWorld2D(null, null);
+        var rng = new Random(9);
+        var stale = dir.resolve("stale.cbj");
+        try (var journal = EditJournal.open(world, registry, snapshot, file)) {
+            edit(journal, registry, rng, 2000);
+            journal.flush();
+            long size = journal.size();
+            Files.copy(file, stale);
+            journal.compact();
+            assertTrue(journal.size() < size);
+            assertEquals(0, journal.getRecordCount());
+            edit(journal, registry, rng, 200);
+        }
+        var expected = describe(world);
+        assertEquals(expected, reopen(registry, snapshot, file));
+
+        //A journal that was already folded into the snapshot must not be replayed again, or the clicks would toggle
+        //the gates back.
+        try (var journal = EditJournal.open(world, registry, snapshot, file)) {
+            journal.compact();
+        }
+        var compacted = describe(world);
+        Files.copy(stale, file, StandardCopyOption.REPLACE_EXISTING);
+        assertEquals(compacted, reopen(registry, snapshot, file));
+    }
+}
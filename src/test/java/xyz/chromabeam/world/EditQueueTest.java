@@ -0,0 +1,121 @@
+package xyz.chromabeam.world;
+
+import org.junit.jupiter.api.Test;
+import xyz.chromabeam.TestUtil;
+import xyz.chromabeam.beam.Direction;
+import xyz.chromabeam.demo.components.basic.*;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EditQueueTest {
+    private static final int RANGE = 32;
+
+    /**
+     * Only the layout, queued edits are coalesced, and the order of the edits decides the state the components end up in.
+     */
+    private static List<String> describe(World2D world) {
+        return TestUtil.describe(world, -1, -1, RANGE + 2, RANGE + 2, false);
+    }
+
+    @Test
+    public void testQueuedEditsMatchDirectEdits() {
+        System.out.println("Testing queued edits");
+        var dirs = Direction.values();
+        for (long seed = 0; seed < 20; seed++) {
+            var direct = new FlatWorld2D(null, null);
+            var queued = new FlatWorld2D(null, null);
+            var queue = new EditQueue(queued, null, 1 << 14);
+            var rng = new Random(seed);
+            for (int t = 0; t < 40; t++) {
+                int edits = rng.nextInt(4) == 0 ? 2000 : 20;
+                for (int i = 0; i < edits; i++) {
+                    //Mostly small areas, so that cells get edited over and over, and the bulk paths kick in
+                    int size = rng.nextBoolean() ? 8 : RANGE;
+                    int x = rng.nextInt(size);
+                    int y = rng.nextInt(size);
+                    int op = rng.nextInt(20);
+                    if (op < 12) {
+                        var dir = dirs[rng.nextInt(4)];
+                        boolean flip = rng.nextBoolean();
+                        var type = TestUtil.BASIC.get(rng.nextInt(TestUtil.BASIC.size()));
+                        direct.set(x, y, dir, flip, type.get());
+                        assertTrue(queue.place(x, y, dir, flip, type.get()));
+                    } else if (op < 19) {
+                        direct.remove(x, y);
+                        assertTrue(queue.remove(x, y));
+                    } else if (rng.nextBoolean()) {
+                        direct.removeAll(x, y, 3, 3, null);
+                        assertTrue(queue.removeAll(x, y, 3, 3));
+                    } else {
+                        var existing = direct.get(x, y);
+                        if (existing == null) {
+                            direct.set(x, y, Direction.UP, false, new Gate());
+                        } else if (existing instanceof Gate gate) {
+                            gate.mouseInteraction();
+                            direct.forceTick(x, y);
+                        }
+                        assertTrue(queue.placeOrInteract(x, y, Direction.UP, false, new Gate()));
+                    }
+                }
+                queue.drain();
+                direct.update();
+                queued.update();
+                assertEquals(describe(direct), describe(queued), "Seed " + seed + ", tick " + t);
+            }
+        }
+    }
+
+    @Test
+    public void testFullQueueRejects() {
+        System.out.println("Testing full edit queues");
+        var world = new FlatWorld2D(null, null);
+        var queue = new EditQueue(world, null, 3);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.place(i, 0, Direction.RIGHT, false, new Block()));
+        }
+        assertFalse(queue.remove(0, 0));
+        assertEquals(1, queue.getRejected());
+        assertEquals(4, queue.drain());
+        assertEquals(0, queue.drain());
+        assertTrue(queue.remove(0, 0));
+        assertEquals(1, queue.drain());
+        assertNull(world.get(0, 0));
+        assertNotNull(world.get(3, 0));
+    }
+
+    @Test
+    public void testConcurrentProducers() throws InterruptedException {
+        System.out.println("Testing concurrent edit producers");
+        var world = new FlatWorld2D(null, null);
+        var queue = new EditQueue(world, null, 64);
+        int producers = 4;
+        int perProducer = 5000;
+        var threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            int row = p;
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!queue.place(i, row, Direction.RIGHT, false, new Block())) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+            threads[p].start();
+        }
+        boolean alive = true;
+        while (alive) {
+            alive = false;
+            for (var thread: threads) {
+                alive |= thread.isAlive();
+            }
+            queue.drain();
+        }
+        queue.drain();
+        int[] count = {0};
+        world.forEachTransform((tf) -> count[0]++);
+        assertEquals(producers * perProducer, count[0]);
+    }
+}
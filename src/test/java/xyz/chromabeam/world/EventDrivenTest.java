@@ -0,0 +1,186 @@
+package xyz.chromabeam.world;
+
+import org.joml.Vector4f;
+import org.junit.jupiter.api.Test;
+import xyz.chromabeam.beam.Direction;
+import xyz.chromabeam.component.Component;
+import xyz.chromabeam.component.Tickable;
+import xyz.chromabeam.demo.components.basic.Clock;
+import xyz.chromabeam.demo.components.basic.Delayer;
+import xyz.chromabeam.demo.components.basic.Emitter;
+import xyz.chromabeam.demo.components.basic.Mirror;
+import xyz.chromabeam.demo.components.basic.Splitter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventDrivenTest {
+    private static final int LOOP_LENGTH = 12;
+
+    private static class Alarm extends Component implements Tickable {
+        private final int delay;
+        private int ticks = 0;
+
+        Alarm(int delay) {
+            super("Alarm", "alarm", 0);
+            this.delay = delay;
+        }
+
+        @Override
+        public void tick() {
+            ticks++;
+        }
+
+        @Override
+        public int wakeUpDelay() {
+            return delay;
+        }
+    }
+
+    private static class CountingDelayer extends Delayer {
+        private int ticks = 0;
+
+        @Override
+        public void tick() {
+            super.tick();
+            ticks++;
+        }
+    }
+
+    private static class CountingClock extends Clock {
+        private int ticks = 0;
+
+        @Override
+        public void tick() {
+            super.tick();
+            ticks++;
+        }
+    }
+
+    /**
+     * Runs the world, and returns the ticks at which the clock flipped. The delayer behind the clock must follow it.
+     */
+    private static List<Integer> runClock(FlatWorld2D world, Clock clock, Delayer follower, int ticks) {
+        var flips = new ArrayList<Integer>();
+        var color = new Vector4f();
+        boolean on = clock.isOn();
+        for (int i = 0; i < ticks; i++) {
+            world.update();
+            if (clock.isOn() != on) {
+                on = !on;
+                flips.add(i);
+            }
+            if (!flips.isEmpty() && i - flips.get(flips.size() - 1) >= 2) {
+                assertEquals(on ? 1 : 0, follower.getColorMaskColor(0, color).x, "Delayer at tick " + i);
+            }
+        }
+        return flips;
+    }
+
+    @Test
+    public void testClock() {
+        System.out.println("Testing a clock driven by wake ups");
+        for (boolean eventDriven: new boolean[]{false, true}) {
+            var world = new FlatWorld2D(null, null);
+            world.setEventDriven(eventDriven);
+            var clock = new CountingClock();
+            var follower = new CountingDelayer();
+            world.set(0, 0, Direction.RIGHT, false, clock);
+            world.set(1, 0, Direction.RIGHT, false, follower);
+            int period = clock.getPeriod();
+            var flips = runClock(world, clock, follower, 20 * period);
+            assertEquals(20, flips.size());
+            for (int i = 1; i < flips.size(); i++) {
+                assertEquals(period, flips.get(i) - flips.get(i - 1));
+            }
+            //Nothing but the wake ups ticks the clock
+            assertEquals(flips.size(), clock.ticks);
+            if (eventDriven) {
+                assertTrue(follower.ticks <= 2 * flips.size(), "The delayer was ticked between flips");
+            }
+
+            //A click switches to the next period
+            clock.mouseInteraction();
+            world.forceTick(0, 0);
+            flips = runClock(world, clock, follower, 20 * clock.getPeriod());
+            assertEquals(2 * period, clock.getPeriod());
+            for (int i = 2; i < flips.size(); i++) {
+                assertEquals(clock.getPeriod(), flips.get(i) - flips.get(i - 1));
+            }
+        }
+    }
+
+    /**
+     * A delayer loop closed by mirrors, fed by an emitter through a splitter. The first delayer counts its ticks.
+     */
+    private static FlatWorld2D buildClock(boolean eventDriven, CountingDelayer counter) {
+        var world = new FlatWorld2D(null, null);
+        world.setEventDriven(eventDriven);
+        world.set(0, 0, Direction.RIGHT, false, counter);
+        for (int i = 1; i < LOOP_LENGTH; i++) {
+            world.set(i, 0, Direction.RIGHT, false, new Delayer());
+        }
+        world.set(LOOP_LENGTH, 0, Direction.RIGHT, false, new Mirror());
+        world.set(LOOP_LENGTH, 1, Direction.DOWN, false, new Mirror());
+        world.set(-1, 1, Direction.LEFT, false, new Mirror());
+        world.set(-1, 0, Direction.UP, false, new Mirror());
+        world.set(-3, 0, Direction.RIGHT, false, new Emitter());
+        world.set(-2, 0, Direction.RIGHT, false, new Splitter());
+        return world;
+    }
+
+    @Test
+    public void testWakeUps() {
+        System.out.println("Testing scheduled wake ups");
+        var world = new FlatWorld2D(null, null);
+        var alarm = new Alarm(3);
+        world.set(0, 0, Direction.RIGHT, false, alarm);
+        world.forceTick(0, 0);
+        for (int i = 0; i < 30; i++) {
+            world.update();
+        }
+        assertEquals(11, alarm.ticks);
+        var far = new Alarm(1000);
+        world.set(1, 0, Direction.RIGHT, false, far);
+        world.forceTick(1, 0);
+        for (int i = 0; i < 2000; i++) {
+            world.update();
+        }
+        assertEquals(3, far.ticks);
+        //The transform of a removed component is reused, its pending wake up must not tick the new component
+        world.remove(0, 0);
+        var replacement = new Alarm(0);
+        world.set(0, 0, Direction.RIGHT, false, replacement);
+        for (int i = 0; i < 30; i++) {
+            world.update();
+        }
+        assertEquals(0, replacement.ticks);
+    }
+
+    @Test
+    public void testSettledLoopGoesIdle() {
+        System.out.println("Testing event driven propagation");
+        var sweepCounter = new CountingDelayer();
+        var eventCounter = new CountingDelayer();
+        var sweeping = buildClock(false, sweepCounter);
+        var eventDriven = buildClock(true, eventCounter);
+        for (int i = 0; i < LOOP_LENGTH * 4; i++) {
+            sweeping.update();
+            eventDriven.update();
+        }
+        int settledTicks = eventCounter.ticks;
+        for (int i = 0; i < 100; i++) {
+            sweeping.update();
+            eventDriven.update();
+        }
+        assertEquals(settledTicks, eventCounter.ticks, "A settled loop was still ticked");
+        assertTrue(sweepCounter.ticks > settledTicks);
+        var a = new Vector4f();
+        var b = new Vector4f();
+        for (int i = 0; i < LOOP_LENGTH; i++) {
+            assertEquals(sweeping.get(i, 0).getColorMaskColor(0, a), eventDriven.get(i, 0).getColorMaskColor(0, b));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package xyz.chromabeam.world;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import xyz.chromabeam.beam.Direction;
+import xyz.chromabeam.demo.components.basic.Delayer;
+import xyz.chromabeam.demo.components.basic.Emitter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FlightRecorderEventsTest {
+    private static long count(List<RecordedEvent> events, String name) {
+        return events.stream().filter((event) -> event.getEventType().getName().equals(name)).count();
+    }
+
+    @Test
+    public void testEvents(@TempDir Path dir) throws IOException {
+        System.out.println("Testing flight recorder events");
+        var world = new FlatWorld2D(null, null);
+        world.set(0, 0, Direction.RIGHT, false, new Emitter());
+        world.set(5, 0, Direction.RIGHT, false, new Delayer());
+        world.update();
+
+        var file = dir.resolve("events.jfr");
+        try (var recording = new Recording()) {
+            recording.enable("xyz.chromabeam.TickPhase");
+            recording.enable("xyz.chromabeam.Tick");
+            recording.enable("xyz.chromabeam.BulkEdit");
+            recording.start();
+            world.update();
+            world.update();
+            world.removeAll(0, 0, 6, 1, null);
+            recording.stop();
+            recording.dump(file);
+        }
+        var events = RecordingFile.readAllEvents(file);
+        assertEquals(2, count(events, "xyz.chromabeam.Tick"));
+        assertEquals(8, count(events, "xyz.chromabeam.TickPhase"));
+        var edit = events.stream().filter((event) -> event.getEventType().getName().equals("xyz.chromabeam.BulkEdit")).findFirst().orElseThrow();
+        assertEquals("removeAll", edit.getString("operation"));
+        assertEquals(2, edit.getLong("components"));
+        assertEquals(6, edit.getInt("width"));
+    }
+}
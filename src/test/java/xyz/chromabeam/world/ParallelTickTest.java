@@ -0,0 +1,101 @@
+package xyz.chromabeam.world;
+
+import org.junit.jupiter.api.Test;
+import xyz.chromabeam.TestUtil;
+import xyz.chromabeam.beam.Direction;
+import xyz.chromabeam.component.Component;
+import xyz.chromabeam.demo.components.basic.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelTickTest {
+    private static final int RANGE = 24;
+    private static final int OPERATIONS = 4000;
+
+    /**
+     * Remembers everything it received. Probes of different islands are ticked on different threads, so each one keeps
+     * its own history.
+     */
+    private static class Probe extends Component implements xyz.chromabeam.component.BeamConsumer {
+        private final StringBuilder history = new StringBuilder();
+
+        Probe() {
+            super("Probe", "probe", 0);
+        }
+
+        @Override
+        public void incomingBeam(Direction direction, float red, float green, float blue) {
+            history.append(direction).append(red).append(green).append(blue).append(';');
+        }
+
+        @Override
+        public void tick() {
+        }
+    }
+
+    private static final List<Supplier<Component>> TYPES = new ArrayList<>(TestUtil.BASIC);
+    static {
+        TYPES.add(Probe::new);
+    }
+
+    /**
+     * Runs random edits and ticks on a world, and returns the colors of every component, and the history of every probe.
+     */
+    private static List<String> simulate(ForkJoinPool pool, long seed) {
+        var rng = new Random(seed);
+        var world = new FlatWorld2D(null, null);
+        world.setTickPool(pool);
+        var dirs = Direction.values();
+        var result = new ArrayList<String>();
+        for (int i = 0; i < OPERATIONS; i++) {
+            int x = rng.nextInt(RANGE) - RANGE / 2;
+            int y = rng.nextInt(RANGE) - RANGE / 2;
+            int op = rng.nextInt(10);
+            if (op < 6) {
+                if (world.get(x, y) != null) continue;
+                world.set(x, y, dirs[rng.nextInt(4)], rng.nextBoolean(), TestUtil.randomComponent(rng, TYPES));
+            } else if (op < 8) {
+                var c = world.get(x, y);
+                //A producer can be queued more than once, and remove() only dequeues it once.
+                if (c == null || c.isProducer()) continue;
+                world.remove(x, y);
+                world.update();
+            } else if (op < 9) {
+                if (world.get(x, y) instanceof Gate g) {
+                    g.mouseInteraction();
+                    world.forceTick(x, y);
+                }
+            } else {
+                world.update();
+            }
+        }
+        result.addAll(TestUtil.describe(world, -RANGE / 2, -RANGE / 2, RANGE, RANGE));
+        for (int y = -RANGE / 2; y < RANGE / 2; y++) {
+            for (int x = -RANGE / 2; x < RANGE / 2; x++) {
+                if (world.get(x, y) instanceof Probe p) {
+                    result.add(x + " " + y + " " + p.history);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testParallelMatchesSequential() {
+        System.out.println("Testing parallel island ticking against sequential ticking");
+        var pool = new ForkJoinPool(4);
+        try {
+            for (long seed = 1; seed <= 10; seed++) {
+                assertEquals(simulate(null, seed), simulate(pool, seed), "Seed " + seed + " diverged");
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
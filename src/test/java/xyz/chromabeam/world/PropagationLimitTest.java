@@ -0,0 +1,75 @@
+package xyz.chromabeam.world;
+
+import org.junit.jupiter.api.Test;
+import xyz.chromabeam.beam.Direction;
+import xyz.chromabeam.demo.components.basic.Mirror;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PropagationLimitTest {
+    private static class Recorder implements PropagationListener {
+        private final List<String> loops = new ArrayList<>();
+        private int deferred = 0;
+
+        @Override
+        public void loopDetected(int x, int y) {
+            loops.add(x + " " + y);
+        }
+
+        @Override
+        public void budgetExceeded(int deferredBeams) {
+            deferred += deferredBeams;
+        }
+    }
+
+    /**
+     * 4 mirrors reflecting beams around in a circle, forever.
+     */
+    private static FlatWorld2D buildRing(int loopLimit, int budget, PropagationListener listener) {
+        var world = new FlatWorld2D(null, null);
+        world.setPropagationLimits(loopLimit, budget, listener);
+        world.set(0, 0, Direction.UP, false, new Mirror());
+        world.set(1, 0, Direction.RIGHT, false, new Mirror());
+        world.set(1, 1, Direction.DOWN, false, new Mirror());
+        world.set(0, 1, Direction.LEFT, false, new Mirror());
+        world.update();
+        world.scheduleBeam(0, 0, Direction.RIGHT, 1, 1, 1);
+        return world;
+    }
+
+    @Test
+    public void testLoopIsDeferred() {
+        System.out.println("Testing instant loop detection");
+        var recorder = new Recorder();
+        var world = buildRing(8, Integer.MAX_VALUE, recorder);
+        var ring = List.of("0 0", "1 0", "1 1", "0 1");
+        assertFalse(recorder.loops.isEmpty());
+        assertTrue(ring.containsAll(recorder.loops));
+        //The loop keeps going on every tick, with the same amount of work
+        recorder.loops.clear();
+        world.update();
+        int reports = recorder.loops.size();
+        assertTrue(reports > 0);
+        assertTrue(ring.containsAll(recorder.loops));
+        world.update();
+        assertEquals(reports * 2, recorder.loops.size());
+        assertEquals(0, recorder.deferred);
+    }
+
+    @Test
+    public void testBudgetIsDeferred() {
+        System.out.println("Testing the propagation budget");
+        var recorder = new Recorder();
+        var world = buildRing(Integer.MAX_VALUE, 100, recorder);
+        recorder.deferred = 0;
+        world.update();
+        int deferred = recorder.deferred;
+        assertTrue(deferred > 0);
+        world.update();
+        assertEquals(deferred * 2, recorder.deferred);
+        assertTrue(recorder.loops.isEmpty());
+    }
+}
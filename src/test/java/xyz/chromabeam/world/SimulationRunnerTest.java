@@ -0,0 +1,181 @@
+package xyz.chromabeam.world;
+
+import org.junit.jupiter.api.Test;
+import xyz.chromabeam.TestUtil;
+import xyz.chromabeam.beam.Direction;
+import xyz.chromabeam.demo.components.basic.*;
+import xyz.chromabeam.engine.beam.Beam;
+import xyz.chromabeam.engine.render.beam.BeamDrawer;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SimulationRunnerTest {
+    private static final int RANGE = 20;
+
+    /**
+     * Keeps the beams it's told to draw, like the beam renderer, as text.
+     */
+    private static class BeamModel implements BeamDrawer {
+        private final Map<String, String> beams = new TreeMap<>();
+
+        private static String key(int x, int y, Direction direction) {
+            return x + " " + y + " " + direction;
+        }
+
+        @Override
+        public void clear() {
+        }
+
+        @Override
+        public void drawBeam(Beam beam) {
+            beams.put(key(beam.sourceX, beam.sourceY, beam.direction),
+                    beam.x + " " + beam.y + " " + beam.red + " " + beam.green + " " + beam.blue + " " + beam.infinite);
+        }
+
+        @Override
+        public void removeBeam(int x, int y, Direction direction) {
+            beams.remove(key(x, y, direction));
+        }
+
+        @Override
+        public void removeAll(int x, int y) {
+            for (var direction: Direction.values()) {
+                removeBeam(x, y, direction);
+            }
+        }
+    }
+
+    private static void edit(World2D world, Random rng) {
+        int x = rng.nextInt(RANGE);
+        int y = rng.nextInt(RANGE);
+        if (rng.nextInt(3) == 0) {
+            world.remove(x, y);
+        } else {
+            world.set(x, y, Direction.values()[rng.nextInt(4)], rng.nextBoolean(), TestUtil.randomComponent(rng));
+        }
+    }
+
+    /**
+     * Hands over the last changes, even if the previous snapshot wasn't applied yet.
+     */
+    private static void drain(RenderSnapshotBuffer snapshots, BeamDrawer beams) {
+        snapshots.apply(null, beams);
+        snapshots.publish();
+        snapshots.apply(null, beams);
+    }
+
+    @Test
+    public void testSnapshotsKeepLatestState() {
+        System.out.println("Testing render snapshots");
+        for (long seed = 0; seed < 10; seed++) {
+            var direct = new BeamModel();
+            var reference = new FlatWorld2D(null, direct);
+            var snapshots = new RenderSnapshotBuffer();
+            var buffered = new BeamModel();
+            var world = new FlatWorld2D(null, snapshots);
+            var referenceRng = new Random(seed);
+            var rng = new Random(seed);
+            for (int t = 0; t < 300; t++) {
+                for (int i = 0; i < 3; i++) {
+                    edit(reference, referenceRng);
+                    edit(world, rng);
+                }
+                reference.update();
+                world.update();
+                snapshots.publish();
+                //A slow render thread, that only takes every seventh snapshot
+                if (t % 7 == 0) snapshots.apply(null, buffered);
+            }
+            drain(snapshots, buffered);
+            assertFalse(direct.beams.isEmpty());
+            assertEquals(direct.beams, buffered.beams, "Seed " + seed);
+        }
+    }
+
+    @Test
+    public void testFastForwardFlushesFinalState() {
+        System.out.println("Testing fast-forward rendering");
+        for (long seed = 0; seed < 10; seed++) {
+            var direct = new BeamModel();
+            var reference = new FlatWorld2D(null, direct);
+            var flushed = new BeamModel();
+            var world = new FlatWorld2D(null, flushed);
+            world.setFastForward(true);
+            var referenceRng = new Random(seed);
+            var rng = new Random(seed);
+            for (int t = 0; t < 300; t++) {
+                for (int i = 0; i < 3; i++) {
+                    edit(reference, referenceRng);
+                    edit(world, rng);
+                }
+                reference.update();
+                world.update();
+                if (t % 5 == 0) {
+                    world.flushRendering();
+                    assertEquals(direct.beams, flushed.beams, "Seed " + seed + ", tick " + t);
+                }
+            }
+            world.setFastForward(false);
+            assertFalse(direct.beams.isEmpty());
+            assertEquals(direct.beams, flushed.beams, "Seed " + seed);
+        }
+    }
+
+    @Test
+    public void testPublishWaitsForRenderThread() {
+        System.out.println("Testing render snapshot handover");
+        var snapshots = new RenderSnapshotBuffer();
+        var model = new BeamModel();
+        var beam = new Beam();
+        beam.direction = Direction.RIGHT;
+        assertFalse(snapshots.publish(), "Published an empty snapshot");
+        snapshots.drawBeam(beam);
+        assertTrue(snapshots.publish());
+        beam.red = 1;
+        snapshots.drawBeam(beam);
+        assertFalse(snapshots.publish(), "Overwrote a snapshot that wasn't applied");
+        assertTrue(snapshots.apply(null, model));
+        assertEquals("0 0 0.0 0.0 0.0 false", model.beams.get("0 0 RIGHT"));
+        assertFalse(snapshots.apply(null, model));
+        assertTrue(snapshots.publish());
+        assertTrue(snapshots.apply(null, model));
+        assertEquals("0 0 1.0 0.0 0.0 false", model.beams.get("0 0 RIGHT"));
+    }
+
+    @Test
+    public void testRunner() throws InterruptedException {
+        System.out.println("Testing the simulation runner");
+        var snapshots = new RenderSnapshotBuffer();
+        var world = new FlatWorld2D(null, snapshots);
+        var runner = new SimulationRunner(world, snapshots);
+        var simulationThread = new Thread[1];
+        runner.execute(() -> {
+            simulationThread[0] = Thread.currentThread();
+            world.set(0, 0, Direction.RIGHT, false, new Emitter());
+            world.set(5, 0, Direction.RIGHT, false, new Delayer());
+        });
+        runner.setTickRate(500);
+        long start = System.nanoTime();
+        runner.start();
+        var model = new BeamModel();
+        while (runner.getTicks() < 20) {
+            snapshots.apply(null, model);
+            Thread.sleep(1);
+        }
+        runner.execute(() -> world.remove(0, 0));
+        runner.close();
+        long elapsed = System.nanoTime() - start;
+        assertFalse(runner.isRunning());
+        assertNotSame(Thread.currentThread(), simulationThread[0]);
+        assertTrue(runner.getTicks() <= elapsed / 2_000_000 + 1, "Ticked faster than the tick rate");
+        assertTrue(world.get(5, 0) instanceof Delayer);
+        assertNull(world.get(0, 0));
+        drain(snapshots, model);
+        assertNull(model.beams.get("0 0 RIGHT"));
+        assertNotNull(model.beams.get("5 0 RIGHT"));
+    }
+}
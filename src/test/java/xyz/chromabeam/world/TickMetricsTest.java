@@ -0,0 +1,65 @@
+package xyz.chromabeam.world;
+
+import org.junit.jupiter.api.Test;
+import xyz.chromabeam.TestUtil;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TickMetricsTest {
+    private static TickMetrics simulate(ForkJoinPool pool) {
+        var world = new FlatWorld2D(null, null);
+        world.setTickPool(pool);
+        TestUtil.populate(world, new Random(12), 0, 0, 100, 100, 2000);
+        for (int i = 0; i < 10; i++) {
+            world.update();
+        }
+        var metrics = new TickMetrics();
+        world.setMetrics(metrics);
+        for (int i = 0; i < 50; i++) {
+            world.update();
+        }
+        world.setMetrics(null);
+        world.update();
+        return metrics;
+    }
+
+    @Test
+    public void testCounts() {
+        System.out.println("Testing tick metrics");
+        var sequential = simulate(null);
+        assertEquals(50, sequential.getTicks());
+        assertEquals(50, sequential.getUpdates().getCount());
+        long phases = 0;
+        for (var phase: TickMetrics.Phase.values()) {
+            assertEquals(50, sequential.getPhase(phase).getCount());
+            phases += sequential.getPhase(phase).getSum();
+        }
+        assertTrue(phases <= sequential.getUpdates().getSum());
+        assertTrue(sequential.getBeamsPropagated() > 0);
+        assertTrue(sequential.getConsumersHit() > 0);
+        assertTrue(sequential.getTickablesRun() > 0);
+        assertTrue(sequential.getPropagationHighWater() > 0);
+        assertTrue(sequential.getConsumerHighWater() > 0);
+        assertTrue(sequential.getTickableHighWater() > 0);
+        assertTrue(sequential.getUpdates().getPercentile(99) <= sequential.getUpdates().getMax());
+
+        //Parallel ticking does the exact same work, just split up.
+        var pool = new ForkJoinPool(2);
+        try {
+            var parallel = simulate(pool);
+            assertEquals(sequential.getBeamsPropagated(), parallel.getBeamsPropagated());
+            assertEquals(sequential.getConsumersHit(), parallel.getConsumersHit());
+            assertEquals(sequential.getTickablesRun(), parallel.getTickablesRun());
+            assertTrue(parallel.getPropagationHighWater() <= sequential.getPropagationHighWater());
+        } finally {
+            pool.shutdown();
+        }
+
+        sequential.reset();
+        assertEquals(0, sequential.getTicks());
+        assertEquals(0, sequential.getBeamsPropagated());
+    }
+}
@@ -0,0 +1,176 @@
+package xyz.chromabeam.world;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import xyz.chromabeam.TestUtil;
+import xyz.chromabeam.beam.Direction;
+import xyz.chromabeam.component.Component;
+import xyz.chromabeam.component.ComponentRegistry;
+import xyz.chromabeam.component.UserInteractive;
+import xyz.chromabeam.demo.components.basic.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WorldSnapshotTest {
+    private static final int RANGE = 200;
+
+    public static class Note extends Component {
+        private byte[] text = new byte[0];
+
+        public Note() {
+            super("Note", "note", 0);
+        }
+
+        @Override
+        public int stateSize() {
+            return 4 + text.length;
+        }
+
+        @Override
+        public void writeState(ByteBuffer buffer) {
+            buffer.putInt(text.length).put(text);
+        }
+
+        @Override
+        public void readState(ByteBuffer buffer) {
+            text = new byte[buffer.getInt()];
+            buffer.get(text);
+        }
+    }
+
+    @Test
+    public void testRoundTrip(@TempDir Path dir) throws IOException {
+        System.out.println("Testing world save and load");
+        var registry = TestUtil.registry();
+        var world = new FlatWorld2D(null, null);
+        var rng = new Random(5);
+        var dirs = Direction.values();
+        for (int i = 0; i < 20000; i++) {
+            var component = registry.create(rng.nextInt(registry.getTypeCount()));
+            world.set(rng.nextInt(2 * RANGE) - RANGE, rng.nextInt(2 * RANGE) - RANGE, dirs[rng.nextInt(4)], rng.nextBoolean(), component);
+            if (component instanceof UserInteractive interactive && rng.nextBoolean()) interactive.mouseInteraction();
+        }
+        for (int i = 0; i < 20; i++) {
+            world.update();
+        }
+        var file = dir.resolve("world.cbw");
+        WorldSnapshot.save(world, registry, file);
+
+        var loaded = new FlatWorld2D(null, null);
+        loaded.set(1000, 1000, Direction.RIGHT, false, new Block());
+        WorldSnapshot.load(loaded, registry, file);
+        assertNull(loaded.get(1000, 1000));
+        var expected = new ComponentTransform<Component>();
+        var actual = new ComponentTransform<Component>();
+        int count = 0;
+        for (int y = -RANGE; y < RANGE; y++) {
+            for (int x = -RANGE; x < RANGE; x++) {
+                if (world.get(x, y) == null) {
+                    assertNull(loaded.get(x, y));
+                    continue;
+                }
+                count++;
+                world.getTransform(x, y, expected);
+                loaded.getTransform(x, y, actual);
+                assertEquals(expected.component.getClass(), actual.component.getClass());
+                assertEquals(expected.direction, actual.direction);
+                assertEquals(expected.flipped, actual.flipped);
+                assertEquals(TestUtil.state(expected.component), TestUtil.state(actual.component), "State at " + x + ", " + y);
+            }
+        }
+        int[] total = {0};
+        loaded.forEachTransform((tf) -> total[0]++);
+        assertEquals(count, total[0]);
+
+        //The loaded world has to be wired up, beams included.
+        loaded.clear();
+        loaded.set(0, 0, Direction.RIGHT, false, new Emitter());
+        loaded.set(70, 0, Direction.RIGHT, false, new Delayer());
+        WorldSnapshot.save(loaded, registry, file);
+        WorldSnapshot.load(world, registry, file);
+        world.update();
+        world.update();
+        var delayer = TestUtil.state(world.get(70, 0));
+        assertEquals(1f, delayer.getFloat());
+    }
+
+    @Test
+    public void testUnknownComponent(@TempDir Path dir) throws IOException {
+        System.out.println("Testing loading unknown components");
+        var world = new FlatWorld2D(null, null);
+        world.set(3, 4, Direction.UP, true, new Mirror());
+        var file = dir.resolve("world.cbw");
+        WorldSnapshot.save(world, TestUtil.registry(), file);
+        var registry = new ComponentRegistry();
+        registry.register(new Block());
+        assertThrows(IOException.class, () -> WorldSnapshot.load(new FlatWorld2D(null, null), registry, file));
+        assertThrows(IllegalArgumentException.class, () -> WorldSnapshot.save(world, registry, file));
+    }
+
+    @Test
+    public void testLongState(@TempDir Path dir) throws IOException {
+        System.out.println("Testing saving long component states");
+        var registry = TestUtil.registry();
+        registry.register(new Note());
+        var world = new FlatWorld2D(null, null);
+        var note = new Note();
+        note.text = new byte[40000];
+        Arrays.fill(note.text, (byte) 7);
+        world.set(0, 0, Direction.RIGHT, false, note);
+        world.set(1, 0, Direction.RIGHT, false, new Block());
+        var file = dir.resolve("world.cbw");
+        WorldSnapshot.save(world, registry, file);
+        var loaded = new FlatWorld2D(null, null);
+        WorldSnapshot.load(loaded, registry, file);
+        assertArrayEquals(note.text, ((Note) loaded.get(0, 0)).text);
+        assertEquals(Block.class, loaded.get(1, 0).getClass());
+
+        note.text = new byte[70000];
+        assertThrows(IllegalStateException.class, () -> WorldSnapshot.save(world, registry, file));
+    }
+
+    @Test
+    public void testCorruptFile(@TempDir Path dir) throws IOException {
+        System.out.println("Testing loading truncated worlds");
+        var registry = TestUtil.registry();
+        var world = new FlatWorld2D(null, null);
+        var rng = new Random(12);
+        var dirs = Direction.values();
+        for (int i = 0; i < 2000; i++) {
+            world.set(rng.nextInt(2 * RANGE) - RANGE, rng.nextInt(2 * RANGE) - RANGE, dirs[rng.nextInt(4)], rng.nextBoolean(), registry.create(rng.nextInt(registry.getTypeCount())));
+        }
+        var file = dir.resolve("world.cbw");
+        WorldSnapshot.save(world, registry, file);
+        var bytes = Files.readAllBytes(file);
+        var target = new FlatWorld2D(null, null);
+        var block = new Block();
+        target.set(1000, 1000, Direction.RIGHT, false, block);
+        var broken = dir.resolve("broken.cbw");
+        for (int length = 0; length < bytes.length; length += 1 + rng.nextInt(97)) {
+            Files.write(broken, Arrays.copyOf(bytes, length));
+            assertThrows(IOException.class, () -> WorldSnapshot.load(target, registry, broken));
+            assertSame(block, target.get(1000, 1000));
+        }
+        //Trailing garbage and type numbers past the type table
+        Files.write(broken, Arrays.copyOf(bytes, bytes.length + 4));
+        assertThrows(IOException.class, () -> WorldSnapshot.load(target, registry, broken));
+        var corrupt = bytes.clone();
+        //First component of the first chunk, after the type table, the chunk count and the chunk header
+        int offset = 12;
+        for (int i = 0; i < registry.getTypeCount(); i++) {
+            offset += 3 + ByteBuffer.wrap(bytes, offset, 2).getShort();
+        }
+        offset += 16;
+        corrupt[offset] = 0x7F;
+        Files.write(broken, corrupt);
+        assertThrows(IOException.class, () -> WorldSnapshot.load(target, registry, broken));
+        assertSame(block, target.get(1000, 1000));
+    }
+}